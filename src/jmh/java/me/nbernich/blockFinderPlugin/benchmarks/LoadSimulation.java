@@ -0,0 +1,389 @@
+package me.nbernich.blockFinderPlugin.benchmarks;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.commands.GameCommand;
+import me.nbernich.blockFinderPlugin.commands.ScoresCommand;
+import me.nbernich.blockFinderPlugin.commands.TeamsCommand;
+import me.nbernich.blockFinderPlugin.game.Arena;
+import me.nbernich.blockFinderPlugin.game.BlockManager;
+import me.nbernich.blockFinderPlugin.listeners.BlockFindListener;
+import me.nbernich.blockFinderPlugin.stats.LatencyHistogram;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerToggleSneakEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A load simulation that drives the game with thousands of virtual players on a headless, tick-based server, to
+ * check how much headroom a server has before an event.
+ * <p>
+ * Each scenario sets how many players there are and how often each of them sneaks, changes team and runs a
+ * command, and how likely a sneak is to find a target. Every tick, that many events are sent through the real
+ * sneak listener and command tree, and tasks the game scheduled are run, as on a server's main thread.
+ * For each scenario, the simulation reports how fast ticks were simulated, the latency percentiles of each kind of
+ * event and of whole ticks, and how much memory was allocated.
+ * <p>
+ * Players and worlds are dynamic proxies, which are slower than a real server's objects, so latencies are an upper
+ * bound that is best compared between scenarios and versions of the plugin.
+ * <p>
+ * Run with: mvn -P benchmarks compile exec:exec@simulate -Dsimulation.args="..."
+ * Arguments are scenario names (every scenario runs if none are given) and settings that override them, such as
+ * players=8000 or ticks=6000. See {@link #SETTING_NAMES} for every setting.
+ */
+public final class LoadSimulation {
+
+    private static final int TICKS_PER_SECOND = 20;
+    private static final long TICK_BUDGET_NANOS = 50_000_000L;
+    private static final List<String> SETTING_NAMES = List.of(
+        "players", "teams", "sneaksPerSecond", "findProbability", "teamChangesPerSecond", "commandsPerSecond",
+        "ticks", "warmupTicks", "seed"
+    );
+    private static final Map<String, Scenario> SCENARIOS = createScenarios();
+
+    /**
+     * The load to simulate. Rates are per player.
+     * @param name the name of the scenario
+     * @param players the number of online players, who all start on a team
+     * @param teams the number of teams
+     * @param sneaksPerSecond how often each player starts sneaking
+     * @param findProbability the chance that a sneak is above a target block
+     * @param teamChangesPerSecond how often each player joins another team or leaves theirs
+     * @param commandsPerSecond how often each player lists targets, teams or scores
+     */
+    private record Scenario(
+        String name, int players, int teams, double sneaksPerSecond, double findProbability,
+        double teamChangesPerSecond, double commandsPerSecond
+    ) {}
+
+    /**
+     * A kind of event whose latency and allocation are measured.
+     */
+    private enum Operation {
+        SNEAK("Sneak"),
+        TEAM_CHANGE("Team change"),
+        COMMAND("Command"),
+        SCHEDULED_TASKS("Scheduled tasks"),
+        TICK("Whole tick");
+
+        private static final Operation[] VALUES = values();
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Scenario scenario;
+    private final int ticks;
+    private final int warmupTicks;
+    private final SplittableRandom random;
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final LatencyHistogram[] histograms;
+    private final long[] allocatedBytes;
+    private final SimulatedServer server;
+    private final BlockManager blockManager;
+    private final BlockFindListener listener;
+    private final CommandDispatcher<CommandSourceStack> dispatcher;
+    private final List<Player> players;
+    private final List<CommandSourceStack> sources;
+    private final String[] joinCommands;
+    private boolean nextSneakFinds; // whether the block below the next sneaking player is a target
+
+    private LoadSimulation(Scenario scenario, int ticks, int warmupTicks, long seed) {
+        this.scenario = scenario;
+        this.ticks = ticks;
+        this.warmupTicks = warmupTicks;
+        this.random = new SplittableRandom(seed);
+        this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        this.histograms = new LatencyHistogram[Operation.VALUES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        this.allocatedBytes = new long[Operation.VALUES.length];
+
+        YamlConfiguration config = Stubs.config(scenario.teams(), false);
+        config.set("useSidebarScoreboard", true);
+        this.server = new SimulatedServer();
+        BlockFinderGame game = Stubs.createGame(config, server.getServer());
+        Arena arena = game.getArenaManager().getDefaultArena();
+        this.blockManager = arena.getBlockManager();
+        this.listener = game.getBlockFindListener();
+        game.getBroadcaster().start();
+
+        this.dispatcher = new CommandDispatcher<>();
+        dispatcher.getRoot().addChild(new GameCommand(game).build());
+        dispatcher.getRoot().addChild(new TeamsCommand(game).build());
+        dispatcher.getRoot().addChild(new ScoresCommand(game).build());
+        this.joinCommands = new String[scenario.teams()];
+        for (int i = 0; i < joinCommands.length; i++) {
+            joinCommands[i] = "bfteams join " + Stubs.teamName(i);
+        }
+
+        World world = Stubs.world(() -> nextSneakFinds ? blockManager.getCurrentTargets().asList().get(0) : Material.STONE);
+        this.players = new ArrayList<>(scenario.players());
+        this.sources = new ArrayList<>(scenario.players());
+        for (int i = 0; i < scenario.players(); i++) {
+            Player player = server.addPlayer("player" + i, world);
+            arena.getTeamManager().addPlayer(player, Stubs.teamName(i % scenario.teams()));
+            players.add(player);
+            sources.add(Stubs.stub(CommandSourceStack.class, Map.of(
+                "getSender", args -> player,
+                "getExecutor", args -> player
+            )));
+        }
+
+        blockManager.loadBlockTypes(Stubs.blockTypes());
+        blockManager.selectNewTargets();
+        arena.getTeamManager().startScoreboardDisplay();
+    }
+
+    public static void main(String[] args) {
+        List<Scenario> scenarios = new ArrayList<>();
+        Map<String, String> settings = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator >= 0) {
+                String name = arg.substring(0, separator);
+                if (!SETTING_NAMES.contains(name)) {
+                    throw new IllegalArgumentException("Unknown setting '" + name + "'. Expected one of " + SETTING_NAMES);
+                }
+                settings.put(name, arg.substring(separator + 1));
+            } else if (SCENARIOS.containsKey(arg)) {
+                scenarios.add(SCENARIOS.get(arg));
+            } else {
+                throw new IllegalArgumentException("Unknown scenario '" + arg + "'. Expected one of " + SCENARIOS.keySet());
+            }
+        }
+        if (scenarios.isEmpty()) {
+            scenarios.addAll(SCENARIOS.values());
+        }
+
+        int ticks = Integer.parseInt(settings.getOrDefault("ticks", "1200"));
+        int warmupTicks = Integer.parseInt(settings.getOrDefault("warmupTicks", "400"));
+        long seed = Long.parseLong(settings.getOrDefault("seed", "42"));
+        for (Scenario scenario : scenarios) {
+            LoadSimulation simulation = new LoadSimulation(override(scenario, settings), ticks, warmupTicks, seed);
+            simulation.run();
+        }
+    }
+
+    /**
+     * Helper to apply settings from the command line to a scenario.
+     * @param scenario the scenario as defined
+     * @param settings the settings given on the command line, by name
+     * @return the scenario with the settings applied
+     */
+    private static Scenario override(Scenario scenario, Map<String, String> settings) {
+        return new Scenario(
+            scenario.name(),
+            Integer.parseInt(settings.getOrDefault("players", String.valueOf(scenario.players()))),
+            Integer.parseInt(settings.getOrDefault("teams", String.valueOf(scenario.teams()))),
+            Double.parseDouble(settings.getOrDefault("sneaksPerSecond", String.valueOf(scenario.sneaksPerSecond()))),
+            Double.parseDouble(settings.getOrDefault("findProbability", String.valueOf(scenario.findProbability()))),
+            Double.parseDouble(
+                settings.getOrDefault("teamChangesPerSecond", String.valueOf(scenario.teamChangesPerSecond()))
+            ),
+            Double.parseDouble(settings.getOrDefault("commandsPerSecond", String.valueOf(scenario.commandsPerSecond())))
+        );
+    }
+
+    private static Map<String, Scenario> createScenarios() {
+        Map<String, Scenario> scenarios = new LinkedHashMap<>();
+        for (Scenario scenario : List.of(
+            new Scenario("baseline", 1000, 8, 0.2, 0.0005, 0.001, 0.01),
+            new Scenario("sneak-storm", 5000, 16, 2.0, 0.0002, 0.001, 0.01),
+            new Scenario("team-churn", 2000, 64, 0.2, 0.0005, 0.05, 0.01),
+            new Scenario("command-storm", 2000, 32, 0.2, 0.0005, 0.001, 0.5),
+            new Scenario("league-night", 4000, 128, 0.5, 0.001, 0.01, 0.05)
+        )) {
+            scenarios.put(scenario.name(), scenario);
+        }
+        return scenarios;
+    }
+
+    /**
+     * Run the scenario: warm up, reset the measurements, then simulate the measured ticks and print a report.
+     */
+    private void run() {
+        for (int tick = 0; tick < warmupTicks; tick++) {
+            simulateTick();
+        }
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        Arrays.fill(allocatedBytes, 0);
+
+        long startEpoch = blockManager.getCurrentRound().getEpoch();
+        long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+        long startNanos = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            simulateTick();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long totalBytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+        long rounds = blockManager.getCurrentRound().getEpoch() - startEpoch;
+        printReport(elapsedNanos, totalBytes, rounds);
+    }
+
+    /**
+     * Helper to simulate one tick: run the scheduled tasks, then send this tick's share of each kind of event.
+     */
+    private void simulateTick() {
+        long tickStartNanos = System.nanoTime();
+        long tickStartBytes = threadBean.getCurrentThreadAllocatedBytes();
+
+        long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+        long startNanos = System.nanoTime();
+        server.tick();
+        record(Operation.SCHEDULED_TASKS, startNanos, startBytes);
+
+        for (int i = eventsThisTick(scenario.sneaksPerSecond()); i > 0; i--) {
+            Player player = randomPlayer();
+            this.nextSneakFinds = random.nextDouble() < scenario.findProbability();
+            PlayerToggleSneakEvent event = new PlayerToggleSneakEvent(player, true);
+            startBytes = threadBean.getCurrentThreadAllocatedBytes();
+            startNanos = System.nanoTime();
+            listener.onPlayerToggleSneak(event);
+            record(Operation.SNEAK, startNanos, startBytes);
+        }
+        this.nextSneakFinds = false;
+
+        for (int i = eventsThisTick(scenario.teamChangesPerSecond()); i > 0; i--) {
+            String command = random.nextInt(5) == 0 ? "bfteams leave" : joinCommands[random.nextInt(joinCommands.length)];
+            dispatch(Operation.TEAM_CHANGE, command);
+        }
+
+        for (int i = eventsThisTick(scenario.commandsPerSecond()); i > 0; i--) {
+            String command = switch (random.nextInt(3)) {
+                case 0 -> "bfinder";
+                case 1 -> "bfteams";
+                default -> "bfscores";
+            };
+            dispatch(Operation.COMMAND, command);
+        }
+
+        record(Operation.TICK, tickStartNanos, tickStartBytes);
+    }
+
+    /**
+     * Helper to run a command as a random player, measuring it as the given operation.
+     * @param operation the operation the command counts as
+     * @param command the command, without a leading slash
+     */
+    private void dispatch(Operation operation, String command) {
+        CommandSourceStack source = sources.get(random.nextInt(sources.size()));
+        long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+        long startNanos = System.nanoTime();
+        try {
+            dispatcher.execute(command, source);
+        } catch (CommandSyntaxException e) {
+            throw new IllegalStateException("Simulated command '" + command + "' failed to parse", e);
+        }
+        record(operation, startNanos, startBytes);
+    }
+
+    private void record(Operation operation, long startNanos, long startBytes) {
+        histograms[operation.ordinal()].record(System.nanoTime() - startNanos);
+        allocatedBytes[operation.ordinal()] += threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+    }
+
+    /**
+     * Helper to get how many events of a kind happen in a tick, so that on average each player causes the given
+     * number per second. The fraction of an event left over is sent in a tick with matching probability.
+     * @param perPlayerPerSecond how often each player causes the event
+     * @return the number of events to send this tick
+     */
+    private int eventsThisTick(double perPlayerPerSecond) {
+        double expected = players.size() * perPlayerPerSecond / TICKS_PER_SECOND;
+        int events = (int) expected;
+        return random.nextDouble() < expected - events ? events + 1 : events;
+    }
+
+    private Player randomPlayer() {
+        return players.get(random.nextInt(players.size()));
+    }
+
+    /**
+     * Helper to print the results of the scenario.
+     * @param elapsedNanos how long the measured ticks took to simulate
+     * @param totalBytes how many bytes were allocated while simulating the measured ticks
+     * @param rounds how many rounds were won while simulating the measured ticks
+     */
+    private void printReport(long elapsedNanos, long totalBytes, long rounds) {
+        double elapsedSeconds = elapsedNanos / 1e9;
+        double simulatedSeconds = ticks / (double) TICKS_PER_SECOND;
+        long events = 0;
+        for (Operation operation : List.of(Operation.SNEAK, Operation.TEAM_CHANGE, Operation.COMMAND)) {
+            events += histograms[operation.ordinal()].getCount();
+        }
+        LatencyHistogram tickHistogram = histograms[Operation.TICK.ordinal()];
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(
+            "%nScenario %s: %d players, %d teams, %.2f sneaks/s, %.4f find chance, %.3f team changes/s, "
+                + "%.3f commands/s per player%n",
+            scenario.name(), scenario.players(), scenario.teams(), scenario.sneaksPerSecond(),
+            scenario.findProbability(), scenario.teamChangesPerSecond(), scenario.commandsPerSecond()
+        ));
+        report.append(String.format(
+            "  Simulated %.1f s of game time in %.2f s (%.1fx real time): %d events (%.0f per second), %d rounds won%n",
+            simulatedSeconds, elapsedSeconds, simulatedSeconds / elapsedSeconds, events, events / elapsedSeconds,
+            rounds
+        ));
+        report.append(String.format(
+            "  Ticks: p99 %s, max %s, %.1f%% of the %d ms tick budget at p99%n",
+            formatNanos(tickHistogram.getPercentile(0.99)), formatNanos(tickHistogram.getMax()),
+            tickHistogram.getPercentile(0.99) * 100.0 / TICK_BUDGET_NANOS, TICK_BUDGET_NANOS / 1_000_000
+        ));
+        report.append(String.format(
+            "  Allocation: %.1f MB/s of simulation, %.1f MB per simulated second%n",
+            totalBytes / 1e6 / elapsedSeconds, totalBytes / 1e6 / simulatedSeconds
+        ));
+        report.append(String.format(
+            "  %-16s %10s %10s %10s %10s %10s %12s%n", "Operation", "Calls", "p50", "p99", "p99.9", "Max", "Bytes/call"
+        ));
+        for (Operation operation : Operation.VALUES) {
+            LatencyHistogram histogram = histograms[operation.ordinal()];
+            long count = histogram.getCount();
+            report.append(String.format(
+                "  %-16s %10d %10s %10s %10s %10s %12s%n",
+                operation.label, count,
+                formatNanos(histogram.getPercentile(0.5)), formatNanos(histogram.getPercentile(0.99)),
+                formatNanos(histogram.getPercentile(0.999)), formatNanos(histogram.getMax()),
+                count == 0 ? "-" : String.valueOf(allocatedBytes[operation.ordinal()] / count)
+            ));
+        }
+        System.out.print(report);
+    }
+
+    /**
+     * Helper to format a latency with a unit that keeps it short.
+     * @param nanos the latency in nanoseconds
+     * @return the formatted latency, such as "12.5 us"
+     */
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + " ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+        return String.format("%.2f s", nanos / 1e9);
+    }
+}
@@ -0,0 +1,42 @@
+package me.nbernich.blockFinderPlugin.benchmarks;
+
+import me.nbernich.blockFinderPlugin.game.BlockManager;
+import me.nbernich.blockFinderPlugin.utils.Formatting;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rendering of block names and the target list shown by /bfinder and find announcements.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"POLISHED_BLACKSTONE_BRICK_STAIRS"})
+    public String materialName;
+
+    private BlockManager blockManager;
+
+    @Setup
+    public void setup() {
+        this.blockManager = Stubs.createArena(Stubs.config(2, false)).getBlockManager();
+        blockManager.loadBlockTypes(Stubs.blockTypes());
+        blockManager.selectNewTargets();
+    }
+
+    @Benchmark
+    public String toTitleCase() {
+        return Formatting.toTitleCase(materialName);
+    }
+
+    @Benchmark
+    public Component createTargetListMessage() {
+        return blockManager.createTargetListMessage();
+    }
+}
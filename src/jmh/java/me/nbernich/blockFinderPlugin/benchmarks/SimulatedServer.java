@@ -0,0 +1,139 @@
+package me.nbernich.blockFinderPlugin.benchmarks;
+
+import io.papermc.paper.threadedregions.scheduler.EntityScheduler;
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A headless server that advances in ticks, for simulating load on a single main thread as on Paper.
+ * Tasks the game schedules on the global region or on a player are queued and run at the start of the next tick,
+ * and repeating tasks run on their period, so work is spread across ticks the same way it is on a real server.
+ * Players added to the server are online, so announcements and scoreboards reach them.
+ */
+final class SimulatedServer {
+
+    private final Server server;
+    private final List<Player> onlinePlayers;
+    private final ArrayDeque<Runnable> pendingTasks;
+    private final List<RepeatingTask> repeatingTasks;
+    private final EntityScheduler entityScheduler;
+    private int currentTick;
+
+    SimulatedServer() {
+        this.onlinePlayers = new ArrayList<>();
+        this.pendingTasks = new ArrayDeque<>();
+        this.repeatingTasks = new ArrayList<>();
+        this.currentTick = 0;
+
+        GlobalRegionScheduler globalScheduler = Stubs.stub(GlobalRegionScheduler.class, Map.of(
+            "execute", args -> {
+                pendingTasks.add((Runnable) args[1]);
+                return null;
+            },
+            "runAtFixedRate", args -> {
+                @SuppressWarnings("unchecked")
+                Consumer<ScheduledTask> task = (Consumer<ScheduledTask>) args[1];
+                return schedule(task, (long) args[2], (long) args[3]);
+            }
+        ));
+        this.entityScheduler = Stubs.stub(EntityScheduler.class, Map.of(
+            "execute", args -> {
+                pendingTasks.add((Runnable) args[1]);
+                return true;
+            }
+        ));
+
+        Map<String, Function<Object[], Object>> overrides = new HashMap<>();
+        overrides.put("getOnlinePlayers", args -> Collections.unmodifiableList(onlinePlayers));
+        overrides.put("getGlobalRegionScheduler", args -> globalScheduler);
+        overrides.put("getCurrentTick", args -> currentTick);
+        this.server = Stubs.stub(Server.class, overrides);
+    }
+
+    /**
+     * Get the server, to run the game on.
+     * @return the stub server
+     */
+    Server getServer() {
+        return server;
+    }
+
+    /**
+     * Create a player who is online on this server, with tasks scheduled on them run on the next tick.
+     * @param name the name of the player
+     * @param world the world the player is in
+     * @return the new player
+     */
+    Player addPlayer(String name, World world) {
+        Player player = Stubs.player(name, world, Map.of("getScheduler", args -> entityScheduler));
+        onlinePlayers.add(player);
+        return player;
+    }
+
+    /**
+     * Start a new tick: run the repeating tasks that are due, then every task that was queued during the previous
+     * tick. Tasks queued while this runs are left for the next tick.
+     */
+    void tick() {
+        currentTick++;
+        for (int i = 0; i < repeatingTasks.size(); i++) {
+            RepeatingTask task = repeatingTasks.get(i);
+            if (task.cancelled) {
+                repeatingTasks.remove(i--);
+            } else if (currentTick >= task.nextTick) {
+                task.nextTick = currentTick + task.periodTicks;
+                task.action.accept(task.handle);
+            }
+        }
+        for (int remaining = pendingTasks.size(); remaining > 0; remaining--) {
+            pendingTasks.poll().run();
+        }
+    }
+
+    /**
+     * Helper to register a repeating task on the global region.
+     * @param action the task to run
+     * @param initialDelayTicks the number of ticks before the first run
+     * @param periodTicks the number of ticks between runs
+     * @return a handle that cancels the task
+     */
+    private ScheduledTask schedule(Consumer<ScheduledTask> action, long initialDelayTicks, long periodTicks) {
+        RepeatingTask task = new RepeatingTask(action, Math.max(1, periodTicks), currentTick + initialDelayTicks);
+        task.handle = Stubs.stub(ScheduledTask.class, Map.of("cancel", args -> {
+            task.cancelled = true;
+            return null;
+        }));
+        repeatingTasks.add(task);
+        return task.handle;
+    }
+
+    /**
+     * A task that runs every few ticks until it is cancelled.
+     */
+    private static final class RepeatingTask {
+
+        private final Consumer<ScheduledTask> action;
+        private final long periodTicks;
+        private long nextTick;
+        private ScheduledTask handle;
+        private boolean cancelled;
+
+        private RepeatingTask(Consumer<ScheduledTask> action, long periodTicks, long nextTick) {
+            this.action = action;
+            this.periodTicks = periodTicks;
+            this.nextTick = nextTick;
+        }
+    }
+}
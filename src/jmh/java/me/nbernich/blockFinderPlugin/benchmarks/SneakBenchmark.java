@@ -0,0 +1,60 @@
+package me.nbernich.blockFinderPlugin.benchmarks;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.game.Arena;
+import me.nbernich.blockFinderPlugin.game.BlockManager;
+import me.nbernich.blockFinderPlugin.listeners.BlockFindListener;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerToggleSneakEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the sneak handler when the player is standing on a target block (a find) and when they are not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SneakBenchmark {
+
+    private BlockFindListener listener;
+    private PlayerToggleSneakEvent hitEvent;
+    private PlayerToggleSneakEvent missEvent;
+
+    @Setup
+    public void setup() {
+        BlockFinderGame game = Stubs.createGame(Stubs.config(2, false));
+        Arena arena = game.getArenaManager().getDefaultArena();
+        BlockManager blockManager = arena.getBlockManager();
+        blockManager.loadBlockTypes(Stubs.blockTypes());
+        blockManager.selectNewTargets();
+        this.listener = game.getBlockFindListener();
+
+        // every block in the hit world is one of the current targets, even after a find selects new ones
+        World hitWorld = Stubs.world(() -> blockManager.getCurrentTargets().asList().get(0));
+        Player finder = Stubs.player("finder", hitWorld);
+        arena.getTeamManager().addPlayer(finder, Stubs.teamName(0));
+        this.hitEvent = new PlayerToggleSneakEvent(finder, true);
+
+        World missWorld = Stubs.world(() -> Material.AIR);
+        Player searcher = Stubs.player("searcher", missWorld);
+        arena.getTeamManager().addPlayer(searcher, Stubs.teamName(1));
+        this.missEvent = new PlayerToggleSneakEvent(searcher, true);
+    }
+
+    @Benchmark
+    public void hit() {
+        listener.onPlayerToggleSneak(hitEvent);
+    }
+
+    @Benchmark
+    public void miss() {
+        listener.onPlayerToggleSneak(missEvent);
+    }
+}
@@ -0,0 +1,313 @@
+package me.nbernich.blockFinderPlugin.benchmarks;
+
+import io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.game.Arena;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless stand-ins for the Bukkit types the game depends on, so benchmarks can run without a server.
+ * Interfaces are stubbed with dynamic proxies that return harmless defaults. The game is built around a stub plugin
+ * and server, so no server has to be installed as the Bukkit singleton.
+ */
+final class Stubs {
+
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final Logger LOGGER = createLogger();
+
+    private Stubs() {
+    }
+
+    /**
+     * Create a stub that returns default values for every method.
+     * @param type the interface to stub
+     * @return a stub implementing the interface
+     */
+    static <T> T stub(Class<T> type) {
+        return stub(type, Map.of());
+    }
+
+    /**
+     * Create a stub that returns default values for every method, except for the given overrides.
+     * @param type the interface to stub
+     * @param overrides method implementations by method name, taking the call arguments
+     * @return a stub implementing the interface
+     */
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> overrides) {
+        Object proxy = Proxy.newProxyInstance(
+            Stubs.class.getClassLoader(), new Class<?>[]{type}, new Handler(type, overrides)
+        );
+        return type.cast(proxy);
+    }
+
+    /**
+     * Create a configuration with the given settings and a number of teams named Team0, Team1, etc.
+     * @param teamCount the number of teams to configure
+     * @param shouldPreventRepeatBlocks whether to prevent repeat target blocks
+     * @return a configuration for the game
+     */
+    static YamlConfiguration config(int teamCount, boolean shouldPreventRepeatBlocks) {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("targetCount", 3);
+        config.set("shouldPreventRepeatBlocks", shouldPreventRepeatBlocks);
+        config.set("useSidebarScoreboard", false);
+        config.set("showScoresOnFound", false);
+        config.set("persistence.enabled", false);
+        config.set("history.enabled", false);
+        config.set("proximity.enabled", false);
+
+        List<Map<String, Object>> teams = new ArrayList<>();
+        for (int i = 0; i < teamCount; i++) {
+            Map<String, Object> team = new HashMap<>();
+            team.put("name", teamName(i));
+            team.put("color", String.format("#%06x", (i * 0x2f5a3b) & 0xffffff));
+            teams.add(team);
+        }
+        config.set("teams", teams);
+        return config;
+    }
+
+    /**
+     * Get the name of a team created by {@link #config(int, boolean)}.
+     * @param index the index of the team
+     * @return the name of the team
+     */
+    static String teamName(int index) {
+        return "Team" + index;
+    }
+
+    /**
+     * Get candidate block types for target selection.
+     * Material#isBlock depends on the server's registries, so every modern material except air is used instead.
+     * @return a list of candidate block types
+     */
+    static List<Material> blockTypes() {
+        List<Material> blockTypes = new ArrayList<>();
+        for (Material material : Material.values()) {
+            boolean isAir = material == Material.AIR || material == Material.CAVE_AIR || material == Material.VOID_AIR;
+            if (!material.isLegacy() && !isAir) {
+                blockTypes.add(material);
+            }
+        }
+        return blockTypes;
+    }
+
+    /**
+     * Create a game with a stub server and real game managers built from the given configuration.
+     * @param config the game configuration
+     * @return a game whose arenas and listener are ready to use
+     */
+    static BlockFinderGame createGame(YamlConfiguration config) {
+        return createGame(config, createServer());
+    }
+
+    /**
+     * Create a game with real game managers built from the given configuration, running on the given server.
+     * The game runs in a stub plugin that reports itself as enabled, so tasks go to the server's stub schedulers.
+     * @param config the game configuration
+     * @param server the server the game runs on
+     * @return a game whose arenas and listener are ready to use
+     */
+    static BlockFinderGame createGame(YamlConfiguration config, Server server) {
+        File dataFolder = createDataFolder();
+        Map<String, Function<Object[], Object>> overrides = new HashMap<>();
+        overrides.put("isEnabled", args -> true);
+        overrides.put("getName", args -> "BlockFinderPlugin");
+        overrides.put("getServer", args -> server);
+        overrides.put("getLogger", args -> LOGGER);
+        overrides.put("getDataFolder", args -> dataFolder);
+        return new BlockFinderGame(stub(Plugin.class, overrides), config);
+    }
+
+    /**
+     * Create a game as in {@link #createGame(YamlConfiguration)} and get its default arena,
+     * which is the arena played in every stub world.
+     * @param config the game configuration
+     * @return the default arena of a new game
+     */
+    static Arena createArena(YamlConfiguration config) {
+        return createGame(config).getArenaManager().getDefaultArena();
+    }
+
+    /**
+     * Create a world whose blocks are all the same type.
+     * @param blockType supplies the type of every block in the world
+     * @return a stub world
+     */
+    static World world(Supplier<Material> blockType) {
+        Map<String, Function<Object[], Object>> overrides = new HashMap<>();
+        overrides.put("getType", args -> blockType.get());
+        overrides.put("getName", args -> "world");
+        return stub(World.class, overrides);
+    }
+
+    /**
+     * Create a player standing at a fixed position in a world.
+     * @param name the name of the player
+     * @param world the world the player is in
+     * @return a stub player
+     */
+    static Player player(String name, World world) {
+        return player(name, world, Map.of());
+    }
+
+    /**
+     * Create an online player standing at a fixed position in a world, with extra method overrides.
+     * @param name the name of the player
+     * @param world the world the player is in
+     * @param extraOverrides method implementations by method name, applied on top of the player's defaults
+     * @return a stub player
+     */
+    static Player player(String name, World world, Map<String, Function<Object[], Object>> extraOverrides) {
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        Map<String, Function<Object[], Object>> overrides = new HashMap<>();
+        overrides.put("isOnline", args -> true);
+        overrides.put("getName", args -> name);
+        overrides.put("getUniqueId", args -> uuid);
+        overrides.put("getWorld", args -> world);
+        overrides.put("getLocation", args -> {
+            Location location = args.length == 1 ? (Location) args[0] : new Location(world, 0, 0, 0);
+            location.setWorld(world);
+            location.setX(8.5);
+            location.setY(64.0);
+            location.setZ(-8.5);
+            return location;
+        });
+        overrides.putAll(extraOverrides);
+        return stub(Player.class, overrides);
+    }
+
+    /**
+     * Create a stub server with no players, which runs global tasks as soon as they are scheduled.
+     * @return a stub server
+     */
+    private static Server createServer() {
+        Map<String, Function<Object[], Object>> overrides = new HashMap<>();
+        overrides.put("getOnlinePlayers", args -> List.of());
+        GlobalRegionScheduler scheduler = stub(GlobalRegionScheduler.class, Map.of("execute", args -> {
+            ((Runnable) args[1]).run(); // run global tasks inline, so a find completes its round
+            return null;
+        }));
+        overrides.put("getGlobalRegionScheduler", args -> scheduler);
+        return stub(Server.class, overrides);
+    }
+
+    /**
+     * Create an empty folder for the game's files, which is deleted when the JVM exits.
+     * @return the new folder
+     */
+    private static File createDataFolder() {
+        try {
+            File dataFolder = Files.createTempDirectory("blockfinder-benchmark").toFile();
+            dataFolder.deleteOnExit();
+            return dataFolder;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create a data folder", e);
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == char.class) {
+            return (char) 0;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        if (type == double.class) {
+            return 0d;
+        }
+        if (type == String.class) {
+            return "stub";
+        }
+        if (type == Logger.class) {
+            return LOGGER;
+        }
+        if (type.isInterface()) {
+            return stub(type);
+        }
+        return null;
+    }
+
+    private static Logger createLogger() {
+        Logger logger = Logger.getLogger("BlockFinderBenchmarks");
+        logger.setLevel(Level.WARNING); // keep refill notices out of the benchmark output
+        return logger;
+    }
+
+    /**
+     * Proxy handler that answers overridden methods, identity-based Object methods, and defaults for everything else.
+     */
+    private record Handler(Class<?> type, Map<String, Function<Object[], Object>> overrides)
+        implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            Object[] safeArgs = args == null ? NO_ARGS : args;
+            Function<Object[], Object> override = overrides.get(method.getName());
+            if (override != null) {
+                return override.apply(safeArgs);
+            }
+
+            switch (method.getName()) {
+                case "hashCode" -> {
+                    if (safeArgs.length == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                }
+                case "equals" -> {
+                    if (safeArgs.length == 1) {
+                        return proxy == safeArgs[0];
+                    }
+                }
+                case "toString" -> {
+                    if (safeArgs.length == 0) {
+                        return "Stub" + type.getSimpleName();
+                    }
+                }
+                default -> {
+                }
+            }
+            return defaultValue(method.getReturnType());
+        }
+    }
+}
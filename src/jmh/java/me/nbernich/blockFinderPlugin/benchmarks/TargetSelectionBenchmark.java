@@ -0,0 +1,36 @@
+package me.nbernich.blockFinderPlugin.benchmarks;
+
+import me.nbernich.blockFinderPlugin.game.BlockManager;
+import me.nbernich.blockFinderPlugin.game.TargetSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures selecting a new round of targets, with and without repeat prevention.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TargetSelectionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean shouldPreventRepeatBlocks;
+
+    private BlockManager blockManager;
+
+    @Setup
+    public void setup() {
+        this.blockManager = Stubs.createArena(Stubs.config(2, shouldPreventRepeatBlocks)).getBlockManager();
+        blockManager.loadBlockTypes(Stubs.blockTypes());
+    }
+
+    @Benchmark
+    public TargetSet selectNewTargets() {
+        blockManager.selectNewTargets();
+        return blockManager.getCurrentTargets();
+    }
+}
@@ -0,0 +1,51 @@
+package me.nbernich.blockFinderPlugin.benchmarks;
+
+import me.nbernich.blockFinderPlugin.game.TeamManager;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the /bfscores and /bfteams listings as the number of teams and members grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TeamMessageBenchmark {
+
+    @Param({"2", "16", "128"})
+    public int teamCount;
+
+    @Param({"10000"})
+    public int memberCount;
+
+    private TeamManager teamManager;
+
+    @Setup
+    public void setup() {
+        this.teamManager = Stubs.createArena(Stubs.config(teamCount, false)).getTeamManager();
+        World world = Stubs.world(() -> Material.AIR);
+        for (int i = 0; i < memberCount; i++) {
+            teamManager.addPlayer(Stubs.player("player" + i, world), Stubs.teamName(i % teamCount));
+        }
+        for (int i = 0; i < teamCount; i++) {
+            teamManager.setScore(Stubs.teamName(i), i * 7 % 31);
+        }
+    }
+
+    @Benchmark
+    public Component createScoresListMessage() {
+        return teamManager.createScoresListMessage();
+    }
+
+    @Benchmark
+    public Component createMemberListMessage() {
+        return teamManager.createMemberListMessage();
+    }
+}
@@ -0,0 +1,290 @@
+package me.nbernich.blockFinderPlugin;
+
+import me.nbernich.blockFinderPlugin.game.Arena;
+import me.nbernich.blockFinderPlugin.game.ArenaManager;
+import me.nbernich.blockFinderPlugin.game.ArenaSettings;
+import me.nbernich.blockFinderPlugin.game.Broadcaster;
+import me.nbernich.blockFinderPlugin.listeners.BlockFindListener;
+import me.nbernich.blockFinderPlugin.listeners.PlayerConnectionListener;
+import me.nbernich.blockFinderPlugin.listeners.ProximityListener;
+import me.nbernich.blockFinderPlugin.persistence.GameJournal;
+import me.nbernich.blockFinderPlugin.persistence.GameState;
+import me.nbernich.blockFinderPlugin.persistence.JournalWriter;
+import me.nbernich.blockFinderPlugin.persistence.RoundHistory;
+import me.nbernich.blockFinderPlugin.proximity.ProximityTracker;
+import me.nbernich.blockFinderPlugin.rarity.RarityIndex;
+import me.nbernich.blockFinderPlugin.stats.FlightEvents;
+import me.nbernich.blockFinderPlugin.stats.PerformanceStats;
+import org.bukkit.Server;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The managers and listeners that make up the game, wired together for the plugin that runs them.
+ * Commands and managers can interact with each other through this instance, if they need to.
+ * Creating the game only builds its parts, so it can be built around any plugin, such as a stub in benchmarks.
+ * Enabling it starts background work, restores every arena from its journal and registers the listeners.
+ */
+public final class BlockFinderGame {
+
+    private final Plugin plugin;
+    private final PerformanceStats performanceStats;
+    private final FlightEvents flightEvents;
+    private final JournalWriter journalWriter;
+    private final RoundHistory roundHistory;
+    private final RarityIndex rarityIndex;
+    private final ArenaManager arenaManager;
+    private final Broadcaster broadcaster;
+    private final BlockFindListener blockFindListener;
+    private final ProximityTracker proximityTracker;
+
+    /**
+     * Create every manager of the game from the configuration, without starting any of them.
+     * @param plugin The plugin the game runs in, used to schedule tasks, register listeners and find its files.
+     * @param config The configuration section containing user-defined game settings.
+     */
+    public BlockFinderGame(Plugin plugin, ConfigurationSection config) {
+        this.plugin = plugin;
+        this.performanceStats = new PerformanceStats();
+        this.flightEvents = new FlightEvents(getLogger(), config);
+        this.journalWriter = config.getBoolean("persistence.enabled", true)
+            ? new JournalWriter(getLogger(), config.getInt("persistence.snapshotIntervalSeconds", 60))
+            : null;
+        this.roundHistory = config.getBoolean("history.enabled", true)
+            ? new RoundHistory(
+                getLogger(), getDataFolder().toPath().resolve("history"), config.getInt("history.maxFileSizeKilobytes", 1024)
+            )
+            : null;
+        this.rarityIndex = config.getBoolean("rarity.enabled", false) ? new RarityIndex(this, config) : null;
+        this.arenaManager = new ArenaManager(this, config);
+        this.broadcaster = new Broadcaster(this, config);
+        this.blockFindListener = new BlockFindListener(this);
+        this.proximityTracker = config.getBoolean("proximity.enabled", true) ? new ProximityTracker(this, config) : null;
+    }
+
+    /**
+     * Start the game's background work, restore the saved state of every arena and register the game's listeners.
+     * The plugin calls this once, when it is enabled.
+     */
+    public void enable() {
+        if (roundHistory != null) {
+            roundHistory.open();
+        }
+        if (rarityIndex != null) {
+            rarityIndex.start();
+        }
+        broadcaster.start();
+
+        arenaManager.loadAllBlockTypes();
+        restoreArenas();
+
+        PlayerConnectionListener playerConnectionListener = new PlayerConnectionListener(this);
+        getServer().getPluginManager().registerEvents(playerConnectionListener, plugin);
+        playerConnectionListener.restoreOnlinePlayers();
+
+        if (proximityTracker != null) {
+            getServer().getPluginManager().registerEvents(new ProximityListener(proximityTracker), plugin);
+            proximityTracker.start();
+        }
+    }
+
+    /**
+     * Save the final game state, stop every running game and stop the game's background work.
+     * The plugin calls this once, when it is disabled.
+     */
+    public void disable() {
+        if (proximityTracker != null) {
+            proximityTracker.stop();
+        }
+        if (rarityIndex != null) {
+            rarityIndex.stop();
+        }
+        if (journalWriter != null) {
+            journalWriter.shutdown(); // write out the final state before it is cleared below
+        }
+        if (roundHistory != null) {
+            roundHistory.close(); // so clearing the targets below is not recorded as stopping the game
+        }
+        for (Arena arena : arenaManager.getArenas()) {
+            arena.getBlockManager().clearTargets();
+            arena.getBlockManager().clearBlockTypes();
+            arena.getTeamManager().stopScoreboardDisplay();
+            arena.getTeamManager().resetTeams();
+        }
+        blockFindListener.stop();
+        broadcaster.stop();
+        flightEvents.unregister();
+    }
+
+    /**
+     * Read the configuration file again and parse the game settings of every arena, without applying them.
+     * Settings missing from the file fall back to the defaults bundled with the plugin, as they do on startup.
+     * This only reads files, so it can run off the main thread. Only the settings of each arena are reloaded:
+     * changes to arenas, persistence, history, rarity, proximity and the other plugin-wide features need a restart.
+     * @return the settings of each arena by name, starting with the default arena
+     * @throws IOException if the configuration file cannot be read
+     * @throws InvalidConfigurationException if the configuration file is not valid YAML
+     */
+    public Map<String, ArenaSettings> loadArenaSettings() throws IOException, InvalidConfigurationException {
+        YamlConfiguration config = new YamlConfiguration();
+        config.load(new File(getDataFolder(), "config.yml"));
+        InputStream defaults = plugin.getResource("config.yml");
+        if (defaults != null) {
+            try (Reader reader = new InputStreamReader(defaults, StandardCharsets.UTF_8)) {
+                config.setDefaults(YamlConfiguration.loadConfiguration(reader));
+            }
+        }
+        return ArenaManager.loadSettings(this, config);
+    }
+
+    /**
+     * Helper to restore the saved game state of every arena, and open their journals to record new changes.
+     * Arenas that were running when the server stopped are started again.
+     */
+    private void restoreArenas() {
+        if (journalWriter == null) {
+            return;
+        }
+
+        for (Arena arena : arenaManager.getArenas()) {
+            GameJournal journal = arena.getJournal();
+            try {
+                GameState state = journal.load();
+                arena.restore(state);
+                journal.open();
+                arena.recordTargetSeed();
+            } catch (IOException e) {
+                getLogger().log(
+                    Level.SEVERE,
+                    String.format("Could not restore the game state of arena '%s'. It will not be saved.", arena.getName()),
+                    e
+                );
+                continue;
+            }
+
+            if (arena.isRunning()) {
+                arena.getTeamManager().startScoreboardDisplay();
+                blockFindListener.start();
+                getLogger().info(String.format("Resumed the game in arena '%s'.", arena.getName()));
+                arena.logTargetSeed();
+            }
+        }
+        journalWriter.start();
+    }
+
+    /**
+     * Get the plugin the game runs in, which owns its scheduled tasks and registered listeners.
+     * @return the plugin the game runs in.
+     */
+    public Plugin getPlugin() {
+        return plugin;
+    }
+
+    /**
+     * Get the server the game runs on.
+     * @return the server the game runs on.
+     */
+    public Server getServer() {
+        return plugin.getServer();
+    }
+
+    /**
+     * Get the logger of the plugin the game runs in.
+     * @return the logger of the plugin the game runs in.
+     */
+    public Logger getLogger() {
+        return plugin.getLogger();
+    }
+
+    /**
+     * Get the folder for the game's files, such as its configuration, journals and round history.
+     * @return the data folder of the plugin the game runs in.
+     */
+    public File getDataFolder() {
+        return plugin.getDataFolder();
+    }
+
+    /**
+     * Get the PerformanceStats for this game, which time the work the game does on server threads.
+     * @return the PerformanceStats for this game.
+     */
+    public PerformanceStats getPerformanceStats() {
+        return performanceStats;
+    }
+
+    /**
+     * Get the FlightEvents for this game, which emit the game's activity to JDK Flight Recorder recordings.
+     * @return the FlightEvents for this game.
+     */
+    public FlightEvents getFlightEvents() {
+        return flightEvents;
+    }
+
+    /**
+     * Get the JournalWriter for this game, which saves the game state of every arena in the background.
+     * @return the JournalWriter for this game, or null if persistence is disabled.
+     */
+    public JournalWriter getJournalWriter() {
+        return journalWriter;
+    }
+
+    /**
+     * Get the RoundHistory for this game, which logs every finished round for analysis.
+     * @return the RoundHistory for this game, or null if the history is disabled.
+     */
+    public RoundHistory getRoundHistory() {
+        return roundHistory;
+    }
+
+    /**
+     * Get the RarityIndex for this game, which tracks how common each block type is in each world.
+     * @return the RarityIndex for this game, or null if rarity filtering is disabled.
+     */
+    public RarityIndex getRarityIndex() {
+        return rarityIndex;
+    }
+
+    /**
+     * Get the ArenaManager for this game, which holds every running game instance.
+     * @return the ArenaManager for this game.
+     */
+    public ArenaManager getArenaManager() {
+        return arenaManager;
+    }
+
+    /**
+     * Get the Broadcaster for this game, which delivers game announcements to players over several ticks.
+     * @return the Broadcaster for this game.
+     */
+    public Broadcaster getBroadcaster() {
+        return broadcaster;
+    }
+
+    /**
+     * Get the BlockFindListener for this game.
+     * @return the BlockFindListener for this game.
+     */
+    public BlockFindListener getBlockFindListener() {
+        return blockFindListener;
+    }
+
+    /**
+     * Get the ProximityTracker for this game, which shows players how close they are to the nearest target.
+     * @return the ProximityTracker for this game, or null if the proximity indicator is disabled.
+     */
+    public ProximityTracker getProximityTracker() {
+        return proximityTracker;
+    }
+}
@@ -1,82 +1,53 @@
 package me.nbernich.blockFinderPlugin;
 
+import io.papermc.paper.command.brigadier.Commands;
+import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents;
 import me.nbernich.blockFinderPlugin.commands.GameCommand;
 import me.nbernich.blockFinderPlugin.commands.ScoresCommand;
 import me.nbernich.blockFinderPlugin.commands.TeamsCommand;
-import me.nbernich.blockFinderPlugin.game.BlockManager;
-import me.nbernich.blockFinderPlugin.game.TeamManager;
-import me.nbernich.blockFinderPlugin.listeners.BlockFindListener;
-import me.nbernich.blockFinderPlugin.tabcompleters.GameTabCompleter;
-import me.nbernich.blockFinderPlugin.tabcompleters.ScoresTabCompleter;
-import me.nbernich.blockFinderPlugin.tabcompleters.TeamsTabCompleter;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 
 /**
  * The plugin for a game about finding blocks.
- * Initializes all commands, listeners, and managers that control the game state.
- * Commands and managers can interact with each other through this plugin instance, if they need to.
+ * Builds the game from the configuration, enables it, and registers its commands.
+ * If persistence is enabled, the game state of every arena is restored from its journal, so a restart resumes the game.
  */
 public final class BlockFinderPlugin extends JavaPlugin {
 
-    private BlockManager blockManager;
-    private TeamManager teamManager;
-    private BlockFindListener blockFindListener;
+    private BlockFinderGame game;
 
     @Override
     public void onEnable() {
         saveDefaultConfig();
-        FileConfiguration config = getConfig();
 
-        this.blockManager = new BlockManager(this, config);
-        this.teamManager = new TeamManager(this, config);
-        this.blockFindListener = new BlockFindListener(this);
+        this.game = new BlockFinderGame(this, getConfig());
+        game.enable();
 
-        blockManager.loadAllBlockTypes();
-
-        getCommand("bfinder").setExecutor(new GameCommand(this));
-        getCommand("bfteams").setExecutor(new TeamsCommand(this));
-        getCommand("bfscores").setExecutor(new ScoresCommand(this));
-
-        getCommand("bfinder").setTabCompleter(new GameTabCompleter(this));
-        getCommand("bfteams").setTabCompleter(new TeamsTabCompleter(this));
-        getCommand("bfscores").setTabCompleter(new ScoresTabCompleter(this));
+        getLifecycleManager().registerEventHandler(LifecycleEvents.COMMANDS, event -> {
+            Commands commands = event.registrar();
+            commands.register(
+                new GameCommand(game).build(),
+                "Start, stop, or display the current targets of the Block Finder minigame."
+            );
+            commands.register(new TeamsCommand(game).build(), "Add or leave Block Finder minigame teams.");
+            commands.register(new ScoresCommand(game).build(), "List or modify team scores for Block Finder.");
+        });
 
         getLogger().info("Block Finder minigame plugin enabled!");
     }
 
     @Override
     public void onDisable() {
-        blockManager.clearTargets();
-        blockManager.clearBlockTypes();
-        teamManager.resetTeams();
-        teamManager.stopScoreboardDisplay();
-        blockFindListener.stop();
+        game.disable();
 
         getLogger().info("Block Finder minigame plugin disabled.");
     }
 
     /**
-     * Get the BlockManager for this plugin.
-     * @return the BlockManager for this plugin.
-     */
-    public BlockManager getBlockManager() {
-        return blockManager;
-    }
-
-    /**
-     * Get the TeamManager for this plugin.
-     * @return the TeamManager for this plugin.
-     */
-    public TeamManager getTeamManager() {
-        return teamManager;
-    }
-
-    /**
-     * Get the BlockFindListener for this plugin.
-     * @return the BlockFindListener for this plugin.
+     * Get the game this plugin runs, which holds every manager that controls the game state.
+     * @return the game this plugin runs.
      */
-    public BlockFindListener getBlockFindListener() {
-        return blockFindListener;
+    public BlockFinderGame getGame() {
+        return game;
     }
 }
@@ -0,0 +1,61 @@
+package me.nbernich.blockFinderPlugin.commands;
+
+import com.mojang.brigadier.arguments.ArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.DynamicCommandExceptionType;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import io.papermc.paper.command.brigadier.MessageComponentSerializer;
+import io.papermc.paper.command.brigadier.argument.CustomArgumentType;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.game.Arena;
+import me.nbernich.blockFinderPlugin.utils.Colors;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A command argument naming an arena, parsed straight into the Arena it names.
+ * Arena names are suggested from a prefix tree that is built once, when the arenas are loaded.
+ */
+public class ArenaArgument implements CustomArgumentType.Converted<Arena, String> {
+
+    private static final DynamicCommandExceptionType ARENA_NOT_FOUND = new DynamicCommandExceptionType(
+        name -> MessageComponentSerializer.message().serialize(
+            Component.text(String.format("Arena '%s' not found. ", name), Colors.ERROR)
+                .append(Component.text("Use ", Colors.DEFAULT))
+                .append(Component.text("/bfinder arenas", Colors.COMMAND))
+                .append(Component.text(" to view arenas.", Colors.DEFAULT))
+        )
+    );
+
+    private final BlockFinderGame game;
+
+    public ArenaArgument(BlockFinderGame game) {
+        this.game = game;
+    }
+
+    @Override
+    public @NotNull Arena convert(@NotNull String name) throws CommandSyntaxException {
+        Arena arena = game.getArenaManager().getArena(name);
+        if (arena == null) {
+            throw ARENA_NOT_FOUND.create(name);
+        }
+        return arena;
+    }
+
+    @Override
+    public @NotNull ArgumentType<String> getNativeType() {
+        return StringArgumentType.string();
+    }
+
+    @Override
+    public <S> @NotNull CompletableFuture<Suggestions> listSuggestions(
+        @NotNull CommandContext<S> context, @NotNull SuggestionsBuilder builder
+    ) {
+        return CommandSupport.suggest(game.getArenaManager().getArenaNameTrie(), builder);
+    }
+}
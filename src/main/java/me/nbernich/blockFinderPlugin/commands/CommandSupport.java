@@ -0,0 +1,68 @@
+package me.nbernich.blockFinderPlugin.commands;
+
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.stats.PerformanceStats;
+import me.nbernich.blockFinderPlugin.utils.NameTrie;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Helpers shared by the command trees: timing handlers, checking permissions, and suggesting names.
+ */
+final class CommandSupport {
+
+    private CommandSupport() {
+    }
+
+    /**
+     * Wrap a command handler so its latency is recorded in the plugin's performance stats.
+     * @param game the game whose stats to record in
+     * @param handler the handler to run
+     * @return a Brigadier command that runs the handler and always succeeds
+     */
+    static Command<CommandSourceStack> timed(
+        BlockFinderGame game, Consumer<CommandContext<CommandSourceStack>> handler
+    ) {
+        return context -> {
+            long startNanos = System.nanoTime();
+            try {
+                handler.accept(context);
+            } finally {
+                game.getPerformanceStats().record(PerformanceStats.Operation.COMMAND, startNanos);
+            }
+            return Command.SINGLE_SUCCESS;
+        };
+    }
+
+    /**
+     * Create a requirement that the command sender has a permission.
+     * @param permission the permission node to check
+     * @return a predicate for Brigadier's requires
+     */
+    static Predicate<CommandSourceStack> permission(String permission) {
+        return source -> source.getSender().hasPermission(permission);
+    }
+
+    /**
+     * Suggest the names in a trie that start with what has been typed so far, quoting names that need it.
+     * @param names the names to suggest from
+     * @param builder the builder holding the typed input
+     * @return the suggestions
+     */
+    static CompletableFuture<Suggestions> suggest(NameTrie names, SuggestionsBuilder builder) {
+        String remaining = builder.getRemaining();
+        String prefix = remaining.startsWith("\"") ? remaining.substring(1) : remaining;
+        for (String name : names.withPrefix(prefix)) {
+            builder.suggest(StringArgumentType.escapeIfRequired(name));
+        }
+        return builder.buildFuture();
+    }
+}
@@ -1,54 +1,123 @@
 package me.nbernich.blockFinderPlugin.commands;
 
-import me.nbernich.blockFinderPlugin.BlockFinderPlugin;
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.Commands;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.game.Arena;
+import me.nbernich.blockFinderPlugin.game.ArenaSettings;
+import me.nbernich.blockFinderPlugin.game.Round;
+import me.nbernich.blockFinderPlugin.game.Team;
+import me.nbernich.blockFinderPlugin.persistence.RoundHistory;
 import me.nbernich.blockFinderPlugin.utils.Colors;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
 import net.kyori.adventure.text.Component;
-import org.bukkit.command.Command;
-import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
-import org.jetbrains.annotations.NotNull;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import static me.nbernich.blockFinderPlugin.commands.CommandSupport.permission;
+import static me.nbernich.blockFinderPlugin.commands.CommandSupport.timed;
 
 /**
- * Main game command to view targets, start or stop the game, and skip rounds.
+ * Main game command to view targets, start or stop the game, skip rounds, export the round history, view
+ * performance stats, and reload the configuration.
+ * Commands act on the sender's arena, unless an arena name is given as the last argument.
+ * The command tree is built once and registered with Brigadier, which parses arguments and checks permissions.
  */
-public class GameCommand implements CommandExecutor {
+public class GameCommand {
 
-    private static final Component USAGE = Component.text("Usage: ", Colors.DEFAULT)
-        .append(Component.text("/bfinder", Colors.COMMAND))
-        .append(Component.text(" to view current target blocks or ", Colors.DEFAULT))
-        .append(Component.text("/bfinder <start | stop | skip>", Colors.COMMAND))
-        .append(Component.text(" to control the game.", Colors.DEFAULT));
+    public static final String START_PERMISSION = "blockfinder.command.start";
+    public static final String STOP_PERMISSION = "blockfinder.command.stop";
+    public static final String SKIP_PERMISSION = "blockfinder.command.skip";
+    public static final String EXPORT_PERMISSION = "blockfinder.command.export";
+    public static final String PERF_PERMISSION = "blockfinder.command.perf";
+    public static final String RELOAD_PERMISSION = "blockfinder.command.reload";
+    public static final String SEED_PERMISSION = "blockfinder.command.seed";
 
-    private final BlockFinderPlugin plugin;
+    private final BlockFinderGame game;
 
-    public GameCommand(BlockFinderPlugin plugin) {
-        this.plugin = plugin;
+    public GameCommand(BlockFinderGame game) {
+        this.game = game;
     }
 
-    @Override
-    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
-        if (args.length == 0) {
-            handleTargetInfo(sender);
-            return true;
-        }
+    /**
+     * Build the tree for the /bfinder command.
+     * @return the root node of the command
+     */
+    public LiteralCommandNode<CommandSourceStack> build() {
+        return Commands.literal("bfinder")
+            .executes(timed(game, context -> {
+                CommandSender sender = context.getSource().getSender();
+                handleTargetInfo(sender, game.getArenaManager().getArena(sender));
+            }))
+            .then(Commands.literal("help")
+                .executes(timed(game, context -> handleHelp(context.getSource().getSender()))))
+            .then(Commands.literal("arenas")
+                .executes(timed(game, context -> handleArenaList(context.getSource().getSender()))))
+            .then(arenaCommand("targets", this::handleTargetInfo))
+            .then(arenaCommand("start", this::handleStart).requires(permission(START_PERMISSION)))
+            .then(arenaCommand("stop", this::handleStop).requires(permission(STOP_PERMISSION)))
+            .then(arenaCommand("skip", this::handleSkip).requires(permission(SKIP_PERMISSION)))
+            .then(arenaCommand("seed", this::handleSeed).requires(permission(SEED_PERMISSION)))
+            .then(Commands.literal("export")
+                .requires(permission(EXPORT_PERMISSION))
+                .executes(exportCommand(RoundHistory.Format.CSV))
+                .then(Commands.literal("csv").executes(exportCommand(RoundHistory.Format.CSV)))
+                .then(Commands.literal("json").executes(exportCommand(RoundHistory.Format.JSON))))
+            .then(Commands.literal("perf")
+                .requires(permission(PERF_PERMISSION))
+                .executes(timed(game, context -> handlePerf(context.getSource().getSender())))
+                .then(Commands.literal("reset")
+                    .executes(timed(game, context -> handlePerfReset(context.getSource().getSender())))))
+            .then(Commands.literal("reload")
+                .requires(permission(RELOAD_PERMISSION))
+                .executes(timed(game, context -> handleReload(context.getSource().getSender()))))
+            .build();
+    }
 
-        switch (args[0]) {
-            case "targets" -> handleTargetInfo(sender);
-            case "start" -> handleStart(sender);
-            case "stop" -> handleStop(sender);
-            case "skip" -> handleSkip(sender);
-            case "help" -> handleHelp(sender);
-            default -> sender.sendMessage(USAGE);
-        }
-        return true;
+    /**
+     * Helper to build a subcommand that acts on the sender's arena, or on the arena named by an optional argument.
+     * @param name the name of the subcommand
+     * @param handler the handler to run with the sender and the arena
+     * @return the builder for the subcommand, so requirements can be added
+     */
+    private LiteralArgumentBuilder<CommandSourceStack> arenaCommand(
+        String name, BiConsumer<CommandSender, Arena> handler
+    ) {
+        return Commands.literal(name)
+            .executes(timed(game, context -> {
+                CommandSender sender = context.getSource().getSender();
+                handler.accept(sender, game.getArenaManager().getArena(sender));
+            }))
+            .then(Commands.argument("arena", new ArenaArgument(game))
+                .executes(timed(game, context -> handler.accept(
+                    context.getSource().getSender(), context.getArgument("arena", Arena.class)
+                ))));
+    }
+
+    /**
+     * Helper to build the handler for exporting the round history in a format.
+     * @param format the format to export to
+     * @return a command that exports in the format
+     */
+    private Command<CommandSourceStack> exportCommand(RoundHistory.Format format) {
+        return timed(game, context -> handleExport(context.getSource().getSender(), format));
     }
 
     /**
-     * Handle a request to list target block types.
+     * Handle a request to list target block types. In a race, players on a team see their own team's targets.
      * @param sender The command sender, typically a player or console.
+     * @param arena The arena whose targets to list.
      */
-    private void handleTargetInfo(CommandSender sender) {
-        if (!plugin.getBlockManager().hasCurrentTargets()) {
+    private void handleTargetInfo(CommandSender sender, Arena arena) {
+        if (!arena.isRunning()) {
             sender.sendMessage(
                 Component.text("No active targets.", Colors.WARNING)
                     .appendNewline()
@@ -59,37 +128,67 @@ public class GameCommand implements CommandExecutor {
             return;
         }
 
+        Team team = sender instanceof Player player ? arena.getTeamManager().getPlayerTeam(player) : null;
+        Round teamRound = team == null ? null : arena.getBlockManager().getTeamRound(team);
+        if (teamRound != null) {
+            String teamHeader = String.format("Your team's target blocks (round %d):", teamRound.getEpoch());
+            sender.sendMessage(
+                Component.text(teamHeader, Colors.HEADER)
+                    .appendNewline()
+                    .append(teamRound.getTargets().getListMessage())
+            );
+            return;
+        }
+
+        String header = arena.getBlockManager().isRacing()
+            ? "First target blocks of the race:"
+            : "Current target blocks:";
         sender.sendMessage(
-            Component.text("Current target blocks:", Colors.HEADER)
+            Component.text(header, Colors.HEADER)
                 .appendNewline()
-                .append(plugin.getBlockManager().createTargetListMessage())
+                .append(arena.getBlockManager().createTargetListMessage())
         );
     }
 
     /**
-     * Handle a request to start the game.
+     * Handle a request to list all arenas and whether a game is running in each.
      * @param sender The command sender, typically a player or console.
      */
-    private void handleStart(CommandSender sender) {
-        if (!sender.isOp()) {
-            sender.sendMessage(
-                Component.text("You do not have permission to start the game.", Colors.ERROR)
-            );
-            return;
+    private void handleArenaList(CommandSender sender) {
+        Arena senderArena = game.getArenaManager().getArena(sender);
+        Component message = Component.text("Arenas:", Colors.HEADER);
+        for (Arena arena : game.getArenaManager().getArenas()) {
+            message = message.appendNewline()
+                .append(Component.text("  * ", Colors.DEFAULT))
+                .append(Component.text(arena.getName(), Colors.HEADER))
+                .append(Component.text(arena.isRunning() ? " (running)" : " (stopped)", Colors.DEFAULT));
+            if (arena == senderArena) {
+                message = message.append(Component.text(" - you are here", Colors.SUCCESS));
+            }
         }
+        sender.sendMessage(message);
+    }
 
-        if (plugin.getBlockManager().hasCurrentTargets()) {
+    /**
+     * Handle a request to start the game.
+     * @param sender The command sender, typically a player or console.
+     * @param arena The arena to start the game in.
+     */
+    private void handleStart(CommandSender sender, Arena arena) {
+        if (arena.isRunning()) {
             sender.sendMessage(
                 Component.text("The game is already running.", Colors.ERROR)
             );
             return;
         }
 
-        plugin.getTeamManager().startScoreboardDisplay();
-        plugin.getBlockFindListener().start();
-        plugin.getBlockManager().selectNewTargets();
+        arena.getTeamManager().startScoreboardDisplay();
+        game.getBlockFindListener().start();
+        game.getArenaManager().loadBlockTypes(arena); // rarity data that arrived since the last game
+        arena.getBlockManager().selectNewTargets();
+        arena.logTargetSeed();
 
-        plugin.getServer().sendMessage(
+        arena.broadcast(
             Component.text("The Block Finder game has started!", Colors.SUCCESS)
                 .appendNewline()
                 .append(Component.text(
@@ -104,75 +203,169 @@ public class GameCommand implements CommandExecutor {
                 .appendNewline()
                 .append(Component.text("First target blocks:", Colors.HEADER))
                 .appendNewline()
-                .append(plugin.getBlockManager().createTargetListMessage())
+                .append(arena.getBlockManager().createTargetListMessage())
         );
     }
 
     /**
-     * Handle a request to stop the game.
+     * Handle a request to show the seed an arena draws targets with. The seed is only shown to operators, since
+     * players who know it could work out the upcoming targets.
      * @param sender The command sender, typically a player or console.
+     * @param arena The arena whose seed to show.
      */
-    private void handleStop(CommandSender sender) {
-        if (!sender.isOp()) {
-            sender.sendMessage(
-                Component.text("You do not have permission to stop the game.", Colors.ERROR)
-            );
-            return;
-        }
+    private void handleSeed(CommandSender sender, Arena arena) {
+        ArenaSettings settings = arena.getSettings();
+        String source = settings.hasRandomTargetSeed() ? " (chosen at random)" : "";
+        sender.sendMessage(
+            Component.text(String.format("Target seed of arena '%s': ", arena.getName()), Colors.HEADER)
+                .append(Component.text(settings.getTargetSeed(), Colors.DEFAULT))
+                .append(Component.text(source, Colors.DEFAULT))
+        );
+    }
 
-        if (!plugin.getBlockManager().hasCurrentTargets()) {
+    /**
+     * Handle a request to stop the game.
+     * @param sender The command sender, typically a player or console.
+     * @param arena The arena to stop the game in.
+     */
+    private void handleStop(CommandSender sender, Arena arena) {
+        if (!arena.isRunning()) {
             sender.sendMessage(
                 Component.text("The game is not currently running.", Colors.ERROR)
             );
             return;
         }
 
-        plugin.getTeamManager().stopScoreboardDisplay();
-        plugin.getBlockFindListener().stop();
-        plugin.getBlockManager().clearTargets();
+        arena.getTeamManager().stopScoreboardDisplay();
+        arena.getBlockManager().clearTargets();
+        if (!game.getArenaManager().hasRunningArenas()) {
+            game.getBlockFindListener().stop();
+        }
 
-        plugin.getServer().sendMessage(
+        arena.broadcast(
             Component.text("The Block Finder game has been stopped.", Colors.SUCCESS)
                 .appendNewline()
                 .appendNewline()
                 .append(Component.text("Final scores:", Colors.HEADER))
                 .appendNewline()
-                .append(plugin.getTeamManager().createScoresListMessage())
+                .append(arena.getTeamManager().createScoresListMessage())
         );
-        plugin.getTeamManager().resetScores();
+        arena.getTeamManager().resetScores();
     }
 
     /**
      * Handle a request to skip the current round, selecting new target block types instead.
      * @param sender The command sender, typically a player or console.
+     * @param arena The arena whose round to skip.
      */
-    private void handleSkip(CommandSender sender) {
-        if (!sender.isOp()) {
+    private void handleSkip(CommandSender sender, Arena arena) {
+        if (!arena.isRunning()) {
             sender.sendMessage(
-                Component.text("You do not have permission to skip the round.", Colors.ERROR)
+                Component.text("The game is not currently running.", Colors.ERROR)
             );
             return;
         }
 
-        if (!plugin.getBlockManager().hasCurrentTargets()) {
-            sender.sendMessage(
-                Component.text("The game is not currently running.", Colors.ERROR)
+        arena.getBlockManager().selectNewTargets();
+
+        if (arena.getBlockManager().isRacing()) {
+            arena.broadcast(
+                Component.text("Every team's current round of Block Finder has been skipped.", Colors.SUCCESS)
+                    .appendNewline()
+                    .append(Component.text("Use ", Colors.DEFAULT))
+                    .append(Component.text("/bfinder", Colors.COMMAND))
+                    .append(Component.text(" to see your team's new target blocks.", Colors.DEFAULT))
             );
             return;
         }
 
-        plugin.getBlockManager().selectNewTargets();
-
-        plugin.getServer().sendMessage(
+        arena.broadcast(
             Component.text("The current round of Block Finder has been skipped.", Colors.SUCCESS)
                 .appendNewline()
                 .appendNewline()
                 .append(Component.text("New target blocks:", Colors.HEADER))
                 .appendNewline()
-                .append(plugin.getBlockManager().createTargetListMessage())
+                .append(arena.getBlockManager().createTargetListMessage())
         );
     }
 
+    /**
+     * Handle a request to export the round history of every arena to a CSV or JSON file.
+     * The export runs in the background, and the sender is notified when it finishes.
+     * @param sender The command sender, typically a player or console.
+     * @param format The format to export to.
+     */
+    private void handleExport(CommandSender sender, RoundHistory.Format format) {
+        RoundHistory history = game.getRoundHistory();
+        if (history == null) {
+            sender.sendMessage(
+                Component.text("The round history is disabled.", Colors.ERROR)
+            );
+            return;
+        }
+
+        sender.sendMessage(Component.text("Exporting the round history...", Colors.DEFAULT));
+        history.export(format).whenComplete((export, error) -> Scheduling.runForSender(game.getPlugin(), sender, () -> {
+            if (error != null) {
+                game.getLogger().warning("Could not export the round history: " + error.getMessage());
+                sender.sendMessage(
+                    Component.text("Could not export the round history. See the server log for details.", Colors.ERROR)
+                );
+                return;
+            }
+            sender.sendMessage(
+                Component.text(String.format("Exported %d rounds to ", export.roundCount()), Colors.SUCCESS)
+                    .append(Component.text(export.file().toString(), Colors.HEADER))
+            );
+        }));
+    }
+
+    /**
+     * Handle a request to view the plugin's performance stats.
+     * @param sender The command sender, typically a player or console.
+     */
+    private void handlePerf(CommandSender sender) {
+        sender.sendMessage(game.getPerformanceStats().createReportMessage());
+    }
+
+    /**
+     * Handle a request to reset the plugin's performance stats.
+     * @param sender The command sender, typically a player or console.
+     */
+    private void handlePerfReset(CommandSender sender) {
+        game.getPerformanceStats().reset();
+        sender.sendMessage(Component.text("Performance stats have been reset.", Colors.SUCCESS));
+    }
+
+    /**
+     * Handle a request to reload the configuration. The file is read and validated on a background thread, and the
+     * new settings replace the old ones in every arena at once, on the global thread between ticks. Running games
+     * keep their targets, and their scores and memberships for teams that still exist.
+     * @param sender The command sender, typically a player or console.
+     */
+    private void handleReload(CommandSender sender) {
+        sender.sendMessage(Component.text("Reloading the configuration...", Colors.DEFAULT));
+        Scheduling.runAsync(game.getPlugin(), () -> {
+            Map<String, ArenaSettings> settings;
+            try {
+                settings = game.loadArenaSettings();
+            } catch (IOException | InvalidConfigurationException e) {
+                game.getLogger().warning("Could not reload the configuration: " + e.getMessage());
+                Scheduling.runForSender(game.getPlugin(), sender, () -> sender.sendMessage(
+                    Component.text("Could not reload the configuration. See the server log for details.", Colors.ERROR)
+                ));
+                return;
+            }
+
+            Scheduling.runGlobal(game.getPlugin(), () -> {
+                game.getArenaManager().applySettings(settings);
+                Scheduling.runForSender(game.getPlugin(), sender, () -> sender.sendMessage(
+                    Component.text("Reloaded the configuration.", Colors.SUCCESS)
+                ));
+            });
+        });
+    }
+
     /**
      * Handle a request for help, displaying available commands and their usage.
      * @param sender The command sender, typically a player or console.
@@ -186,6 +379,10 @@ public class GameCommand implements CommandExecutor {
                 .append(Component.text( " to view current targets", Colors.DEFAULT))
                 .appendNewline()
                 .append(Component.text("  * ", Colors.DEFAULT))
+                .append(Component.text("/bfinder arenas", Colors.COMMAND))
+                .append(Component.text(" to list arenas", Colors.DEFAULT))
+                .appendNewline()
+                .append(Component.text("  * ", Colors.DEFAULT))
                 .append(Component.text("/bfteams", Colors.COMMAND))
                 .append(Component.text(" to list teams", Colors.DEFAULT))
                 .appendNewline()
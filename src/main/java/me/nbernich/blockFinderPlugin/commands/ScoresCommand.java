@@ -1,77 +1,76 @@
 package me.nbernich.blockFinderPlugin.commands;
 
-import me.nbernich.blockFinderPlugin.BlockFinderPlugin;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.Commands;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.game.TeamManager;
 import me.nbernich.blockFinderPlugin.utils.Colors;
 import net.kyori.adventure.text.Component;
-import org.bukkit.command.Command;
-import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
-import org.jetbrains.annotations.NotNull;
+import org.bukkit.entity.Player;
+
+import static me.nbernich.blockFinderPlugin.commands.CommandSupport.permission;
+import static me.nbernich.blockFinderPlugin.commands.CommandSupport.timed;
 
 /**
- * Command to view and set team scores.
+ * Command to view and set team scores in the sender's arena.
  */
-public class ScoresCommand implements CommandExecutor {
+public class ScoresCommand {
 
-    private static final Component USAGE = Component.text("Usage: ", Colors.DEFAULT)
-        .append(Component.text("/bfscores", Colors.COMMAND))
-        .append(Component.text(" to view the scoreboard or ", Colors.DEFAULT))
-        .append(Component.text("/bfscores set <team name> <score>", Colors.COMMAND))
-        .append(Component.text(" to change a team's score.", Colors.DEFAULT));
+    public static final String SET_PERMISSION = "blockfinder.command.scores.set";
 
-    private final BlockFinderPlugin plugin;
+    private final BlockFinderGame game;
 
-    public ScoresCommand(BlockFinderPlugin plugin) {
-        this.plugin = plugin;
+    public ScoresCommand(BlockFinderGame game) {
+        this.game = game;
     }
 
-    @Override
-    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
-        if (args.length == 0 || (args.length == 1 && args[0].equals("list"))) {
-            sender.sendMessage(
-                Component.text("Current scores:", Colors.HEADER)
-                    .appendNewline()
-                    .append(plugin.getTeamManager().createScoresListMessage())
-            );
-            return true;
-        }
-
-        if (!args[0].equals("set")) {
-            sender.sendMessage(USAGE);
-            return true;
-        }
-
-        if (!sender.isOp()) {
-            sender.sendMessage(
-                Component.text("You do not have permission to set team scores.", Colors.ERROR)
-            );
-            return true;
-        }
-
-        if (args.length != 3) {
-            sender.sendMessage(USAGE);
-            return true;
-        }
-
-        String teamName = args[1];
-        int newScore;
-        try {
-            newScore = Integer.parseInt(args[2]);
-        } catch (NumberFormatException e) {
-            sender.sendMessage(
-                Component.text("Invalid score. Please provide a valid integer.", Colors.ERROR)
-            );
-            return true;
-        }
+    /**
+     * Build the tree for the /bfscores command. Scores are parsed by Brigadier, which rejects negative values.
+     * @return the root node of the command
+     */
+    public LiteralCommandNode<CommandSourceStack> build() {
+        return Commands.literal("bfscores")
+            .executes(timed(game, context -> handleList(context.getSource().getSender())))
+            .then(Commands.literal("list")
+                .executes(timed(game, context -> handleList(context.getSource().getSender()))))
+            .then(Commands.literal("set")
+                .requires(permission(SET_PERMISSION))
+                .then(Commands.argument("team", new TeamNameArgument(game))
+                    .then(Commands.argument("score", IntegerArgumentType.integer(0))
+                        .executes(timed(game, context -> handleSet(
+                            context.getSource().getSender(),
+                            context.getArgument("team", String.class),
+                            IntegerArgumentType.getInteger(context, "score")
+                        ))))))
+            .build();
+    }
 
-        if (newScore < 0) {
-            sender.sendMessage(
-                Component.text("Invalid score. Score cannot be negative.", Colors.ERROR)
-            );
-            return true;
-        }
+    /**
+     * Handle a request to list the scores of the leading teams, and the rank of the sender's own team.
+     * @param sender the command sender, typically a player or console.
+     */
+    private void handleList(CommandSender sender) {
+        TeamManager teamManager = game.getArenaManager().getArena(sender).getTeamManager();
+        Player viewer = sender instanceof Player player ? player : null;
+        sender.sendMessage(
+            Component.text("Current scores:", Colors.HEADER)
+                .appendNewline()
+                .append(teamManager.createScoresListMessage(viewer))
+        );
+    }
 
-        boolean status = plugin.getTeamManager().setScore(teamName, newScore);
+    /**
+     * Handle a request to set the score of a team.
+     * @param sender the command sender, typically a player or console.
+     * @param teamName the name of the team whose score to set.
+     * @param newScore the new score, which is at least 0.
+     */
+    private void handleSet(CommandSender sender, String teamName, int newScore) {
+        TeamManager teamManager = game.getArenaManager().getArena(sender).getTeamManager();
+        boolean status = teamManager.setScore(teamName, newScore);
         if (!status) {
             sender.sendMessage(
                 Component.text("Team not found.", Colors.ERROR)
@@ -80,11 +79,9 @@ public class ScoresCommand implements CommandExecutor {
                     .append(Component.text("/bfteams", Colors.COMMAND))
                     .append(Component.text(" to view teams.", Colors.DEFAULT))
             );
-            return true;
+            return;
         }
 
         sender.sendMessage(Component.text("Set score successfully.", Colors.SUCCESS));
-        return true;
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package me.nbernich.blockFinderPlugin.commands;
+
+import com.mojang.brigadier.arguments.ArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.argument.CustomArgumentType;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A command argument naming a team in the sender's arena.
+ * Which teams exist depends on the sender's arena, which is only known once the command runs, so the name is
+ * looked up by the command itself. Suggestions come from the prefix tree of the arena's team names.
+ */
+public class TeamNameArgument implements CustomArgumentType.Converted<String, String> {
+
+    private final BlockFinderGame game;
+
+    public TeamNameArgument(BlockFinderGame game) {
+        this.game = game;
+    }
+
+    @Override
+    public @NotNull String convert(@NotNull String name) {
+        return name;
+    }
+
+    @Override
+    public @NotNull ArgumentType<String> getNativeType() {
+        return StringArgumentType.string();
+    }
+
+    @Override
+    public <S> @NotNull CompletableFuture<Suggestions> listSuggestions(
+        @NotNull CommandContext<S> context, @NotNull SuggestionsBuilder builder
+    ) {
+        if (!(context.getSource() instanceof CommandSourceStack source)) {
+            return builder.buildFuture();
+        }
+        return CommandSupport.suggest(
+            game.getArenaManager().getArena(source.getSender()).getTeamManager().getTeamNameTrie(), builder
+        );
+    }
+}
@@ -1,62 +1,57 @@
 package me.nbernich.blockFinderPlugin.commands;
 
-import me.nbernich.blockFinderPlugin.BlockFinderPlugin;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.Commands;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
 import me.nbernich.blockFinderPlugin.game.Team;
+import me.nbernich.blockFinderPlugin.game.TeamManager;
 import me.nbernich.blockFinderPlugin.utils.Colors;
 import net.kyori.adventure.text.Component;
-import org.bukkit.command.Command;
-import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
-import org.jetbrains.annotations.NotNull;
+
+import static me.nbernich.blockFinderPlugin.commands.CommandSupport.timed;
 
 /**
- * Command to view, join, or leave teams.
+ * Command to view, join, or leave teams in the sender's arena.
  */
-public class TeamsCommand implements CommandExecutor {
-
-    private static final Component USAGE = Component.text("Usage: ", Colors.DEFAULT)
-        .append(Component.text("/bfteams", Colors.COMMAND))
-        .append(Component.text(" to view teams or ", Colors.DEFAULT))
-        .append(Component.text("/bfteams <join | leave> <team name>", Colors.COMMAND))
-        .append(Component.text(" to join or leave a team.", Colors.DEFAULT));
+public class TeamsCommand {
 
-    private final BlockFinderPlugin plugin;
+    private final BlockFinderGame game;
 
-    public TeamsCommand(BlockFinderPlugin plugin) {
-        this.plugin = plugin;
+    public TeamsCommand(BlockFinderGame game) {
+        this.game = game;
     }
 
-    @Override
-    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
-        if (args.length == 0 || (args.length == 1 && args[0].equals("list"))) {
-            handleList(sender);
-            return true;
-        }
-
-        if (args.length == 1 && args[0].equals("leave")) {
-            handleLeave(sender);
-            return true;
-        }
-
-        if (args.length == 2 && args[0].equals("join")) {
-            handleJoin(sender, args[1]);
-            return true;
-        }
-
-        sender.sendMessage(USAGE);
-        return true;
+    /**
+     * Build the tree for the /bfteams command.
+     * @return the root node of the command
+     */
+    public LiteralCommandNode<CommandSourceStack> build() {
+        return Commands.literal("bfteams")
+            .executes(timed(game, context -> handleList(context.getSource().getSender())))
+            .then(Commands.literal("list")
+                .executes(timed(game, context -> handleList(context.getSource().getSender()))))
+            .then(Commands.literal("leave")
+                .executes(timed(game, context -> handleLeave(context.getSource().getSender()))))
+            .then(Commands.literal("join")
+                .then(Commands.argument("team", new TeamNameArgument(game))
+                    .executes(timed(game, context -> handleJoin(
+                        context.getSource().getSender(), context.getArgument("team", String.class)
+                    )))))
+            .build();
     }
 
     /**
-     * Handle a request to list all teams and their memebers.
+     * Handle a request to list all teams and their members.
      * @param sender the command sender, typically a player or console.
      */
     private void handleList(CommandSender sender) {
         sender.sendMessage(
             Component.text("Teams:", Colors.HEADER)
                 .appendNewline()
-                .append(plugin.getTeamManager().createMemberListMessage())
+                .append(game.getArenaManager().getArena(sender).getTeamManager().createMemberListMessage())
         );
     }
 
@@ -71,7 +66,8 @@ public class TeamsCommand implements CommandExecutor {
             return;
         }
 
-        boolean status = plugin.getTeamManager().addPlayer(player, teamName);
+        TeamManager teamManager = game.getArenaManager().getArena(player).getTeamManager();
+        boolean status = teamManager.addPlayer(player, teamName);
         if (!status) {
             player.sendMessage(
                 Component.text("Team not found.", Colors.ERROR)
@@ -83,7 +79,7 @@ public class TeamsCommand implements CommandExecutor {
             return;
         }
 
-        Team joinedTeam = plugin.getTeamManager().getPlayerTeam(player);
+        Team joinedTeam = teamManager.getPlayerTeam(player);
         player.sendMessage(
             Component.text("You have joined team ", Colors.SUCCESS)
                 .append(joinedTeam.getDisplayName())
@@ -103,7 +99,7 @@ public class TeamsCommand implements CommandExecutor {
             return;
         }
 
-        boolean status = plugin.getTeamManager().removePlayer(player);
+        boolean status = game.getArenaManager().getArena(player).getTeamManager().removePlayer(player);
         if (!status) {
             player.sendMessage(
                 Component.text("You are not a member of any team.", Colors.ERROR)
@@ -0,0 +1,86 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A table for sampling indexes in proportion to their weights in constant time, using Vose's alias method.
+ * Building the table takes linear time. Each sample then costs one random index and one random comparison:
+ * every column holds its own index with some probability, and an alias index otherwise.
+ */
+final class AliasTable {
+
+    private final double[] probabilities;
+    private final int[] aliases;
+
+    /**
+     * Build a table for the given weights.
+     * @param weights the weight of each index, all positive
+     * @param count the number of weights to use, starting from the first
+     */
+    AliasTable(double[] weights, int count) {
+        this.probabilities = new double[count];
+        this.aliases = new int[count];
+        if (count == 0) {
+            return;
+        }
+
+        double totalWeight = 0;
+        for (int i = 0; i < count; i++) {
+            totalWeight += weights[i];
+        }
+
+        // scale weights so the average column holds exactly 1, then pair each small column with a large one
+        double[] scaled = new double[count];
+        int[] small = new int[count];
+        int[] large = new int[count];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < count; i++) {
+            scaled[i] = weights[i] * count / totalWeight;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // whatever is left is 1 up to rounding error
+        while (largeCount > 0) {
+            probabilities[large[--largeCount]] = 1.0;
+        }
+        while (smallCount > 0) {
+            probabilities[small[--smallCount]] = 1.0;
+        }
+    }
+
+    /**
+     * Get the number of indexes in the table.
+     * @return the number of indexes
+     */
+    int size() {
+        return probabilities.length;
+    }
+
+    /**
+     * Sample an index in proportion to its weight.
+     * @param rng the random source to sample with
+     * @return the sampled index
+     */
+    int sample(RandomGenerator rng) {
+        int column = rng.nextInt(probabilities.length);
+        return rng.nextDouble() < probabilities[column] ? column : aliases[column];
+    }
+}
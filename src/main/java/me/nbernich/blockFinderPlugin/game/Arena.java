@@ -0,0 +1,230 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.persistence.GameJournal;
+import me.nbernich.blockFinderPlugin.persistence.GameState;
+import me.nbernich.blockFinderPlugin.persistence.JournalEntry;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A single, independent instance of the Block Finder game.
+ * Each arena has its own targets, teams, scores, and scoreboard, and is played in the worlds assigned to it.
+ * The arena's settings, teams, memberships and race rounds are held in one immutable ArenaState, which is replaced
+ * with a single volatile write, so readers on region threads never see part of a change.
+ */
+public class Arena {
+
+    private final BlockFinderGame game;
+    private final ArenaManager arenaManager;
+    private final String name;
+    private final GameJournal journal;
+    private volatile ArenaState state;
+    private final TeamManager teamManager;
+    private final BlockManager blockManager;
+
+    /**
+     * Initialize an arena with its own managers.
+     * @param game The game this arena belongs to.
+     * @param arenaManager The manager that routes worlds to this arena.
+     * @param name The unique name of the arena.
+     * @param config The game settings for this arena.
+     * @param journal The journal to record this arena's game state in.
+     */
+    public Arena(
+        BlockFinderGame game, ArenaManager arenaManager, String name, ConfigurationSection config,
+        GameJournal journal
+    ) {
+        this.game = game;
+        this.arenaManager = arenaManager;
+        this.name = name;
+        this.journal = journal;
+        this.state = ArenaState.create(new ArenaSettings(game, config));
+        this.teamManager = new TeamManager(game, this, config, journal);
+        this.blockManager = new BlockManager(game, this);
+    }
+
+    /**
+     * Replace the game settings of this arena, such as after the configuration is reloaded, along with the block
+     * types that are candidates for its targets. The settings, teams, memberships and race rounds are replaced at
+     * once, and the next round is selected from the new candidates. Scores, memberships and race rounds are kept
+     * for teams that still exist. If the new settings have no configured seed, the arena keeps drawing targets with
+     * its current seed, so a reload never switches a match to another sequence of targets.
+     * This should be called on the global thread.
+     * @param settings the new settings of the arena
+     * @param candidates the block types that may be selected as targets, without duplicates
+     * @param weightMultipliers a multiplier for each block type by Material ordinal, or null for none
+     */
+    public void applySettings(ArenaSettings settings, Collection<Material> candidates, double[] weightMultipliers) {
+        long oldSeed = getSettings().getTargetSeed();
+        ArenaSettings seededSettings = settings.hasRandomTargetSeed() ? settings.withTargetSeed(oldSeed) : settings;
+        ArenaState oldState = blockManager.applySettings(seededSettings, candidates, weightMultipliers);
+        teamManager.handleSettingsApplied(oldState, state);
+        if (seededSettings.getTargetSeed() != oldSeed) {
+            recordTargetSeed();
+        }
+    }
+
+    /**
+     * Get the game settings currently in use.
+     * @return the settings of the arena
+     */
+    public ArenaSettings getSettings() {
+        return state.getSettings();
+    }
+
+    /**
+     * Log the seed this arena draws targets with, so a game can be replayed with it even if the seed was random.
+     * This should be called whenever a game starts or the settings are replaced.
+     */
+    public void logTargetSeed() {
+        ArenaSettings settings = state.getSettings();
+        game.getLogger().info(String.format(
+            "Arena '%s' draws targets with %s seed %d.",
+            name, settings.hasRandomTargetSeed() ? "the random" : "the configured", settings.getTargetSeed()
+        ));
+    }
+
+    /**
+     * Record the seed this arena draws targets with in its journal, so a random seed is used again after a restart.
+     * This should be called once the journal is open, and whenever the seed changes.
+     */
+    public void recordTargetSeed() {
+        journal.record(new JournalEntry.Seed(state.getSettings().getTargetSeed()));
+    }
+
+    /**
+     * Get the current state of the arena. The state is immutable, so callers should read it once and use it for
+     * every lookup that must agree, such as a player's team index and their team's round.
+     * May be called from any thread.
+     * @return the current state
+     */
+    ArenaState getState() {
+        return state;
+    }
+
+    /**
+     * Replace the state of the arena with a changed copy, and publish it with a single volatile write.
+     * Changes are made one at a time. They must not call back into the arena, since they run under its lock.
+     * @param change the change to make, which is given the current state and returns the new one
+     * @return the state before the change
+     */
+    synchronized ArenaState updateState(UnaryOperator<ArenaState> change) {
+        ArenaState oldState = state;
+        this.state = change.apply(oldState);
+        return oldState;
+    }
+
+    /**
+     * Run an action on the current state under the lock that changes to the state are made under, so the state is
+     * not replaced until the action returns. This is for changes made in place, such as adding to a team's score,
+     * which would otherwise be lost if a reload copied the scores into a new state at the same time.
+     * The action must not call back into the arena.
+     * @param action the action to run, which is given the current state
+     * @return the result of the action
+     */
+    synchronized <T> T withLockedState(Function<ArenaState, T> action) {
+        return action.apply(state);
+    }
+
+    /**
+     * Get the name of the arena.
+     * @return the name of the arena
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the BlockManager for this arena.
+     * @return the BlockManager for this arena
+     */
+    public BlockManager getBlockManager() {
+        return blockManager;
+    }
+
+    /**
+     * Get the TeamManager for this arena.
+     * @return the TeamManager for this arena
+     */
+    public TeamManager getTeamManager() {
+        return teamManager;
+    }
+
+    /**
+     * Get the journal that records this arena's game state.
+     * @return the journal for this arena
+     */
+    public GameJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Restore a saved game state: team scores, the current round, used block types, team memberships, and the
+     * seed targets were drawn with if none is configured. Teams and block types that no longer exist are skipped.
+     * Block types must be loaded first.
+     * @param state the saved game state
+     */
+    public void restore(GameState state) {
+        if (state.hasTargetSeed() && getSettings().hasRandomTargetSeed()) {
+            blockManager.useTargetSeed(state.getTargetSeed());
+        }
+        for (Map.Entry<String, Integer> score : state.getScores().entrySet()) {
+            teamManager.setScore(score.getKey(), score.getValue());
+        }
+        teamManager.restoreMemberships(state.getMemberships());
+        blockManager.restoreRound(state.getEpoch(), toMaterials(state.getTargets()), toMaterials(state.getUsedBlockTypes()));
+    }
+
+    /**
+     * Helper to convert saved block type names back to materials, skipping any that no longer exist.
+     * @param names the saved block type names
+     * @return the matching block types
+     */
+    private static List<Material> toMaterials(Iterable<String> names) {
+        List<Material> materials = new ArrayList<>();
+        for (String name : names) {
+            Material material = Material.getMaterial(name);
+            if (material != null) {
+                materials.add(material);
+            }
+        }
+        return materials;
+    }
+
+    /**
+     * Check if a game is currently running in this arena.
+     * @return true if the game is running, false otherwise
+     */
+    public boolean isRunning() {
+        return blockManager.hasCurrentTargets();
+    }
+
+    /**
+     * Check if a world is played as part of this arena.
+     * @param world the world to check
+     * @return true if the world belongs to this arena, false otherwise
+     */
+    public boolean isPlayedIn(World world) {
+        return arenaManager.getArena(world) == this;
+    }
+
+    /**
+     * Announce a message to everyone who should hear about this arena's game:
+     * the console and all online players currently in one of the arena's worlds.
+     * Delivery is spread across ticks by the plugin's Broadcaster, so this returns right away.
+     * @param message the message to announce
+     */
+    public void broadcast(Component message) {
+        game.getBroadcaster().broadcast(this, message);
+    }
+}
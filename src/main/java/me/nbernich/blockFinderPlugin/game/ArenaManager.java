@@ -0,0 +1,347 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.persistence.GameJournal;
+import me.nbernich.blockFinderPlugin.persistence.JournalWriter;
+import me.nbernich.blockFinderPlugin.rarity.RarityIndex;
+import me.nbernich.blockFinderPlugin.utils.NameTrie;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.entity.Player;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of the arenas (independent game instances) running on this server.
+ * There is always a default arena, which is played in every world not assigned to another arena.
+ * Additional arenas are defined in the configuration and are bound to one or more worlds by name.
+ */
+public class ArenaManager {
+
+    public static final String DEFAULT_ARENA_NAME = "default";
+
+    private final LinkedHashMap<String, Arena> arenasByName;
+    private final HashMap<String, Arena> arenasByWorldName;
+    private final Arena defaultArena;
+    private final NameTrie arenaNameTrie;
+    private final BlockFinderGame game;
+    private List<Material> allBlockTypes; // scanned from the Material registry on first load
+
+    /**
+     * Initialize the ArenaManager, creating the default arena and every arena listed in the configuration.
+     * Arena entries may override any top-level setting (such as targetCount or teams) for that arena only.
+     * @param game The game the arenas belong to.
+     * @param config The configuration file containing game settings.
+     */
+    public ArenaManager(BlockFinderGame game, ConfigurationSection config) {
+        this.game = game;
+        this.arenasByName = new LinkedHashMap<>();
+        this.arenasByWorldName = new HashMap<>();
+
+        this.defaultArena = new Arena(
+            game, this, DEFAULT_ARENA_NAME, config, createJournal(game, DEFAULT_ARENA_NAME)
+        );
+        arenasByName.put(DEFAULT_ARENA_NAME, defaultArena);
+
+        for (Map<?, ?> arenaData : config.getMapList("arenas")) {
+            String name = String.valueOf(arenaData.get("name"));
+            if (name.contains(" ") || arenasByName.containsKey(name)) {
+                game.getLogger().warning(
+                    String.format("Arena name '%s' is invalid or already in use. It will be ignored.", name)
+                );
+                continue;
+            }
+
+            Arena arena = new Arena(
+                game, this, name, createArenaConfig(config, arenaData), createJournal(game, name)
+            );
+            arenasByName.put(name, arena);
+
+            Object worlds = arenaData.get("worlds");
+            if (!(worlds instanceof List<?> worldNames) || worldNames.isEmpty()) {
+                game.getLogger().warning(
+                    String.format("Arena '%s' has no worlds, so it can only be controlled by name.", name)
+                );
+                continue;
+            }
+            for (Object worldName : worldNames) {
+                Arena previous = arenasByWorldName.putIfAbsent(String.valueOf(worldName), arena);
+                if (previous != null) {
+                    game.getLogger().warning(
+                        String.format(
+                            "World '%s' is already assigned to arena '%s'. Ignoring it for arena '%s'.",
+                            worldName, previous.getName(), name
+                        )
+                    );
+                }
+            }
+        }
+        this.arenaNameTrie = new NameTrie(arenasByName.keySet());
+    }
+
+    /**
+     * Parse and validate the game settings of every arena in a configuration, without changing any arena.
+     * This does not touch the server, so it can run off the main thread, such as while reloading.
+     * @param game The game, used to report invalid settings.
+     * @param config The configuration file containing game settings.
+     * @return the settings of each arena by name, starting with the default arena
+     */
+    public static Map<String, ArenaSettings> loadSettings(BlockFinderGame game, ConfigurationSection config) {
+        LinkedHashMap<String, ArenaSettings> settings = new LinkedHashMap<>();
+        settings.put(DEFAULT_ARENA_NAME, new ArenaSettings(game, config));
+        for (Map<?, ?> arenaData : config.getMapList("arenas")) {
+            String name = String.valueOf(arenaData.get("name"));
+            if (name.contains(" ") || settings.containsKey(name)) {
+                game.getLogger().warning(
+                    String.format("Arena name '%s' is invalid or already in use. It will be ignored.", name)
+                );
+                continue;
+            }
+            settings.put(name, new ArenaSettings(game, createArenaConfig(config, arenaData)));
+        }
+        return settings;
+    }
+
+    /**
+     * Replace the game settings of every arena, each together with its block types loaded again for the new
+     * settings, so an arena never selects targets with only part of its new settings. Arenas and their worlds are
+     * fixed while the server runs, so arenas that were added to or removed from the configuration are reported and
+     * left alone until the next restart.
+     * This should be called on the global thread.
+     * @param settings the new settings of each arena by name, from {@link #loadSettings}
+     */
+    public void applySettings(Map<String, ArenaSettings> settings) {
+        for (Arena arena : arenasByName.values()) {
+            ArenaSettings arenaSettings = settings.get(arena.getName());
+            if (arenaSettings == null) {
+                game.getLogger().warning(String.format(
+                    "Arena '%s' is no longer in the configuration. It will be removed when the server restarts.",
+                    arena.getName()
+                ));
+                continue;
+            }
+            TargetCandidates candidates = findCandidates(arena, arenaSettings.getTargetCount());
+            arena.applySettings(arenaSettings, candidates.blockTypes(), candidates.weightMultipliers());
+            arena.logTargetSeed();
+        }
+        for (String name : settings.keySet()) {
+            if (!arenasByName.containsKey(name)) {
+                game.getLogger().warning(String.format(
+                    "Arena '%s' is new in the configuration. It will be created when the server restarts.", name
+                ));
+            }
+        }
+    }
+
+    /**
+     * Helper to create the journal for an arena, stored in the plugin's state folder.
+     * Characters that are not safe in file names are replaced, so any arena name maps to a file in that folder.
+     * @param game The game the arena belongs to.
+     * @param name The name of the arena.
+     * @return the journal for the arena, or a disabled journal if persistence is turned off
+     */
+    private static GameJournal createJournal(BlockFinderGame game, String name) {
+        JournalWriter writer = game.getJournalWriter();
+        if (writer == null) {
+            return GameJournal.DISABLED;
+        }
+        Path directory = game.getDataFolder().toPath().resolve("state");
+        return new GameJournal(game.getLogger(), writer, directory, name.replaceAll("[^A-Za-z0-9_-]", "_"));
+    }
+
+    /**
+     * Helper to create the settings for an arena: the top-level settings, overridden by the arena's own entries.
+     * @param config the top-level configuration
+     * @param arenaData the arena's entry in the configuration
+     * @return the combined settings for the arena
+     */
+    private static ConfigurationSection createArenaConfig(ConfigurationSection config, Map<?, ?> arenaData) {
+        MemoryConfiguration arenaConfig = new MemoryConfiguration();
+        for (Map.Entry<String, Object> entry : config.getValues(false).entrySet()) {
+            if (!entry.getKey().equals("arenas")) {
+                arenaConfig.set(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<?, ?> entry : arenaData.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (!key.equals("name") && !key.equals("worlds")) {
+                arenaConfig.set(key, entry.getValue());
+            }
+        }
+        return arenaConfig;
+    }
+
+    /**
+     * Load all block types in the game as target candidates for every arena.
+     * The Material registry is scanned once and shared between arenas. If a rarity index is available,
+     * block types that are rare in an arena's own worlds are left out of its targets or down-weighted,
+     * and block types that do not exist anywhere in the saved worlds are left out, if their region files were read.
+     * This should be called once, while the plugin is enabling. Later rarity data is applied with
+     * {@link #loadIdleBlockTypes()} and {@link #loadBlockTypes(Arena)}.
+     */
+    public void loadAllBlockTypes() {
+        for (Arena arena : arenasByName.values()) {
+            loadBlockTypes(arena);
+        }
+    }
+
+    /**
+     * Load the target candidates of every arena where no game is running, such as when a rarity scan finishes.
+     * Running games keep their candidates, so their seeded sequence of targets does not depend on when a scan
+     * happened to finish. They pick up the new rarity data when their next game starts.
+     */
+    public void loadIdleBlockTypes() {
+        for (Arena arena : arenasByName.values()) {
+            BlockManager blockManager = arena.getBlockManager();
+            TargetCandidates candidates = findCandidates(arena, blockManager.getTargetCount());
+            blockManager.loadIdleBlockTypes(candidates.blockTypes(), candidates.weightMultipliers());
+        }
+    }
+
+    /**
+     * Load the target candidates of one arena with the latest rarity data, such as right before a game starts.
+     * @param arena the arena to load the candidates of
+     */
+    public void loadBlockTypes(Arena arena) {
+        BlockManager blockManager = arena.getBlockManager();
+        TargetCandidates candidates = findCandidates(arena, blockManager.getTargetCount());
+        blockManager.loadBlockTypes(candidates.blockTypes(), candidates.weightMultipliers());
+    }
+
+    /**
+     * Helper to find the block types that are candidates for an arena's targets, and how they are weighted.
+     * @param arena the arena to find candidates for
+     * @param targetCount the number of targets the arena selects each round
+     * @return the candidates and their weight multipliers
+     */
+    private TargetCandidates findCandidates(Arena arena, int targetCount) {
+        if (allBlockTypes == null) {
+            ArrayList<Material> candidates = new ArrayList<>();
+            for (Material material : Material.values()) {
+                if (material.isBlock()) {
+                    candidates.add(material);
+                }
+            }
+            this.allBlockTypes = candidates;
+        }
+
+        RarityIndex rarityIndex = game.getRarityIndex();
+        if (rarityIndex == null) {
+            return new TargetCandidates(allBlockTypes, null);
+        }
+        List<World> worlds = getWorlds(arena);
+        List<Material> presentBlockTypes = rarityIndex.getPresentBlockTypes(allBlockTypes, worlds, targetCount);
+        Collection<Material> candidates = presentBlockTypes != null ? presentBlockTypes : allBlockTypes;
+        return new TargetCandidates(candidates, rarityIndex.getWeightMultipliers(candidates, worlds, targetCount));
+    }
+
+    /**
+     * Get the loaded worlds that are played as part of an arena.
+     * @param arena the arena to get the worlds of
+     * @return the arena's loaded worlds
+     */
+    public List<World> getWorlds(Arena arena) {
+        List<World> worlds = new ArrayList<>();
+        for (World world : game.getServer().getWorlds()) {
+            if (getArena(world) == arena) {
+                worlds.add(world);
+            }
+        }
+        return worlds;
+    }
+
+    /**
+     * Get the arena that is played in a world.
+     * @param world the world to look up
+     * @return the arena assigned to the world, or the default arena if none is assigned
+     */
+    public Arena getArena(World world) {
+        Arena arena = arenasByWorldName.get(world.getName());
+        return arena != null ? arena : defaultArena;
+    }
+
+    /**
+     * Get an arena by name.
+     * @param name the name of the arena
+     * @return the arena with that name, or null if it does not exist
+     */
+    public Arena getArena(String name) {
+        return arenasByName.get(name);
+    }
+
+    /**
+     * Get the arena a command sender is in. Players are in the arena of their current world.
+     * Other senders, such as the console, are considered to be in the default arena.
+     * @param sender the command sender
+     * @return the sender's arena
+     */
+    public Arena getArena(CommandSender sender) {
+        if (sender instanceof Player player) {
+            return getArena(player.getWorld());
+        }
+        return defaultArena;
+    }
+
+    /**
+     * Get the default arena.
+     * @return the default arena
+     */
+    public Arena getDefaultArena() {
+        return defaultArena;
+    }
+
+    /**
+     * Get all arenas, in the order they were configured (starting with the default arena).
+     * @return an unmodifiable collection of arenas
+     */
+    public Collection<Arena> getArenas() {
+        return Collections.unmodifiableCollection(arenasByName.values());
+    }
+
+    /**
+     * Get the names of all arenas.
+     * @return an unmodifiable set of arena names
+     */
+    public Set<String> getArenaNames() {
+        return Collections.unmodifiableSet(arenasByName.keySet());
+    }
+
+    /**
+     * Get a prefix tree of all arena names, for suggesting them in commands.
+     * @return a prefix tree of all arena names
+     */
+    public NameTrie getArenaNameTrie() {
+        return arenaNameTrie;
+    }
+
+    /**
+     * Check if a game is running in any arena.
+     * @return true if at least one arena is running, false otherwise
+     */
+    public boolean hasRunningArenas() {
+        for (Arena arena : arenasByName.values()) {
+            if (arena.isRunning()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The block types that are candidates for an arena's targets.
+     * @param blockTypes the candidates, without duplicates
+     * @param weightMultipliers a multiplier for each block type by Material ordinal, or null for none
+     */
+    private record TargetCandidates(Collection<Material> blockTypes, double[] weightMultipliers) {}
+}
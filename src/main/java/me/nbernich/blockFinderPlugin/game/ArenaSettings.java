@@ -0,0 +1,250 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.utils.Colors;
+import net.kyori.adventure.text.format.TextColor;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The validated game settings of an arena: its targets, teams and score display.
+ * Settings are parsed once into this immutable snapshot, which can be built on any thread and handed to the
+ * arena's managers, so a reloaded configuration replaces all of them at once.
+ */
+public final class ArenaSettings {
+
+    private final static int DEFAULT_TARGET_COUNT = 3;
+    private final static int MAX_TARGET_COUNT = 8;
+    private final static int DEFAULT_SCORES_LIST_SIZE = 10;
+
+    /**
+     * A team as configured, before it is given an index and a score.
+     * @param name the name of the team, without spaces
+     * @param color the color of the team
+     */
+    public record TeamSettings(String name, TextColor color) {}
+
+    private final int targetCount;
+    private final long targetSeed;
+    private final boolean hasRandomTargetSeed;
+    private final TargetMode targetMode;
+    private final boolean shouldPreventRepeatBlocks;
+    private final boolean showScoresOnFound;
+    private final TieBreakPolicy tieBreakPolicy;
+    private final TargetWeights targetWeights;
+    private final List<TeamSettings> teams;
+    private final int scoresListSize;
+
+    /**
+     * Parse and validate user-defined settings. Invalid settings are reported and replaced with their defaults.
+     * @param game The game, used to report invalid settings.
+     * @param config The configuration section containing game settings.
+     */
+    public ArenaSettings(BlockFinderGame game, ConfigurationSection config) {
+        int configTargetCount = config.getInt("targetCount", DEFAULT_TARGET_COUNT);
+        if (configTargetCount < 1) {
+            game.getLogger().warning("Invalid target count. Cannot be less than 1. Using default.");
+            this.targetCount = DEFAULT_TARGET_COUNT;
+        } else if (configTargetCount > MAX_TARGET_COUNT) {
+            game.getLogger().warning(
+                String.format("Invalid target count. Cannot be greater than %d. Using maximum.", MAX_TARGET_COUNT)
+            );
+            this.targetCount = MAX_TARGET_COUNT;
+        } else {
+            this.targetCount = configTargetCount;
+        }
+
+        String configTargetSeed = config.getString("targetSeed", "");
+        this.hasRandomTargetSeed = configTargetSeed.isBlank();
+        this.targetSeed = parseTargetSeed(configTargetSeed);
+        this.targetWeights = new TargetWeights(game, config);
+        this.shouldPreventRepeatBlocks = config.getBoolean("shouldPreventRepeatBlocks", false);
+        this.showScoresOnFound = config.getBoolean("showScoresOnFound", false);
+
+        String tieBreakName = config.getString("sameTickTieBreak", "first-arrival");
+        TieBreakPolicy configTieBreakPolicy = TieBreakPolicy.fromName(tieBreakName);
+        if (configTieBreakPolicy == null) {
+            game.getLogger().warning(
+                String.format("Invalid same-tick tie-break policy '%s'. Using first-arrival.", tieBreakName)
+            );
+            configTieBreakPolicy = TieBreakPolicy.FIRST_ARRIVAL;
+        }
+        this.tieBreakPolicy = configTieBreakPolicy;
+
+        String targetModeName = config.getString("targetMode", "shared");
+        TargetMode configTargetMode = TargetMode.fromName(targetModeName);
+        if (configTargetMode == null) {
+            game.getLogger().warning(String.format("Invalid target mode '%s'. Using shared.", targetModeName));
+            configTargetMode = TargetMode.SHARED;
+        }
+        this.targetMode = configTargetMode;
+
+        int configScoresListSize = config.getInt("scoresListSize", DEFAULT_SCORES_LIST_SIZE);
+        if (configScoresListSize < 0) {
+            game.getLogger().warning("Invalid scores list size. Cannot be less than 0. Using default.");
+            this.scoresListSize = DEFAULT_SCORES_LIST_SIZE;
+        } else {
+            this.scoresListSize = configScoresListSize;
+        }
+
+        this.teams = List.copyOf(parseTeams(game, config));
+    }
+
+    private ArenaSettings(ArenaSettings source, long targetSeed) {
+        this.targetCount = source.targetCount;
+        this.targetSeed = targetSeed;
+        this.hasRandomTargetSeed = source.hasRandomTargetSeed;
+        this.targetMode = source.targetMode;
+        this.shouldPreventRepeatBlocks = source.shouldPreventRepeatBlocks;
+        this.showScoresOnFound = source.showScoresOnFound;
+        this.tieBreakPolicy = source.tieBreakPolicy;
+        this.targetWeights = source.targetWeights;
+        this.teams = source.teams;
+        this.scoresListSize = source.scoresListSize;
+    }
+
+    /**
+     * Create a copy of these settings that draws targets with another seed, such as to keep drawing with the random
+     * seed a game started with after a reload or a restart. The copy still reports whether its seed was configured.
+     * @param seed the seed to draw targets with
+     * @return the new settings
+     */
+    public ArenaSettings withTargetSeed(long seed) {
+        return new ArenaSettings(this, seed);
+    }
+
+    /**
+     * Helper to turn a configured target seed into a number. Like a world seed, a number is used as it is and any
+     * other text is hashed, and a blank seed is replaced with a random one. A running arena keeps its random seed,
+     * see {@link #withTargetSeed(long)}.
+     * @param seed the configured seed
+     * @return the seed to draw targets with
+     */
+    private static long parseTargetSeed(String seed) {
+        if (seed.isBlank()) {
+            return new SplittableRandom().nextLong();
+        }
+        try {
+            return Long.parseLong(seed.trim());
+        } catch (NumberFormatException e) {
+            return seed.hashCode();
+        }
+    }
+
+    /**
+     * Helper to parse the list of teams, in the order they are configured.
+     * @param game the game, used to report invalid settings
+     * @param config the configuration section containing the teams
+     * @return the valid teams
+     */
+    private static List<TeamSettings> parseTeams(BlockFinderGame game, ConfigurationSection config) {
+        List<TeamSettings> teams = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (Map<?, ?> teamData : config.getMapList("teams")) {
+            String name = String.valueOf(teamData.get("name"));
+            if (name.contains(" ")) {
+                game.getLogger().warning(
+                    String.format(
+                        "Team name '%s' contains multiple words, which is not allowed. It will be ignored.",
+                        name
+                    )
+                );
+                continue;
+            }
+            if (names.contains(name)) {
+                game.getLogger().warning(
+                    String.format("Team name '%s' is used by more than one team. Only the first will be used.", name)
+                );
+                continue;
+            }
+            String colorString = String.valueOf(teamData.get("color"));
+            names.add(name);
+            teams.add(new TeamSettings(name, Colors.parseColor(colorString)));
+        }
+        return teams;
+    }
+
+    /**
+     * Get the number of target block types in each round.
+     * @return the target count, from 1 to 8
+     */
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * Get the seed that target block types are drawn with, so a published seed reproduces a sequence of targets.
+     * @return the configured seed, or a random seed if none was configured
+     */
+    public long getTargetSeed() {
+        return targetSeed;
+    }
+
+    /**
+     * Check if the target seed was chosen at random, because none was configured.
+     * @return true if the seed is random, false if it was configured
+     */
+    public boolean hasRandomTargetSeed() {
+        return hasRandomTargetSeed;
+    }
+
+    /**
+     * Check if block types should not be selected again until every other block type has been used.
+     * @return true if repeated targets are prevented, false otherwise
+     */
+    public boolean shouldPreventRepeatBlocks() {
+        return shouldPreventRepeatBlocks;
+    }
+
+    /**
+     * Check if updated scores should be announced when a target is found.
+     * @return true if scores are announced on finds, false otherwise
+     */
+    public boolean showScoresOnFound() {
+        return showScoresOnFound;
+    }
+
+    /**
+     * Get the policy for choosing a winner among finds in the same tick.
+     * @return the tie-break policy
+     */
+    public TieBreakPolicy getTieBreakPolicy() {
+        return tieBreakPolicy;
+    }
+
+    /**
+     * Get how the teams play for targets: all hunting the same targets, or racing through them at their own pace.
+     * @return the target mode
+     */
+    public TargetMode getTargetMode() {
+        return targetMode;
+    }
+
+    /**
+     * Get the weight of every block type as a target.
+     * @return the target weights
+     */
+    public TargetWeights getTargetWeights() {
+        return targetWeights;
+    }
+
+    /**
+     * Get the teams, in the order they are configured.
+     * @return an unmodifiable list of teams with unique names
+     */
+    public List<TeamSettings> getTeams() {
+        return teams;
+    }
+
+    /**
+     * Get how many teams to list when showing scores.
+     * @return the number of teams to list, or 0 to list every team
+     */
+    public int getScoresListSize() {
+        return scoresListSize;
+    }
+}
@@ -0,0 +1,257 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import me.nbernich.blockFinderPlugin.utils.NameTrie;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The state of an arena that the sneak and find handlers read together: its settings, its teams and their scores,
+ * the team index of each member, and the team rounds of a race.
+ * <p>
+ * A state is immutable, and a change creates a new one. The arena publishes it with a single volatile write, so a
+ * region thread that reads the state once always sees a team index, a team and a team round that belong together,
+ * even while a reload replaces all of them. Team scores live in the roster's TeamRanking, which is shared by every
+ * state with the same teams. A TeamRounds table is only replaced under the block manager's lock, which is also where
+ * its rounds are moved on in place, so no team's move is lost to a state that was replaced at the same time.
+ */
+final class ArenaState {
+
+    private final ArenaSettings settings;
+    private final Roster roster;
+    private final MembershipTable memberships;
+    private final TeamRounds teamRounds; // null unless a race is running
+
+    private ArenaState(ArenaSettings settings, Roster roster, MembershipTable memberships, TeamRounds teamRounds) {
+        this.settings = settings;
+        this.roster = roster;
+        this.memberships = memberships;
+        this.teamRounds = teamRounds;
+    }
+
+    /**
+     * Create the state of a new arena, with the teams of its settings, no members and no race.
+     * @param settings the validated settings of the arena
+     * @return the new state
+     */
+    static ArenaState create(ArenaSettings settings) {
+        return new ArenaState(settings, Roster.create(settings.getTeams()), MembershipTable.EMPTY, null);
+    }
+
+    /**
+     * Get the game settings of the arena.
+     * @return the settings of the arena
+     */
+    ArenaSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Get the teams of the arena.
+     * @return the teams, by team index
+     */
+    Team[] getTeams() {
+        return roster.teams();
+    }
+
+    /**
+     * Get a team by its index.
+     * @param index the index of the team
+     * @return the team, or null if the index is -1 or belongs to teams that were replaced
+     */
+    Team getTeam(int index) {
+        return index >= 0 && index < roster.teams().length ? roster.teams()[index] : null;
+    }
+
+    /**
+     * Get a team by its name.
+     * @param name the name of the team
+     * @return the team, or null if there is no such team
+     */
+    Team getTeam(String name) {
+        return roster.teamsByName().get(name);
+    }
+
+    /**
+     * Get the team of this state that stands for a team from an earlier state, matched by name if the teams were
+     * reloaded since it was looked up.
+     * @param team a team, possibly from an earlier state
+     * @return the matching team, or null if it was removed
+     */
+    Team resolve(Team team) {
+        return getTeam(team.getIndex()) == team ? team : getTeam(team.getName());
+    }
+
+    /**
+     * Get the names of all teams.
+     * @return an unmodifiable set of team names
+     */
+    Set<String> getTeamNames() {
+        return roster.teamsByName().keySet();
+    }
+
+    /**
+     * Get a prefix tree of all team names.
+     * @return a prefix tree of all team names
+     */
+    NameTrie getTeamNameTrie() {
+        return roster.nameTrie();
+    }
+
+    /**
+     * Get the scores of the teams, kept in ranked order.
+     * @return the ranking of the teams
+     */
+    TeamRanking getRanking() {
+        return roster.ranking();
+    }
+
+    /**
+     * Get the team index of every member.
+     * @return the membership table
+     */
+    MembershipTable getMemberships() {
+        return memberships;
+    }
+
+    /**
+     * Get the index of the team a player is on, without locking or allocating.
+     * @param player the UUID of the player
+     * @return the index of the player's team, or -1 if the player is not on a team
+     */
+    int getTeamIndex(UUID player) {
+        return memberships.get(player);
+    }
+
+    /**
+     * Get the team a player is on.
+     * @param player the UUID of the player
+     * @return the player's team, or null if the player is not on a team
+     */
+    Team getPlayerTeam(UUID player) {
+        return getTeam(memberships.get(player));
+    }
+
+    /**
+     * Get the rounds of each team in the running race.
+     * @return the team rounds, or null if no race is running
+     */
+    TeamRounds getTeamRounds() {
+        return teamRounds;
+    }
+
+    /**
+     * Create a state with new settings and the teams they list. Teams are matched by name: teams that still exist
+     * keep their score, members and race round, and take on their new color and position. Members of teams that
+     * were removed are no longer on a team.
+     * @param newSettings the new settings of the arena
+     * @return the new state
+     */
+    ArenaState withSettings(ArenaSettings newSettings) {
+        Roster newRoster = Roster.create(newSettings.getTeams());
+        int[] newIndexes = new int[roster.teams().length];
+        for (Team oldTeam : roster.teams()) {
+            Team newTeam = newRoster.teamsByName().get(oldTeam.getName());
+            newIndexes[oldTeam.getIndex()] = newTeam == null ? -1 : newTeam.getIndex();
+            if (newTeam != null) {
+                newRoster.ranking().setScore(newTeam.getIndex(), oldTeam.getScore());
+            }
+        }
+        TeamRounds newTeamRounds = teamRounds == null ? null : teamRounds.remap(newRoster.teams());
+        return new ArenaState(newSettings, newRoster, memberships.remap(newIndexes), newTeamRounds);
+    }
+
+    /**
+     * Create a state whose settings draw targets with another seed, keeping the same teams.
+     * @param seed the seed to draw targets with
+     * @return the new state
+     */
+    ArenaState withTargetSeed(long seed) {
+        return new ArenaState(settings.withTargetSeed(seed), roster, memberships, teamRounds);
+    }
+
+    /**
+     * Create a state where a player is on a team.
+     * @param player the UUID of the player
+     * @param teamIndex the index of the player's team
+     * @return the new state
+     */
+    ArenaState withMember(UUID player, int teamIndex) {
+        return new ArenaState(settings, roster, memberships.with(player, teamIndex), teamRounds);
+    }
+
+    /**
+     * Create a state where several players are on teams. Players whose team does not exist are skipped.
+     * @param teamNamesByPlayer the name of each player's team
+     * @return the new state
+     */
+    ArenaState withMembers(Map<UUID, String> teamNamesByPlayer) {
+        Map<UUID, Integer> teamIndexes = new HashMap<>();
+        for (Map.Entry<UUID, String> membership : teamNamesByPlayer.entrySet()) {
+            Team team = getTeam(membership.getValue());
+            if (team != null) {
+                teamIndexes.put(membership.getKey(), team.getIndex());
+            }
+        }
+        return new ArenaState(settings, roster, memberships.withAll(teamIndexes), teamRounds);
+    }
+
+    /**
+     * Create a state where a player is not on a team.
+     * @param player the UUID of the player
+     * @return the new state, or this state if the player was not on a team
+     */
+    ArenaState withoutMember(UUID player) {
+        MembershipTable newMemberships = memberships.without(player);
+        return newMemberships == memberships ? this : new ArenaState(settings, roster, newMemberships, teamRounds);
+    }
+
+    /**
+     * Create a state with no teams and no members. A running race keeps its rounds, but no team can play them.
+     * @return the new state
+     */
+    ArenaState withoutTeams() {
+        return new ArenaState(settings, Roster.EMPTY, MembershipTable.EMPTY, teamRounds);
+    }
+
+    /**
+     * Create a state with new team rounds, such as when a race starts or ends.
+     * @param newTeamRounds the rounds of each team, or null if no race is running
+     * @return the new state
+     */
+    ArenaState withTeamRounds(TeamRounds newTeamRounds) {
+        return new ArenaState(settings, roster, memberships, newTeamRounds);
+    }
+
+    /**
+     * The teams of an arena, replaced together.
+     * @param teams the teams, by team index
+     * @param teamsByName the teams, by name
+     * @param ranking the scores of the teams, kept in ranked order
+     * @param nameTrie a prefix tree of the team names, for suggesting them in commands
+     */
+    private record Roster(Team[] teams, Map<String, Team> teamsByName, TeamRanking ranking, NameTrie nameTrie) {
+
+        private static final Roster EMPTY = create(List.of());
+
+        /**
+         * Create the teams for a list of settings, with indexes in the order they are listed and scores of zero.
+         * @param teamSettings the settings of each team, with unique names
+         * @return the new roster
+         */
+        private static Roster create(List<ArenaSettings.TeamSettings> teamSettings) {
+            TeamRanking ranking = new TeamRanking(teamSettings.size());
+            Team[] teams = new Team[teamSettings.size()];
+            Map<String, Team> teamsByName = new HashMap<>();
+            for (int i = 0; i < teams.length; i++) {
+                ArenaSettings.TeamSettings settings = teamSettings.get(i);
+                teams[i] = new Team(i, settings.name(), settings.color(), ranking);
+                teamsByName.put(settings.name(), teams[i]);
+            }
+            return new Roster(teams, Map.copyOf(teamsByName), ranking, new NameTrie(teamsByName.keySet()));
+        }
+    }
+}
@@ -1,118 +1,386 @@
 package me.nbernich.blockFinderPlugin.game;
 
-import me.nbernich.blockFinderPlugin.BlockFinderPlugin;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.persistence.JournalEntry;
+import me.nbernich.blockFinderPlugin.persistence.RoundHistory;
+import me.nbernich.blockFinderPlugin.persistence.RoundRecord;
+import me.nbernich.blockFinderPlugin.stats.FlightEvents;
+import me.nbernich.blockFinderPlugin.stats.PerformanceStats;
 import me.nbernich.blockFinderPlugin.utils.Colors;
-import me.nbernich.blockFinderPlugin.utils.Formatting;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
 import net.kyori.adventure.text.Component;
 import org.bukkit.Material;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
 import java.util.*;
 
 /**
  * The manager responsible for selecting and tracking target block types.
+ * The current round and its targets are published as an immutable snapshot, so the sneak listener can read them from
+ * any region thread without locking. Each round has an epoch and is won by a single compare-and-set claim.
+ * Changes to the targets are synchronized, since they are rare.
+ * Upcoming targets are drawn ahead of time by a seeded TargetSchedule, so starting a round only takes the next one.
+ * In race mode, each team also has its own round in a TeamRounds table, and works through the race's sequence of
+ * targets at its own pace. The shared round then only holds the first targets, to mark the race as running.
+ * Settings and team rounds are read from the arena's immutable ArenaState, which also holds the memberships the team
+ * rounds are looked up by. A reload replaces the state and the candidates together, under this manager's lock.
  */
 public class BlockManager {
 
-    private final static int DEFAULT_TARGET_COUNT = 3;
-    private final static int MAX_TARGET_COUNT = 8;
-
-    private final BlockFinderPlugin plugin;
-    private final ArrayList<Material> blockTypes;
-    private final HashSet<Material> currentTargets;
-    private final Random rng;
-    private final int targetCount;
-    private final boolean shouldPreventRepeatBlocks;
-    private final boolean showScoresOnFound;
-    private boolean processingFound; // flag to (potentially) prevent double counting
-
-    /**
-     * Initialize the BlockManager with user-defined settings.
-     * @param plugin The game plugin this manager is connected to.
-     * @param config The configuration file containing game settings.
-     */
-    public BlockManager(BlockFinderPlugin plugin, FileConfiguration config) {
-        this.plugin = plugin;
-        this.blockTypes = new ArrayList<>();
-        this.currentTargets = new HashSet<>();
-
-        int configTargetCount = config.getInt("targetCount", DEFAULT_TARGET_COUNT);
-        if (configTargetCount < 1) {
-            plugin.getLogger().warning("Invalid target count. Cannot be less than 1. Using default.");
-            this.targetCount = DEFAULT_TARGET_COUNT;
-        } else if (configTargetCount > MAX_TARGET_COUNT) {
-            plugin.getLogger().warning(
-                String.format("Invalid target count. Cannot be greater than %d. Using maximum.", MAX_TARGET_COUNT)
-            );
-            this.targetCount = MAX_TARGET_COUNT;
-        } else {
-            this.targetCount = configTargetCount;
-        }
+    private final BlockFinderGame game;
+    private final Arena arena;
+    private WeightedBag blockTypes;
+    private TargetSchedule schedule;
+    private volatile Round currentRound;
+    private final List<TargetSet> raceTargets; // the targets of each round of the race, by round number - 1
+    private long lastEpoch;
+
+    /**
+     * Initialize the BlockManager for an arena, whose state holds its settings.
+     * @param game The game this manager is connected to.
+     * @param arena The arena whose targets this manager selects.
+     */
+    public BlockManager(BlockFinderGame game, Arena arena) {
+        this.game = game;
+        this.arena = arena;
+        this.blockTypes = null;
+        this.schedule = null;
+        this.currentRound = Round.NONE;
+        this.raceTargets = new ArrayList<>();
+        this.lastEpoch = Round.NONE.getEpoch();
+    }
 
-        this.rng = new Random();
-        this.shouldPreventRepeatBlocks = config.getBoolean("shouldPreventRepeatBlocks", false);
-        this.showScoresOnFound = config.getBoolean("showScoresOnFound", false);
-        this.processingFound = false;
+    /**
+     * Replace the game settings and the candidates for target selection, such as after the configuration is
+     * reloaded. The new settings, teams and race rounds are published in one new arena state, and the candidates
+     * are weighted with the new settings, all under this manager's lock, so no round starts with only part of the
+     * change. The current round keeps its targets, and the new settings apply from the next round. A running race
+     * keeps its mode, and teams that still exist keep their round.
+     * @param settings the new settings of the arena
+     * @param candidates the block types that may be selected as targets, without duplicates
+     * @param weightMultipliers a multiplier for each block type by Material ordinal, or null for none
+     * @return the state of the arena before the settings were replaced
+     */
+    synchronized ArenaState applySettings(
+        ArenaSettings settings, Collection<Material> candidates, double[] weightMultipliers
+    ) {
+        ArenaState oldState = arena.updateState(state -> state.withSettings(settings));
+        loadBlockTypes(candidates, weightMultipliers);
+        return oldState;
     }
 
     /**
-     * Load all block types in the game as candidates for target selection.
+     * Draw targets with another seed from the next round on, such as the random seed a game was started with before
+     * the server restarted. Rounds that were already drawn ahead are drawn again with the new seed.
+     * @param seed the seed to draw targets with
      */
-    public void loadAllBlockTypes() {
-        if (!blockTypes.isEmpty()) {
-           blockTypes.clear();
+    synchronized void useTargetSeed(long seed) {
+        arena.updateState(state -> state.withTargetSeed(seed));
+        if (blockTypes != null) {
+            this.schedule = new TargetSchedule(game, getSettings(), blockTypes, lastEpoch + 1);
         }
-        for (Material material : Material.values()) {
-            if (material.isBlock()) {
-                blockTypes.add(material);
+    }
+
+    /**
+     * Get the game settings currently in use.
+     * @return the settings of the arena
+     */
+    ArenaSettings getSettings() {
+        return arena.getState().getSettings();
+    }
+
+    /**
+     * Load a specific collection of block types as candidates for target selection.
+     * Once loaded, the candidates are refilled in place when they run out, without scanning the Material registry.
+     * If candidates were already loaded, block types that were used since the last refill stay used.
+     * @param candidates the block types that may be selected as targets, without duplicates
+     */
+    public void loadBlockTypes(Collection<Material> candidates) {
+        loadBlockTypes(candidates, null);
+    }
+
+    /**
+     * Load a specific collection of block types as candidates for target selection, scaling their configured
+     * weights by the given multipliers. The alias table for weighted draws is built here, once per load.
+     * If candidates were already loaded, block types that were used since the last refill stay used.
+     * @param candidates the block types that may be selected as targets, without duplicates
+     * @param weightMultipliers a multiplier for each block type by Material ordinal, or null for none
+     */
+    public synchronized void loadBlockTypes(Collection<Material> candidates, double[] weightMultipliers) {
+        ArenaSettings settings = getSettings();
+        WeightedBag oldBlockTypes = blockTypes;
+        this.blockTypes = new WeightedBag(candidates, settings.getTargetWeights().getWeights(weightMultipliers));
+        if (oldBlockTypes != null && settings.shouldPreventRepeatBlocks()) {
+            for (Material usedBlockType : oldBlockTypes.drawn()) {
+                blockTypes.take(usedBlockType);
             }
         }
+        this.schedule = new TargetSchedule(game, settings, blockTypes, lastEpoch + 1);
+    }
+
+    /**
+     * Load a collection of block types as candidates for target selection, as in
+     * {@link #loadBlockTypes(Collection, double[])}, but only if no game is running, so a running game keeps drawing
+     * the sequence of targets it started with.
+     * @param candidates the block types that may be selected as targets, without duplicates
+     * @param weightMultipliers a multiplier for each block type by Material ordinal, or null for none
+     */
+    public synchronized void loadIdleBlockTypes(Collection<Material> candidates, double[] weightMultipliers) {
+        if (!hasCurrentTargets()) {
+            loadBlockTypes(candidates, weightMultipliers);
+        }
     }
 
     /**
      * Clear the collection of block types that are candidates for target selection.
      */
-    public void clearBlockTypes() {
-        blockTypes.clear();
+    public synchronized void clearBlockTypes() {
+        if (blockTypes != null) {
+            blockTypes.empty();
+            schedule.reset(blockTypes, lastEpoch + 1);
+        }
     }
 
     /**
      * Select a new set of target block types from the collection of available block types.
+     * Block types are chosen in proportion to their weights, and the targets of a round are always distinct.
      * If shouldPreventRepeatBlocks is true, the block types will not be selected again until all have been used.
+     * The targets are usually drawn already, so this only starts the next scheduled round.
+     * In race mode, this starts a race with every team on the same first targets, or if a race is already running,
+     * moves every team on to its next round.
      */
-    public void selectNewTargets() throws IllegalStateException {
-        if (!currentTargets.isEmpty()) {
-            currentTargets.clear();
+    public synchronized void selectNewTargets() throws IllegalStateException {
+        TeamRounds race = arena.getState().getTeamRounds();
+        if (race != null) {
+            for (int teamIndex = 0; teamIndex < race.size(); teamIndex++) {
+                advanceTeam(race, teamIndex, race.get(teamIndex), null);
+            }
+            return;
         }
 
-        if (blockTypes.size() < targetCount) {
-            if (shouldPreventRepeatBlocks) {
-                plugin.getLogger().info("Too many block types have been used. Resetting possible block types...");
-                loadAllBlockTypes();
-            } else {
-                throw new IllegalStateException(
-                    String.format("Not enough block types available to select %d targets.", targetCount)
-                );
+        selectNewTargets(null);
+        if (getSettings().getTargetMode() == TargetMode.RACE) {
+            startRace();
+        }
+    }
+
+    /**
+     * Helper to start a race on the current round's targets, with every team on its first round.
+     */
+    private synchronized void startRace() {
+        TargetSet firstTargets = currentRound.getTargets();
+        raceTargets.clear();
+        raceTargets.add(firstTargets);
+        arena.updateState(state -> state.withTeamRounds(new TeamRounds(state.getTeams(), firstTargets)));
+    }
+
+    /**
+     * Helper to move a team in a race on to its next round, drawing the race's next targets if the team is the first
+     * to get there. The finished round is added to the round history.
+     * @param race the rounds of the race
+     * @param teamIndex the index of the team
+     * @param round the team's round that finished
+     * @param winner the claim that won the round, or null if the round was skipped
+     * @return the team's new round
+     * @throws IllegalStateException if there are not enough block types to select the next targets
+     */
+    private synchronized Round advanceTeam(TeamRounds race, int teamIndex, Round round, FindClaim winner)
+        throws IllegalStateException {
+        long startNanos = System.nanoTime();
+        try {
+            int nextIndex = (int) round.getEpoch(); // round numbers start from 1, so this indexes the next round
+            while (raceTargets.size() <= nextIndex) {
+                raceTargets.add(takeScheduledTargets());
+                this.lastEpoch++;
             }
+            Round nextRound = new Round(round.getEpoch() + 1, raceTargets.get(nextIndex));
+            race.set(teamIndex, nextRound);
+            recordFinishedRound(round, winner, false);
+            recordFlightEvents(round, nextRound, winner);
+            return nextRound;
+        } finally {
+            game.getPerformanceStats().record(PerformanceStats.Operation.SELECT_TARGETS, startNanos);
+        }
+    }
+
+    /**
+     * Helper to select new target block types, ending the current round with the given winning claim.
+     * @param winner the claim that won the current round, or null if the round was skipped
+     */
+    private synchronized void selectNewTargets(FindClaim winner) throws IllegalStateException {
+        long startNanos = System.nanoTime();
+        try {
+            drawNewTargets(winner);
+        } finally {
+            game.getPerformanceStats().record(PerformanceStats.Operation.SELECT_TARGETS, startNanos);
+        }
+    }
+
+    /**
+     * Helper to start the next scheduled round, removing its targets from the candidates.
+     * @param winner the claim that won the current round, or null if the round was skipped
+     */
+    private synchronized void drawNewTargets(FindClaim winner) throws IllegalStateException {
+        TargetSet targets;
+        try {
+            targets = takeScheduledTargets();
+        } catch (IllegalStateException e) {
+            startRound(TargetSet.EMPTY, winner);
+            throw e;
+        }
+        startRound(targets, winner);
+    }
+
+    /**
+     * Helper to take the next scheduled targets, removing them from the candidates.
+     * @return the targets
+     * @throws IllegalStateException if there are not enough block types to select targets
+     */
+    private synchronized TargetSet takeScheduledTargets() throws IllegalStateException {
+        TargetSchedule.ScheduledRound next = schedule == null ? null : schedule.take(lastEpoch + 1, blockTypes);
+        if (next == null || next.targets() == null) {
+            throw new IllegalStateException(
+                String.format("Not enough block types available to select %d targets.", getTargetCount())
+            );
+        }
+
+        if (next.refilled()) {
+            game.getLogger().info("Too many block types have been used. Resetting possible block types...");
+            blockTypes.refill();
+            arena.getJournal().record(new JournalEntry.Refill());
+        }
+        if (getSettings().shouldPreventRepeatBlocks()) {
+            for (Material target : next.targets().asList()) {
+                blockTypes.take(target);
+            }
+        }
+        return next.targets();
+    }
+
+    /**
+     * Clear the current target block types, ending any race.
+     */
+    public synchronized void clearTargets() {
+        TeamRounds race = arena.getState().getTeamRounds();
+        if (race != null) {
+            for (int teamIndex = 0; teamIndex < race.size(); teamIndex++) {
+                recordFinishedRound(race.get(teamIndex), null, true);
+                recordFlightEvents(race.get(teamIndex), Round.NONE, null);
+            }
+        }
+        startRound(TargetSet.EMPTY, null);
+        arena.updateState(state -> state.withTeamRounds(null));
+        raceTargets.clear();
+    }
+
+    /**
+     * Helper to replace the current round with a new one, under the next epoch.
+     * Any claims still pending for the previous round become stale. The previous round is added to the round history.
+     * @param targets the targets for the new round
+     * @param winner the claim that won the previous round, or null if it was skipped or stopped
+     */
+    private synchronized void startRound(TargetSet targets, FindClaim winner) {
+        Round finishedRound = isRacing() ? Round.NONE : currentRound; // in a race, team rounds are recorded
+        recordFinishedRound(finishedRound, winner, targets.isEmpty());
+        this.lastEpoch++;
+        this.currentRound = new Round(lastEpoch, targets);
+        recordFlightEvents(finishedRound, currentRound, winner);
+
+        boolean drawn = getSettings().shouldPreventRepeatBlocks() && !targets.isEmpty();
+        arena.getJournal().record(new JournalEntry.Round(lastEpoch, targetNames(currentRound), drawn));
+    }
+
+    /**
+     * Helper to add a finished round to the round history, if the history is enabled and the round had targets.
+     * @param round the round that finished
+     * @param winner the claim that won the round, or null if it was not won
+     * @param stopped whether the game stopped after the round, rather than moving on to new targets
+     */
+    private void recordFinishedRound(Round round, FindClaim winner, boolean stopped) {
+        RoundHistory history = game.getRoundHistory();
+        if (history == null || round.getTargets().isEmpty()) {
+            return;
         }
 
-        while (currentTargets.size() < targetCount) {
-            int randomIndex = rng.nextInt(blockTypes.size());
-            Material randomBlockType = blockTypes.get(randomIndex);
-            currentTargets.add(randomBlockType); // no effect on HashSet if already present
+        RoundRecord.Outcome outcome = winner != null
+            ? RoundRecord.Outcome.FOUND
+            : stopped ? RoundRecord.Outcome.STOPPED : RoundRecord.Outcome.SKIPPED;
+        history.record(new RoundRecord(
+            arena.getName(), round.getEpoch(), round.getStartTimeMillis(), System.currentTimeMillis(), targetNames(round),
+            outcome,
+            winner == null ? null : winner.finder().getUniqueId(),
+            winner == null ? null : winner.team().getName(),
+            winner == null ? null : winner.foundBlockType().name()
+        ));
+    }
+
+    /**
+     * Helper to emit flight recorder events for a round ending and the next one starting.
+     * Target lists are only built while a recording wants them.
+     * @param finishedRound the round that ended
+     * @param newRound the round that started
+     * @param winner the claim that won the finished round, or null if it was not won
+     */
+    private void recordFlightEvents(Round finishedRound, Round newRound, FindClaim winner) {
+        FlightEvents flightEvents = game.getFlightEvents();
+        if (!flightEvents.isRecordingRounds()) {
+            return;
+        }
+        if (!finishedRound.getTargets().isEmpty()) {
+            String outcome = winner != null ? "FOUND" : newRound.getTargets().isEmpty() ? "STOPPED" : "SKIPPED";
+            flightEvents.roundEnd(
+                arena.getName(), finishedRound.getEpoch(), String.join(",", targetNames(finishedRound)), outcome,
+                System.currentTimeMillis() - finishedRound.getStartTimeMillis()
+            );
+        }
+        if (!newRound.getTargets().isEmpty()) {
+            flightEvents.roundStart(arena.getName(), newRound.getEpoch(), String.join(",", targetNames(newRound)));
+        }
+    }
 
-            if (shouldPreventRepeatBlocks) {
-                blockTypes.remove(randomIndex);
+    /**
+     * Helper to get the names of a round's target block types, in display order.
+     * @param round the round to get the targets of
+     * @return the names of the targets
+     */
+    private static List<String> targetNames(Round round) {
+        List<String> targetNames = new ArrayList<>(round.getTargets().size());
+        for (Material target : round.getTargets().asList()) {
+            targetNames.add(target.name());
+        }
+        return targetNames;
+    }
+
+    /**
+     * Restore a saved round, removing block types that were already used from the candidates.
+     * Block types must be loaded first. The restored round keeps its saved epoch, so epochs keep increasing.
+     * @param epoch the epoch of the saved round
+     * @param targets the saved target block types, or an empty list if the game was stopped
+     * @param usedBlockTypes the block types that had been used since the candidates were last refilled
+     */
+    public synchronized void restoreRound(long epoch, List<Material> targets, Collection<Material> usedBlockTypes) {
+        if (blockTypes != null && getSettings().shouldPreventRepeatBlocks()) {
+            for (Material usedBlockType : usedBlockTypes) {
+                blockTypes.take(usedBlockType);
             }
         }
+        this.lastEpoch = Math.max(lastEpoch, epoch);
+        this.currentRound = new Round(lastEpoch, new TargetSet(targets.toArray(new Material[0])));
+        if (schedule != null) {
+            schedule.reset(blockTypes, lastEpoch + 1);
+        }
+        arena.updateState(state -> state.withTeamRounds(null));
+        if (getSettings().getTargetMode() == TargetMode.RACE && !targets.isEmpty()) {
+            startRace(); // race progress is not saved, so the race starts again from the restored targets
+        }
     }
 
     /**
-     * Clear the current target block types.
+     * Get the number of target block types selected for each round.
+     * @return the number of targets per round
      */
-    public void clearTargets() {
-        currentTargets.clear();
+    public int getTargetCount() {
+        return getSettings().getTargetCount();
     }
 
     /**
@@ -120,7 +388,7 @@ public class BlockManager {
      * @return True if there are active targets, false otherwise.
      */
     public boolean hasCurrentTargets() {
-        return !currentTargets.isEmpty();
+        return !currentRound.getTargets().isEmpty();
     }
 
     /**
@@ -129,28 +397,124 @@ public class BlockManager {
      * @return True if the block type is a target, false otherwise.
      */
     public boolean isTarget(Material blockType) {
-        return currentTargets.contains(blockType);
+        return currentRound.getTargets().contains(blockType);
+    }
+
+    /**
+     * Get a snapshot of the current target block types.
+     * The snapshot is immutable, so callers can hold onto it while checking several blocks.
+     * @return the current targets, or an empty set if there are none
+     */
+    public TargetSet getCurrentTargets() {
+        return currentRound.getTargets();
+    }
+
+    /**
+     * Get the current round, including its epoch and targets.
+     * In a race, this is the first round, which every team started on.
+     * @return the current round, or an empty round if no game is running
+     */
+    public Round getCurrentRound() {
+        return currentRound;
+    }
+
+    /**
+     * Check if a race is running, where each team has its own round.
+     * @return true if a race is running, false otherwise
+     */
+    public boolean isRacing() {
+        return arena.getState().getTeamRounds() != null;
+    }
+
+    /**
+     * Get the round a player is playing. In a race, this is the round of the player's team, found by team index
+     * without locking or allocating. Otherwise, and for players who are not on a team, it is the current round.
+     * May be called from any thread.
+     * @param player the player to get the round of
+     * @return the player's round, or an empty round if no game is running
+     */
+    public Round getRound(Player player) {
+        ArenaState state = arena.getState(); // read once, so the team index and the team rounds belong together
+        TeamRounds race = state.getTeamRounds();
+        if (race == null) {
+            return currentRound;
+        }
+        int teamIndex = state.getTeamIndex(player.getUniqueId());
+        return teamIndex < 0 ? currentRound : race.get(teamIndex);
+    }
+
+    /**
+     * Get the round of a team in a race.
+     * If the teams were reloaded since the team was looked up, this is the round of the team with the same name.
+     * @param team the team to get the round of
+     * @return the team's round, whose epoch is its round number, or null if no race is running
+     */
+    public Round getTeamRound(Team team) {
+        ArenaState state = arena.getState();
+        TeamRounds race = state.getTeamRounds();
+        if (race == null) {
+            return null;
+        }
+        Team currentTeam = state.resolve(team);
+        return currentTeam == null ? Round.NONE : race.get(currentTeam.getIndex());
+    }
+
+    /**
+     * Check if a round is still being played: the team's round in a race, or the current round otherwise.
+     * @param round the round to check
+     * @param team the team that played the round
+     * @return true if the round has not ended, false otherwise
+     */
+    boolean isCurrentRound(Round round, Team team) {
+        ArenaState state = arena.getState();
+        TeamRounds race = state.getTeamRounds();
+        if (race == null) {
+            return round == currentRound;
+        }
+        Team currentTeam = state.resolve(team);
+        return currentTeam != null && race.get(currentTeam.getIndex()) == round;
     }
 
     /**
      * Handle a player finding one of the current target block types.
+     * This may be called from any region thread. The find is stamped with the current tick and time and claims the
+     * round it was found in. Claims for a round that has already ended, or already has a winner, are dropped without
+     * touching scores or targets. Depending on the tie-break policy, the winner is either the first claim to arrive
+     * or the best claim made in the same tick, chosen at the start of the next tick.
+     * With first-arrival, the winning find is scored right away. Otherwise, it is scored on the global thread once
+     * the tick is over. Either way, selecting new targets and announcing the find happen later, in the stages of a
+     * RoundTransition, so the event handler does the same small amount of work no matter how many players are online.
      * @param finder The player who found the block type.
      * @param foundBlockType The type of block that was found.
+     * @param round The round that the block type was found in.
      */
-    public void handleFoundBlock(Player finder, Material foundBlockType) {
-        String foundBlockDisplayName = Formatting.toTitleCase(foundBlockType.name());
-        if (processingFound) {
-            plugin.getLogger().warning(
-                String.format(
-                    "Double count detected and prevented for player %s finding block %s.",
-                    finder.getName(), foundBlockDisplayName
-                )
-            );
-            return;
+    public void handleFoundBlock(Player finder, Material foundBlockType, Round round) {
+        long startNanos = System.nanoTime();
+        try {
+            claimFoundBlock(finder, foundBlockType, round);
+        } finally {
+            game.getPerformanceStats().record(PerformanceStats.Operation.FOUND_BLOCK, startNanos);
         }
-        this.processingFound = true;
-        boolean status = plugin.getTeamManager().addPoint(finder);
-        if (!status) {
+    }
+
+    /**
+     * Helper to claim a round for a player who found one of its targets, once the find has been timed.
+     * @param finder The player who found the block type.
+     * @param foundBlockType The type of block that was found.
+     * @param round The round that the block type was found in.
+     */
+    private void claimFoundBlock(Player finder, Material foundBlockType, Round round) {
+        ArenaState state = arena.getState(); // read once, so the finder's team and its round belong together
+        TeamRounds race = state.getTeamRounds();
+        TieBreakPolicy tieBreakPolicy = race == null
+            ? state.getSettings().getTieBreakPolicy()
+            : TieBreakPolicy.FIRST_ARRIVAL;
+        if ((race == null && round != currentRound) || (tieBreakPolicy.resolvesImmediately() && round.isClaimed())) {
+            return; // the round has ended or already has a winner
+        }
+
+        Team team = state.getPlayerTeam(finder.getUniqueId());
+        if (team == null) {
             finder.sendMessage(
                 Component.text("You found a target block, but you need to join a team first!", Colors.WARNING)
                     .appendNewline()
@@ -160,63 +524,95 @@ public class BlockManager {
                     .append(Component.text("/bfteams join <team name>", Colors.COMMAND))
                     .append(Component.text(" to join one.", Colors.DEFAULT))
             );
-            this.processingFound = false;
             return;
         }
+        if (race != null && race.get(team.getIndex()) != round) {
+            return; // the team has moved on from the round, or the round is not the team's
+        }
 
-        selectNewTargets();
+        FindClaim claim = new FindClaim(
+            round.getEpoch(), finder, team, foundBlockType, game.getServer().getCurrentTick(), System.nanoTime()
+        );
+        if (tieBreakPolicy.resolvesImmediately()) {
+            boolean isFirst = round.claimFirst(claim);
+            recordClaim(claim, isFirst);
+            if (isFirst) {
+                completeRound(round, claim);
+            }
+            return;
+        }
 
-        Component playerDisplayName = plugin.getTeamManager().getPlayerDisplayName(finder);
-        Component teamDisplayName = plugin.getTeamManager().getPlayerTeam(finder).getDisplayName();
-        Component message = createFoundBlockMessage(playerDisplayName, teamDisplayName, foundBlockDisplayName);
-        plugin.getServer().sendMessage(message);
-        this.processingFound = false;
+        boolean isFirst = round.offer(claim, tieBreakPolicy);
+        recordClaim(claim, isFirst);
+        if (isFirst) {
+            Scheduling.runGlobal(game.getPlugin(), () -> {
+                FindClaim winner = round.seal();
+                if (winner != null) {
+                    completeRound(round, winner);
+                }
+            });
+        }
     }
 
     /**
-     * Helper to create an alert message when a player finds a target block.
-     * @param playerDisplayName the name of the player who found the block
-     * @param teamDisplayName the name of the team the player belongs to
-     * @param foundBlockDisplayName the display name of the found block type
-     * @return A Component containing the formatted message.
+     * Helper to emit a flight recorder event for a claim.
+     * @param claim the claim that was made
+     * @param isFirst whether it was the first claim of its round
      */
-    private Component createFoundBlockMessage(
-        Component playerDisplayName, Component teamDisplayName, String foundBlockDisplayName
-    ) {
-        Component message =  Component.text("Player ", Colors.HEADER)
-            .append(playerDisplayName)
-            .append(Component.text(" of team ", Colors.HEADER))
-            .append(teamDisplayName)
-            .append(Component.text(" has found ", Colors.HEADER))
-            .append(Component.text(foundBlockDisplayName, Colors.FOUND_BLOCK))
-            .append(Component.text("!", Colors.HEADER))
-            .appendNewline();
+    private void recordClaim(FindClaim claim, boolean isFirst) {
+        game.getFlightEvents().findClaim(
+            arena.getName(), claim.epoch(), claim.finder().getName(), claim.foundBlockType().name(), claim.tick(), isFirst
+        );
+    }
 
-        if (showScoresOnFound) {
-            message = message.append(plugin.getTeamManager().createScoresListMessage()).appendNewline();
+    /**
+     * Helper to score the winning claim of a round and start moving on to the next round.
+     * Does nothing if the round was skipped or stopped before the claim was settled.
+     * @param round the round that was won
+     * @param claim the winning claim
+     */
+    private void completeRound(Round round, FindClaim claim) {
+        if (!isCurrentRound(round, claim.team())) {
+            return;
         }
+        arena.getTeamManager().addPoint(claim.team());
+        game.getPerformanceStats().countFind(System.currentTimeMillis() - round.getStartTimeMillis());
+        new RoundTransition(game, arena, round, claim, isRacing()).start();
+    }
 
-        return message.append(Component.text("New target blocks:", Colors.HEADER))
-            .appendNewline()
-            .append(createTargetListMessage());
+    /**
+     * Start the next round after a round was won, unless the round already ended some other way.
+     * In a race, only the winning team moves on. Runs on the global thread, as the first stage of a RoundTransition.
+     * @param round the round that was won
+     * @param claim the winning claim
+     * @return the new round, or null if the won round was no longer current or no targets could be selected
+     */
+    synchronized Round startNextRound(Round round, FindClaim claim) {
+        ArenaState state = arena.getState();
+        TeamRounds race = state.getTeamRounds();
+        Team team = state.resolve(claim.team());
+        if (race == null ? round != currentRound : team == null || race.get(team.getIndex()) != round) {
+            return null;
+        }
+        try {
+            if (race != null) {
+                return advanceTeam(race, team.getIndex(), round, claim);
+            }
+            selectNewTargets(claim);
+        } catch (IllegalStateException e) {
+            game.getLogger().warning(e.getMessage());
+            return null;
+        }
+        return currentRound;
     }
 
     /**
      * Create a component displaying a list of the current target block types.
+     * The list is rendered once per round and reused until the targets change.
      * @return A Component containing the target block types.
      */
     public Component createTargetListMessage() {
-        if (currentTargets.isEmpty()) {
-            return Component.empty();
-        }
-
-        Component message = Component.empty();
-        for (Material blockType : currentTargets) {
-            message = message.append(Component.text("  * ", Colors.DEFAULT))
-                .append(Component.text(Formatting.toTitleCase(blockType.name()), Colors.TARGET_BLOCK))
-                .appendNewline();
-        }
-        return message;
+        return currentRound.getTargets().getListMessage();
     }
 
 }
@@ -0,0 +1,146 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
+import net.kyori.adventure.text.Component;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivers game announcements to the players in an arena, spread across ticks.
+ * Each announcement is rendered and compacted once, logged to the console right away, and then sent to at most
+ * a configured number of players per tick, so announcing a find on a busy server never causes a tick spike.
+ * Announcements are delivered in the order they were made. All delivery happens on the global thread.
+ */
+public class Broadcaster {
+
+    private final static int DEFAULT_MESSAGES_PER_TICK = 100;
+
+    private final BlockFinderGame game;
+    private final int messagesPerTick;
+    private final ArrayDeque<Delivery> deliveries; // only used on the global thread
+    private ScheduledTask task;
+
+    /**
+     * Initialize the Broadcaster with user-defined settings.
+     * @param game The game this broadcaster is connected to.
+     * @param config The configuration section containing game settings.
+     */
+    public Broadcaster(BlockFinderGame game, ConfigurationSection config) {
+        this.game = game;
+        this.deliveries = new ArrayDeque<>();
+        this.task = null;
+
+        int configMessagesPerTick = config.getInt("broadcastMessagesPerTick", DEFAULT_MESSAGES_PER_TICK);
+        if (configMessagesPerTick < 1) {
+            game.getLogger().warning("Invalid broadcast budget. Cannot be less than 1 message per tick. Using default.");
+            this.messagesPerTick = DEFAULT_MESSAGES_PER_TICK;
+        } else {
+            this.messagesPerTick = configMessagesPerTick;
+        }
+    }
+
+    /**
+     * Start delivering announcements every tick.
+     */
+    public synchronized void start() {
+        if (task == null) {
+            this.task = Scheduling.runGlobalAtFixedRate(game.getPlugin(), this::deliver, 1L);
+        }
+    }
+
+    /**
+     * Stop delivering announcements over time, and deliver any that are still pending right away.
+     * Should only be called from the global thread, such as while the plugin is disabling.
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel();
+            this.task = null;
+        }
+        while (!deliveries.isEmpty()) {
+            deliveries.peek().deliver(Integer.MAX_VALUE);
+            deliveries.poll();
+        }
+    }
+
+    /**
+     * Announce a message to everyone in an arena: the console and all online players in the arena's worlds.
+     * May be called from any thread. Recipients are chosen on the global thread when the announcement is queued.
+     * @param arena the arena to announce to
+     * @param message the message to announce
+     */
+    public void broadcast(Arena arena, Component message) {
+        Component compactMessage = message.compact();
+        Scheduling.runGlobal(game.getPlugin(), () -> {
+            game.getServer().getConsoleSender().sendMessage(compactMessage);
+
+            List<Player> recipients = new ArrayList<>();
+            for (Player player : game.getServer().getOnlinePlayers()) {
+                if (arena.isPlayedIn(player.getWorld())) {
+                    recipients.add(player);
+                }
+            }
+            if (!recipients.isEmpty()) {
+                deliveries.add(new Delivery(compactMessage, recipients.toArray(new Player[0])));
+            }
+        });
+    }
+
+    /**
+     * Helper to send pending announcements to as many players as the per-tick budget allows.
+     * Runs on the global thread every tick.
+     */
+    private void deliver() {
+        int budget = messagesPerTick;
+        while (budget > 0 && !deliveries.isEmpty()) {
+            Delivery delivery = deliveries.peek();
+            budget -= delivery.deliver(budget);
+            if (delivery.isDone()) {
+                deliveries.poll();
+            }
+        }
+    }
+
+    /**
+     * An announcement that is partway through being delivered to its recipients.
+     */
+    private static final class Delivery {
+
+        private final Component message;
+        private final Player[] recipients;
+        private int next;
+
+        private Delivery(Component message, Player[] recipients) {
+            this.message = message;
+            this.recipients = recipients;
+            this.next = 0;
+        }
+
+        /**
+         * Send the message to the next recipients, skipping any who have gone offline.
+         * @param budget the maximum number of recipients to send to
+         * @return the number of recipients the message was sent to
+         */
+        private int deliver(int budget) {
+            int sent = 0;
+            while (sent < budget && next < recipients.length) {
+                Player recipient = recipients[next++];
+                if (recipient.isOnline()) {
+                    recipient.sendMessage(message);
+                    sent++;
+                }
+            }
+            return sent;
+        }
+
+        private boolean isDone() {
+            return next >= recipients.length;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+/**
+ * A player's claim to have found one of the targets of a round.
+ * @param epoch the epoch of the round being claimed
+ * @param finder the player who found the target
+ * @param team the finder's team when the claim was made
+ * @param foundBlockType the target block type that was found
+ * @param tick the server tick in which the find event arrived
+ * @param nanoTime the value of System.nanoTime() when the find event arrived
+ */
+public record FindClaim(long epoch, Player finder, Team team, Material foundBlockType, int tick, long nanoTime) {
+}
@@ -0,0 +1,227 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The team index of each member of an arena, keyed by player UUID.
+ * <p>
+ * Entries are stored in three parallel primitive arrays with linear probing, so a membership costs 20 bytes
+ * no matter how often the player joins and leaves the server, and nothing holds on to Player objects. Removal
+ * shifts later entries back instead of leaving tombstones, so the table never fills up with deleted slots.
+ * <p>
+ * A table is never changed once it is published. Every change returns a new table with copied arrays, so lookups
+ * can run on any region thread without locking, including on every sneak in a race. Memberships only change when
+ * players join or leave teams, so copying on those changes is cheap next to the lookups it keeps lock-free.
+ */
+final class MembershipTable {
+
+    /**
+     * Receives the entries of the table.
+     */
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(UUID player, int teamIndex);
+    }
+
+    private static final int NO_TEAM = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * A table with no memberships.
+     */
+    static final MembershipTable EMPTY = new MembershipTable(INITIAL_CAPACITY);
+
+    private final long[] mostSignificantBits;
+    private final long[] leastSignificantBits;
+    private final int[] teamIndexes; // NO_TEAM for empty slots
+    private int size; // only changed while a new table is being built, before it is published
+
+    private MembershipTable(int capacity) {
+        this.mostSignificantBits = new long[capacity];
+        this.leastSignificantBits = new long[capacity];
+        this.teamIndexes = new int[capacity];
+        Arrays.fill(teamIndexes, NO_TEAM);
+        this.size = 0;
+    }
+
+    private MembershipTable(MembershipTable source) {
+        this.mostSignificantBits = source.mostSignificantBits.clone();
+        this.leastSignificantBits = source.leastSignificantBits.clone();
+        this.teamIndexes = source.teamIndexes.clone();
+        this.size = source.size;
+    }
+
+    /**
+     * Get the team index of a player.
+     * @param player the UUID of the player
+     * @return the player's team index, or -1 if the player is not on a team
+     */
+    int get(UUID player) {
+        int slot = findSlot(player.getMostSignificantBits(), player.getLeastSignificantBits());
+        return teamIndexes[slot];
+    }
+
+    /**
+     * Create a table where a player is on a team.
+     * @param player the UUID of the player
+     * @param teamIndex the index of the player's team, at least 0
+     * @return the new table, or this table if the player was already on the team
+     */
+    MembershipTable with(UUID player, int teamIndex) {
+        if (get(player) == teamIndex) {
+            return this;
+        }
+        MembershipTable table = copyFor(size + 1);
+        table.put(player.getMostSignificantBits(), player.getLeastSignificantBits(), teamIndex);
+        return table;
+    }
+
+    /**
+     * Create a table where several players are on teams, copying the arrays only once.
+     * @param teamIndexesByPlayer the index of each player's team, at least 0
+     * @return the new table
+     */
+    MembershipTable withAll(Map<UUID, Integer> teamIndexesByPlayer) {
+        MembershipTable table = copyFor(size + teamIndexesByPlayer.size());
+        for (Map.Entry<UUID, Integer> membership : teamIndexesByPlayer.entrySet()) {
+            UUID player = membership.getKey();
+            table.put(player.getMostSignificantBits(), player.getLeastSignificantBits(), membership.getValue());
+        }
+        return table;
+    }
+
+    /**
+     * Create a table where a player is not on a team.
+     * @param player the UUID of the player
+     * @return the new table, or this table if the player was not on a team
+     */
+    MembershipTable without(UUID player) {
+        int slot = findSlot(player.getMostSignificantBits(), player.getLeastSignificantBits());
+        if (teamIndexes[slot] == NO_TEAM) {
+            return this;
+        }
+        MembershipTable table = new MembershipTable(this);
+        table.delete(slot);
+        return table;
+    }
+
+    /**
+     * Create a table where every member is moved to a new team index, such as when the teams are reloaded in a
+     * different order. Members whose team has no new index are left out.
+     * @param newIndexes the new index of each team by its old index, or -1 for teams that no longer exist
+     * @return the new table
+     */
+    MembershipTable remap(int[] newIndexes) {
+        MembershipTable table = new MembershipTable(teamIndexes.length);
+        for (int slot = 0; slot < teamIndexes.length; slot++) {
+            if (teamIndexes[slot] == NO_TEAM) {
+                continue;
+            }
+            int newIndex = teamIndexes[slot] < newIndexes.length ? newIndexes[teamIndexes[slot]] : NO_TEAM;
+            if (newIndex != NO_TEAM) {
+                table.put(mostSignificantBits[slot], leastSignificantBits[slot], newIndex);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Call a consumer with every player and their team index, in no particular order.
+     * @param consumer the consumer to call
+     */
+    void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < teamIndexes.length; slot++) {
+            if (teamIndexes[slot] != NO_TEAM) {
+                consumer.accept(new UUID(mostSignificantBits[slot], leastSignificantBits[slot]), teamIndexes[slot]);
+            }
+        }
+    }
+
+    /**
+     * Get the number of players on any team.
+     * @return the number of memberships in the table
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Helper to copy this table into a new one, with room for a number of entries at a load factor of at most 3/4.
+     */
+    private MembershipTable copyFor(int entries) {
+        int capacity = teamIndexes.length;
+        while (entries * 4 > capacity * 3) {
+            capacity *= 2;
+        }
+        if (capacity == teamIndexes.length) {
+            return new MembershipTable(this);
+        }
+
+        MembershipTable table = new MembershipTable(capacity);
+        for (int slot = 0; slot < teamIndexes.length; slot++) {
+            if (teamIndexes[slot] != NO_TEAM) {
+                table.put(mostSignificantBits[slot], leastSignificantBits[slot], teamIndexes[slot]);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Helper to set the team index of a key in a table that has not been published yet, and has room for it.
+     */
+    private void put(long most, long least, int teamIndex) {
+        int slot = findSlot(most, least);
+        if (teamIndexes[slot] == NO_TEAM) {
+            mostSignificantBits[slot] = most;
+            leastSignificantBits[slot] = least;
+            size++;
+        }
+        teamIndexes[slot] = teamIndex;
+    }
+
+    /**
+     * Helper to empty a slot in a table that has not been published yet.
+     */
+    private void delete(int slot) {
+        // shift later entries of the same probe run back, so lookups never stop early at the emptied slot
+        int mask = teamIndexes.length - 1;
+        int empty = slot;
+        int next = (slot + 1) & mask;
+        while (teamIndexes[next] != NO_TEAM) {
+            int home = hash(mostSignificantBits[next], leastSignificantBits[next]) & mask;
+            boolean canMove = ((next - home) & mask) >= ((next - empty) & mask);
+            if (canMove) {
+                mostSignificantBits[empty] = mostSignificantBits[next];
+                leastSignificantBits[empty] = leastSignificantBits[next];
+                teamIndexes[empty] = teamIndexes[next];
+                empty = next;
+            }
+            next = (next + 1) & mask;
+        }
+        teamIndexes[empty] = NO_TEAM;
+        size--;
+    }
+
+    /**
+     * Helper to find the slot holding a key, or the empty slot where it would be inserted.
+     */
+    private int findSlot(long most, long least) {
+        int mask = teamIndexes.length - 1;
+        int slot = hash(most, least) & mask;
+        while (teamIndexes[slot] != NO_TEAM
+            && (mostSignificantBits[slot] != most || leastSignificantBits[slot] != least)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(long most, long least) {
+        long h = most ^ least;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
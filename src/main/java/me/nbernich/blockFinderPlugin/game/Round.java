@@ -0,0 +1,128 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A single round of the game: a set of targets, numbered by an epoch that increases every time the targets change.
+ * Exactly one find can win a round. Claims are settled with compare-and-set, so finds arriving concurrently on
+ * different region threads are arbitrated without locking, and claims for an older round can be rejected by
+ * comparing a reference.
+ */
+public final class Round {
+
+    /**
+     * A round with no targets, used while no game is running.
+     */
+    public static final Round NONE = new Round(0, TargetSet.EMPTY);
+
+    private static final FindClaim SEALED = new FindClaim(-1, null, null, null, -1, 0); // no more claims accepted
+
+    private final long epoch;
+    private final TargetSet targets;
+    private final long startTimeMillis;
+    private final AtomicReference<FindClaim> claim;
+    private final AtomicInteger claimCount; // claims offered so far, for random tie-breaks
+
+    /**
+     * Create a new, unclaimed round.
+     * @param epoch the epoch of the round, which must be greater than the previous round's
+     * @param targets the targets for the round
+     */
+    public Round(long epoch, TargetSet targets) {
+        this.epoch = epoch;
+        this.targets = targets;
+        this.startTimeMillis = System.currentTimeMillis();
+        this.claim = new AtomicReference<>(null);
+        this.claimCount = new AtomicInteger(0);
+    }
+
+    /**
+     * Get the epoch of the round.
+     * @return the epoch of the round
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Get the targets for the round.
+     * @return the targets for the round
+     */
+    public TargetSet getTargets() {
+        return targets;
+    }
+
+    /**
+     * Get the time the round started.
+     * @return the start time, in milliseconds since the epoch
+     */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * Check if any find has claimed this round, whether or not the winner has been decided yet.
+     * @return true if the round has been claimed, false otherwise
+     */
+    public boolean isClaimed() {
+        return claim.get() != null;
+    }
+
+    /**
+     * Claim the round if nobody else has. Used when the first find to arrive always wins.
+     * @param findClaim the claim to make
+     * @return true if this claim won the round, false if the round was already claimed
+     */
+    public boolean claimFirst(FindClaim findClaim) {
+        return claim.compareAndSet(null, findClaim);
+    }
+
+    /**
+     * Offer a claim that competes with other claims made in the same tick, using a tie-break policy.
+     * Claims from a later tick than the current leader, or made after the round was sealed, are rejected.
+     * @param findClaim the claim to offer
+     * @param policy the policy that decides between claims in the same tick
+     * @return true if this was the first claim, in which case the caller must seal the round on a later tick
+     */
+    public boolean offer(FindClaim findClaim, TieBreakPolicy policy) {
+        int seen = claimCount.incrementAndGet();
+        boolean randomlyChosen = ThreadLocalRandom.current().nextInt(seen) == 0; // reservoir sampling
+        while (true) {
+            FindClaim current = claim.get();
+            if (current == null) {
+                if (claim.compareAndSet(null, findClaim)) {
+                    return true;
+                }
+                continue;
+            }
+            if (current == SEALED || current.tick() != findClaim.tick()) {
+                return false;
+            }
+
+            boolean preferred = switch (policy) {
+                case FIRST_ARRIVAL -> findClaim.nanoTime() < current.nanoTime();
+                case RANDOM -> randomlyChosen;
+                case TRAILING_TEAM -> {
+                    int challengerScore = findClaim.team().getScore();
+                    int currentScore = current.team().getScore();
+                    yield challengerScore < currentScore
+                        || (challengerScore == currentScore && findClaim.nanoTime() < current.nanoTime());
+                }
+            };
+            if (!preferred || claim.compareAndSet(current, findClaim)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Stop accepting claims and take the winning claim, if any.
+     * @return the winning claim, or null if nobody claimed the round or it was already sealed
+     */
+    public FindClaim seal() {
+        FindClaim winner = claim.getAndSet(SEALED);
+        return winner == SEALED ? null : winner;
+    }
+}
@@ -0,0 +1,157 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.utils.Colors;
+import me.nbernich.blockFinderPlugin.utils.MaterialNames;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+/**
+ * The work of moving an arena on to its next round, once a find has won the current round and been scored.
+ * <p>
+ * The work is split into stages that run on the global thread, one tick apart: selecting the next targets, rendering
+ * the announcement, queueing it for broadcast, and refreshing the scoreboard. The sneak handler only claims the round
+ * and scores the find, so its cost does not depend on how many players or teams there are.
+ * <p>
+ * In a race, only the finder's team moves on. The find is announced to the whole arena, and the team's new targets
+ * are sent only to its online members.
+ * <p>
+ * A transition is superseded when the arena's round changes some other way before it finishes, such as a skip, a
+ * stop, or a find in the next round. Its remaining stages then skip ahead: the find is announced on its own, without
+ * a target list that is already out of date, and refreshing the display is left to whatever superseded it.
+ */
+final class RoundTransition {
+
+    /**
+     * A stage of a transition, in the order they run.
+     */
+    private enum Stage {
+        SELECT,
+        RENDER,
+        BROADCAST,
+        DISPLAY
+    }
+
+    private final BlockFinderGame game;
+    private final Arena arena;
+    private final Round wonRound;
+    private final FindClaim claim;
+    private final boolean isRace;
+    private Stage stage;
+    private Round nextRound; // the round this transition started, or null if it was superseded before starting one
+    private Component message;
+    private Component teamMessage; // the team's new targets in a race, or null
+
+    /**
+     * Create a transition out of a round that was won.
+     * @param game the game, used to schedule the stages
+     * @param arena the arena the round was played in
+     * @param wonRound the round that was won
+     * @param claim the winning claim, which has already been scored
+     * @param isRace whether the round was a team's round in a race
+     */
+    RoundTransition(BlockFinderGame game, Arena arena, Round wonRound, FindClaim claim, boolean isRace) {
+        this.game = game;
+        this.arena = arena;
+        this.wonRound = wonRound;
+        this.claim = claim;
+        this.isRace = isRace;
+        this.stage = Stage.SELECT;
+        this.nextRound = null;
+        this.message = null;
+        this.teamMessage = null;
+    }
+
+    /**
+     * Start the transition. The first stage runs on the global thread as soon as possible, and each stage schedules
+     * the next. May be called from any thread.
+     */
+    void start() {
+        Scheduling.runGlobal(game.getPlugin(), this::runStage);
+    }
+
+    /**
+     * Helper to run the current stage and schedule the next one. Runs on the global thread.
+     */
+    private void runStage() {
+        if (stage != Stage.SELECT && isSuperseded()) {
+            if (stage != Stage.DISPLAY) {
+                arena.broadcast(createFoundBlockMessage(false)); // the find has not been announced yet
+            }
+            return;
+        }
+
+        switch (stage) {
+            case SELECT -> {
+                this.nextRound = arena.getBlockManager().startNextRound(wonRound, claim);
+                this.stage = Stage.RENDER;
+            }
+            case RENDER -> {
+                this.message = createFoundBlockMessage(!isRace);
+                if (isRace) {
+                    this.teamMessage = Component.text("Your team's new target blocks:", Colors.HEADER)
+                        .appendNewline()
+                        .append(nextRound.getTargets().getListMessage());
+                }
+                this.stage = Stage.BROADCAST;
+            }
+            case BROADCAST -> {
+                arena.broadcast(message);
+                if (teamMessage != null) {
+                    for (Player member : arena.getTeamManager().getOnlineMembers(claim.team())) {
+                        member.sendMessage(teamMessage);
+                    }
+                }
+                this.stage = Stage.DISPLAY;
+            }
+            case DISPLAY -> {
+                arena.getTeamManager().refreshScoreboard();
+                return;
+            }
+        }
+        Scheduling.runGlobal(game.getPlugin(), this::runStage);
+    }
+
+    /**
+     * Helper to check if the arena has moved past the round this transition started.
+     * @return true if the transition did not start a round, or its round is no longer current
+     */
+    private boolean isSuperseded() {
+        return nextRound == null || !arena.getBlockManager().isCurrentRound(nextRound, claim.team());
+    }
+
+    /**
+     * Helper to create an alert message when a player finds a target block.
+     * In a race, the message also says which round the finder's team has reached.
+     * @param includeTargets whether to list the new targets, which are already rendered
+     * @return A Component containing the formatted message.
+     */
+    private Component createFoundBlockMessage(boolean includeTargets) {
+        TeamManager teamManager = arena.getTeamManager();
+        Component message = Component.text("Player ", Colors.HEADER)
+            .append(teamManager.getPlayerDisplayName(claim.finder()))
+            .append(Component.text(" of team ", Colors.HEADER))
+            .append(claim.team().getDisplayName())
+            .append(Component.text(" has found ", Colors.HEADER))
+            .append(MaterialNames.getFoundComponent(claim.foundBlockType()))
+            .append(Component.text("!", Colors.HEADER));
+        if (isRace && nextRound != null) {
+            message = message.append(Component.text(" Their team is now on round ", Colors.HEADER))
+                .append(Component.text(nextRound.getEpoch(), Colors.DEFAULT))
+                .append(Component.text(".", Colors.HEADER));
+        }
+
+        if (arena.getBlockManager().getSettings().showScoresOnFound()) {
+            message = message.appendNewline().append(teamManager.createScoresListMessage());
+        }
+        if (!includeTargets) {
+            return message;
+        }
+
+        return message.appendNewline()
+            .append(Component.text("New target blocks:", Colors.HEADER))
+            .appendNewline()
+            .append(nextRound.getTargets().getListMessage());
+    }
+}
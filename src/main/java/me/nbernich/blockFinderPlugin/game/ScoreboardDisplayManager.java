@@ -1,40 +1,89 @@
 package me.nbernich.blockFinderPlugin.game;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.stats.PerformanceStats;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
 import net.kyori.adventure.text.Component;
-import org.bukkit.Bukkit;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
 import org.bukkit.scoreboard.*;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Manages the display of team scores in the sidebar scoreboard.
  * This manager should be enabled when the plugin is enabled, assuming useSidebarScoreboard in the config is true.
  * It should then be started/stopped when the game starts/stops.
+ * Each arena has its own scoreboard, which is shown to the members of that arena's teams while the game runs.
+ * Scores are written from the global thread and scoreboards are assigned from each player's thread,
+ * so callers on any region thread can request updates.
+ * Score changes only mark their team as dirty. While the display is running, a task on the global thread flushes
+ * dirty teams once per update interval, and only writes lines whose score actually changed, so a burst of changes
+ * (a reset, many finds in one tick) costs at most one update per team per interval.
  */
 public class ScoreboardDisplayManager {
 
     private final String OBJECTIVE_NAME = "blockFinderScoreDisplay";
+    private final static int DEFAULT_UPDATE_INTERVAL_TICKS = 1;
 
+    private final BlockFinderGame game;
+    private final ScoreboardManager manager;
     private final Scoreboard scoreboard;
     private final boolean enabled;
-    private Objective objective;
+    private final int updateIntervalTicks;
+    private final ConcurrentHashMap<String, Team> dirtyTeams; // by name, so a reloaded team replaces its old copy
+    private final HashMap<String, Integer> displayedScores; // only used on the global thread
+    private Objective displayedObjective; // the objective displayedScores belong to, only used on the global thread
+    private volatile Objective objective;
+    private ScheduledTask flushTask;
 
     /**
      * Initialzie the ScoreboardDisplayManager, which then initializes an empty scoreboard.
-     * If disabled in the configuration, future calls on the ScoreboardDisplayManager will do nothing.
-     * @param config The configuration file containing user-defined game settings.
+     * If disabled in the configuration, or if the server does not support scoreboards (as on Folia),
+     * future calls on the ScoreboardDisplayManager will do nothing.
+     * @param game The game this manager is connected to.
+     * @param config The configuration section containing user-defined game settings.
      */
-    public ScoreboardDisplayManager(FileConfiguration config) {
-        ScoreboardManager manager = Bukkit.getScoreboardManager();
-        this.scoreboard = manager.getMainScoreboard();
+    public ScoreboardDisplayManager(BlockFinderGame game, ConfigurationSection config) {
+        this.game = game;
+        this.manager = game.getServer().getScoreboardManager();
+        this.scoreboard = config.getBoolean("useSidebarScoreboard", false) ? createScoreboard() : null;
+        this.enabled = scoreboard != null;
+        this.dirtyTeams = new ConcurrentHashMap<>();
+        this.displayedScores = new HashMap<>();
         this.objective = null;
-        this.enabled = config.getBoolean("useSidebarScoreboard", false);
+        this.flushTask = null;
+
+        int configUpdateInterval = config.getInt("scoreboardUpdateIntervalTicks", DEFAULT_UPDATE_INTERVAL_TICKS);
+        if (configUpdateInterval < 1) {
+            game.getLogger().warning("Invalid scoreboard update interval. Cannot be less than 1 tick. Using default.");
+            this.updateIntervalTicks = DEFAULT_UPDATE_INTERVAL_TICKS;
+        } else {
+            this.updateIntervalTicks = configUpdateInterval;
+        }
+    }
+
+    /**
+     * Helper to create a new scoreboard for this display.
+     * @return a new scoreboard, or null if the server does not support scoreboards
+     */
+    private Scoreboard createScoreboard() {
+        try {
+            return manager.getNewScoreboard();
+        } catch (UnsupportedOperationException e) {
+            game.getLogger().warning("This server does not support scoreboards. The sidebar will be disabled.");
+            return null;
+        }
     }
 
     /**
      * Starts the on-screen scoreboard display, if enabled.
      * Should be used when the game starts.
      */
-    public void start() {
+    public synchronized void start() {
         if (!enabled || objective != null) {
             return;
         }
@@ -42,36 +91,132 @@ public class ScoreboardDisplayManager {
         if (existingObjective != null) {
             existingObjective.unregister();
         }
-        this.objective = scoreboard.registerNewObjective(
+        Objective newObjective = scoreboard.registerNewObjective(
             OBJECTIVE_NAME,
             Criteria.DUMMY,
             Component.text("Team Scores")
         );
-        objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+        newObjective.setDisplaySlot(DisplaySlot.SIDEBAR);
+        this.objective = newObjective;
+        this.flushTask = Scheduling.runGlobalAtFixedRate(game.getPlugin(), this::flush, updateIntervalTicks);
     }
 
     /**
      * Turns off the on-screen scoreboard display, if enabled.
      * Should be used when the game stops.
      */
-    public void stop() {
+    public synchronized void stop() {
         if (!enabled || objective == null) {
             return;
         }
+        if (flushTask != null) {
+            flushTask.cancel();
+            this.flushTask = null;
+        }
         objective.unregister();
         this.objective = null;
+        dirtyTeams.clear();
+    }
+
+    /**
+     * Show this scoreboard to a player, if the display is running.
+     * @param player the player who should see the scoreboard
+     */
+    public void show(Player player) {
+        if (!enabled || objective == null) {
+            return;
+        }
+        Scheduling.runForPlayer(game.getPlugin(), player, () -> player.setScoreboard(scoreboard));
+    }
+
+    /**
+     * Stop showing this scoreboard to a player, returning them to the server's main scoreboard.
+     * Players who are viewing a different scoreboard are left alone.
+     * @param player the player who should no longer see the scoreboard
+     */
+    public void hide(Player player) {
+        if (!enabled) {
+            return;
+        }
+        Scheduling.runForPlayer(game.getPlugin(), player, () -> {
+            if (player.getScoreboard() == scoreboard) {
+                player.setScoreboard(manager.getMainScoreboard());
+            }
+        });
     }
 
     /**
      * Sync the score for a team with the on-screen scoreboard.
+     * The team is marked as dirty, and its score at the next flush is written to the scoreboard.
      * @param team the team whose score to sync
      */
     public void syncScore(Team team) {
         if (!enabled || objective == null) {
             return;
         }
-        Score score = objective.getScore(team.getName());
-        score.setScore(team.getScore());
+        dirtyTeams.put(team.getName(), team);
     }
-    
+
+    /**
+     * Remove a team's line from the on-screen scoreboard, such as when the team is removed by a reload.
+     * @param team the team to remove
+     */
+    public void removeTeam(Team team) {
+        if (!enabled) {
+            return;
+        }
+        dirtyTeams.remove(team.getName());
+        Scheduling.runGlobal(game.getPlugin(), () -> {
+            Objective currentObjective = objective;
+            if (currentObjective != null) {
+                currentObjective.getScore(team.getName()).resetScore();
+            }
+            displayedScores.remove(team.getName());
+        });
+    }
+
+    /**
+     * Write the scores of dirty teams to the scoreboard now, such as right after a round is won, instead of waiting for
+     * the next update interval. Does nothing if the display is not running.
+     * Must be called on the global thread.
+     */
+    public void flushNow() {
+        flush();
+    }
+
+    /**
+     * Helper to write the scores of dirty teams to the scoreboard, skipping any that have not changed.
+     * Runs on the global thread once per update interval while the display is running.
+     */
+    private void flush() {
+        Objective currentObjective = objective;
+        if (currentObjective == null || dirtyTeams.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        int writtenCount = 0;
+        if (currentObjective != displayedObjective) {
+            displayedScores.clear(); // the display was restarted, so every line is new
+            this.displayedObjective = currentObjective;
+        }
+
+        for (Map.Entry<String, Team> entry : dirtyTeams.entrySet()) {
+            Team team = entry.getValue();
+            if (!dirtyTeams.remove(entry.getKey(), team)) {
+                continue; // replaced by a newer copy of the team, which is flushed instead
+            }
+
+            int newScore = team.getScore();
+            Integer displayedScore = displayedScores.get(team.getName());
+            if (displayedScore != null && displayedScore == newScore) {
+                continue;
+            }
+            currentObjective.getScore(team.getName()).setScore(newScore);
+            displayedScores.put(team.getName(), newScore);
+            writtenCount++;
+        }
+        game.getPerformanceStats().record(PerformanceStats.Operation.SCOREBOARD_FLUSH, startNanos);
+        game.getFlightEvents().scoreboardFlush(startNanos, writtenCount);
+    }
+
 }
@@ -0,0 +1,36 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import java.util.Locale;
+
+/**
+ * How the teams of an arena play for targets.
+ */
+public enum TargetMode {
+
+    /**
+     * Every team hunts the same targets, and a find moves every team on to new targets. This is the default.
+     */
+    SHARED,
+
+    /**
+     * Each team works through the same sequence of targets at its own pace, and a find only moves the finder's team
+     * on to its next targets.
+     */
+    RACE;
+
+    /**
+     * Parse a mode from its configuration name, such as "shared" or "race".
+     * @param name the name of the mode
+     * @return the matching mode, or null if there is none
+     */
+    public static TargetMode fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
+import org.bukkit.Material;
+
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+
+/**
+ * The upcoming rounds of an arena, drawn ahead of time from a seeded random source.
+ * <p>
+ * The targets of each round are drawn with a SplittableRandom seeded from the arena's target seed and the round's
+ * epoch, so the same seed, candidates and settings give the same sequence of targets, whether rounds are won or
+ * skipped. Up to LOOKAHEAD_ROUNDS rounds are drawn on a background thread, along with their rendered target lists,
+ * so starting a round only takes the next one off the queue. If the next round is not ready, it is drawn on the
+ * calling thread instead.
+ * <p>
+ * Rounds are drawn from a copy of the candidates, so block types drawn for rounds that have not started are not
+ * used up. Once a round is taken, the caller removes its targets from the real candidates. If the real candidates
+ * change in any other way, or a round is started under another epoch, the schedule is reset and drawn again from
+ * them.
+ * <p>
+ * Every method is synchronized, and the background thread holds the lock for one round at a time.
+ */
+final class TargetSchedule {
+
+    private static final int LOOKAHEAD_ROUNDS = 4;
+    private static final long EPOCH_SEED_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The targets of an upcoming round.
+     * @param epoch the epoch the round was drawn for
+     * @param targets the targets, with their list already rendered, or null if there were not enough block types
+     * @param refilled whether every used block type had to be returned to the candidates before drawing the targets
+     */
+    record ScheduledRound(long epoch, TargetSet targets, boolean refilled) {}
+
+    private final BlockFinderGame game;
+    private final long seed;
+    private final int targetCount;
+    private final boolean shouldPreventRepeatBlocks;
+    private final ArrayDeque<ScheduledRound> rounds;
+    private WeightedBag blockTypes; // a copy of the real candidates, advanced by every round drawn
+    private long nextEpoch; // the epoch of the next round to draw
+    private boolean isPrefetching;
+    private boolean isExhausted; // whether the last round drawn did not have enough block types
+
+    /**
+     * Create a schedule that draws rounds from a copy of the given candidates, and start drawing in the background.
+     * @param game the game, used to schedule background work
+     * @param settings the settings of the arena, for its target seed, target count and repeat prevention
+     * @param blockTypes the candidates to copy
+     * @param nextEpoch the epoch of the next round
+     */
+    TargetSchedule(BlockFinderGame game, ArenaSettings settings, WeightedBag blockTypes, long nextEpoch) {
+        this.game = game;
+        this.seed = settings.getTargetSeed();
+        this.targetCount = settings.getTargetCount();
+        this.shouldPreventRepeatBlocks = settings.shouldPreventRepeatBlocks();
+        this.rounds = new ArrayDeque<>(LOOKAHEAD_ROUNDS);
+        reset(blockTypes, nextEpoch);
+    }
+
+    /**
+     * Take the next round, drawing it now if it is not ready, and draw more rounds in the background.
+     * The caller must remove the round's targets from the real candidates, after refilling them if the round says so,
+     * so they stay the same as the copy the round was drawn from.
+     * @param epoch the epoch the round will start under
+     * @param blockTypes the real candidates, to draw again from if the schedule was drawn for another epoch
+     * @return the next round
+     */
+    synchronized ScheduledRound take(long epoch, WeightedBag blockTypes) {
+        ScheduledRound round = rounds.peekFirst();
+        if (round == null || round.epoch() != epoch) {
+            if (round != null || nextEpoch != epoch) {
+                reset(blockTypes, epoch);
+            }
+            drawNext();
+        }
+        round = rounds.pollFirst();
+        prefetch();
+        return round;
+    }
+
+    /**
+     * Discard every drawn round and draw them again from a copy of the given candidates.
+     * @param blockTypes the real candidates
+     * @param nextEpoch the epoch of the next round
+     */
+    synchronized void reset(WeightedBag blockTypes, long nextEpoch) {
+        this.blockTypes = new WeightedBag(blockTypes);
+        this.nextEpoch = nextEpoch;
+        this.isExhausted = false;
+        rounds.clear();
+        prefetch();
+    }
+
+    /**
+     * Helper to start drawing rounds in the background, unless they are already being drawn or there is no need.
+     */
+    private void prefetch() {
+        if (isPrefetching || isExhausted || rounds.size() >= LOOKAHEAD_ROUNDS) {
+            return;
+        }
+        this.isPrefetching = true;
+        Scheduling.runAsync(game.getPlugin(), this::fill);
+    }
+
+    /**
+     * Helper to draw rounds on a background thread until the queue is full, taking the lock for one round at a time
+     * so a round can be taken in between.
+     */
+    private void fill() {
+        while (true) {
+            synchronized (this) {
+                if (isExhausted || rounds.size() >= LOOKAHEAD_ROUNDS) {
+                    this.isPrefetching = false;
+                    return;
+                }
+                drawNext();
+            }
+        }
+    }
+
+    /**
+     * Helper to draw the next round from the copied candidates and render its target list, refilling the candidates
+     * first if needed.
+     */
+    private void drawNext() {
+        long epoch = nextEpoch++;
+        boolean refilled = false;
+        if (blockTypes.remaining() < targetCount) {
+            if (shouldPreventRepeatBlocks && blockTypes.capacity() >= targetCount) {
+                blockTypes.refill();
+                refilled = true;
+            } else {
+                this.isExhausted = true;
+                rounds.addLast(new ScheduledRound(epoch, null, false));
+                return;
+            }
+        }
+
+        SplittableRandom random = new SplittableRandom(seed ^ (epoch * EPOCH_SEED_GAMMA));
+        Material[] newTargets = shouldPreventRepeatBlocks
+            ? blockTypes.draw(targetCount, random)
+            : blockTypes.sample(targetCount, random);
+        TargetSet targets = new TargetSet(newTargets);
+        targets.getListMessage(); // render the list now, rather than when the round is announced
+        rounds.addLast(new ScheduledRound(epoch, targets, refilled));
+    }
+}
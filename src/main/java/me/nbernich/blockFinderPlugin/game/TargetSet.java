@@ -0,0 +1,98 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import me.nbernich.blockFinderPlugin.utils.Colors;
+import me.nbernich.blockFinderPlugin.utils.MaterialNames;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the target block types for a round.
+ * Targets are kept in selection order for display, and also as a bitmap indexed by Material ordinal,
+ * so checking whether a block type is a target costs a single array read and never boxes or hashes.
+ * Because a new snapshot is created whenever the targets change, it also caches the rendered target list.
+ */
+public final class TargetSet {
+
+    private static final int WORD_COUNT = (Material.values().length + 63) >>> 6;
+
+    /**
+     * A target set with no targets, used while no game is running.
+     */
+    public static final TargetSet EMPTY = new TargetSet(new Material[0]);
+
+    private final Material[] targets;
+    private final long[] bits;
+    private Component listMessage; // rendered on first use
+
+    /**
+     * Create a snapshot of the given target block types.
+     * @param targets the target block types, in the order they should be displayed
+     */
+    public TargetSet(Material[] targets) {
+        this.targets = targets.clone();
+        this.bits = new long[WORD_COUNT];
+        for (Material target : this.targets) {
+            int ordinal = target.ordinal();
+            bits[ordinal >>> 6] |= 1L << ordinal;
+        }
+    }
+
+    /**
+     * Check if a block type is one of the targets in this set.
+     * @param blockType the block material to check
+     * @return true if the block type is a target, false otherwise
+     */
+    public boolean contains(Material blockType) {
+        int ordinal = blockType.ordinal();
+        return (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Check if this set has no targets.
+     * @return true if there are no targets, false otherwise
+     */
+    public boolean isEmpty() {
+        return targets.length == 0;
+    }
+
+    /**
+     * Get the number of targets in this set.
+     * @return the number of targets
+     */
+    public int size() {
+        return targets.length;
+    }
+
+    /**
+     * Get the targets in this set, in display order.
+     * @return an unmodifiable list of the target block types
+     */
+    public List<Material> asList() {
+        return Collections.unmodifiableList(Arrays.asList(targets));
+    }
+
+    /**
+     * Get a component displaying the targets in this set as a bulleted list.
+     * The list is rendered once and reused for the lifetime of this snapshot.
+     * @return a Component containing the target block types
+     */
+    public Component getListMessage() {
+        Component message = listMessage;
+        if (message != null) {
+            return message;
+        }
+
+        message = Component.empty();
+        for (Material target : targets) {
+            message = message.append(Component.text("  * ", Colors.DEFAULT))
+                .append(MaterialNames.getTargetComponent(target))
+                .appendNewline();
+        }
+        this.listMessage = message;
+        return message;
+    }
+}
@@ -0,0 +1,144 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * How likely each block type is to be selected as a target, from the targetWeights section of the configuration.
+ * A block type's weight is its own weight if one is listed, otherwise the weight of the first tier with a matching
+ * pattern, otherwise the default weight. Patterns are block names where * matches any characters.
+ * Weights are resolved for every block type once, when the settings are loaded.
+ */
+public final class TargetWeights {
+
+    private final static double DEFAULT_WEIGHT = 1.0;
+    private static final Material[] MATERIALS = Material.values();
+
+    private final double[] weights;
+
+    /**
+     * Resolve the weight of every block type from user-defined settings.
+     * @param game The game, used to report invalid settings.
+     * @param config The configuration section containing game settings.
+     */
+    public TargetWeights(BlockFinderGame game, ConfigurationSection config) {
+        this.weights = new double[MATERIALS.length];
+
+        double defaultWeight = config.getDouble("targetWeights.default", DEFAULT_WEIGHT);
+        if (defaultWeight < 0) {
+            game.getLogger().warning("Invalid default target weight. Cannot be negative. Using 1.");
+            defaultWeight = DEFAULT_WEIGHT;
+        }
+        Arrays.fill(weights, defaultWeight);
+
+        // tiers are applied last to first, so the first matching tier wins
+        List<Tier> tiers = parseTiers(game, config.getConfigurationSection("targetWeights.tiers"));
+        for (int i = tiers.size() - 1; i >= 0; i--) {
+            Tier tier = tiers.get(i);
+            for (Material material : MATERIALS) {
+                if (tier.pattern().matcher(material.name()).matches()) {
+                    weights[material.ordinal()] = tier.weight();
+                }
+            }
+        }
+
+        ConfigurationSection blocks = config.getConfigurationSection("targetWeights.blocks");
+        if (blocks != null) {
+            for (String blockName : blocks.getKeys(false)) {
+                Material material = Material.matchMaterial(blockName);
+                double weight = blocks.getDouble(blockName, -1);
+                if (material == null || weight < 0) {
+                    game.getLogger().warning(String.format(
+                        "Invalid target weight for block '%s'. It will be ignored.", blockName
+                    ));
+                    continue;
+                }
+                weights[material.ordinal()] = weight;
+            }
+        }
+    }
+
+    /**
+     * Get the weight of a block type.
+     * @param blockType the block type to look up
+     * @return the weight of the block type, where 0 means it is never selected
+     */
+    public double getWeight(Material blockType) {
+        return weights[blockType.ordinal()];
+    }
+
+    /**
+     * Get the weight of every block type, scaled by a multiplier for each block type.
+     * @param multipliers a multiplier for each block type by Material ordinal, or null to leave weights unscaled
+     * @return a new array of weights by Material ordinal
+     */
+    public double[] getWeights(double[] multipliers) {
+        double[] scaledWeights = weights.clone();
+        if (multipliers != null) {
+            for (int ordinal = 0; ordinal < scaledWeights.length; ordinal++) {
+                scaledWeights[ordinal] *= multipliers[ordinal];
+            }
+        }
+        return scaledWeights;
+    }
+
+    /**
+     * Helper to parse the weight tiers, in the order they are configured.
+     * @param game the game, used to report invalid settings
+     * @param tiersSection the section containing the tiers, or null if there are none
+     * @return the valid tiers
+     */
+    private static List<Tier> parseTiers(BlockFinderGame game, ConfigurationSection tiersSection) {
+        List<Tier> tiers = new ArrayList<>();
+        if (tiersSection == null) {
+            return tiers;
+        }
+        for (String tierName : tiersSection.getKeys(false)) {
+            double weight = tiersSection.getDouble(tierName + ".weight", -1);
+            if (weight < 0) {
+                game.getLogger().warning(String.format(
+                    "Target weight tier '%s' has no valid weight. It will be ignored.", tierName
+                ));
+                continue;
+            }
+            for (String blockPattern : tiersSection.getStringList(tierName + ".blocks")) {
+                tiers.add(new Tier(toPattern(blockPattern), weight));
+            }
+        }
+        return tiers;
+    }
+
+    /**
+     * Helper to convert a block name pattern to a regular expression, where * matches any characters.
+     * @param blockPattern the block name pattern, such as "*_ORE"
+     * @return the matching regular expression
+     */
+    private static Pattern toPattern(String blockPattern) {
+        String name = blockPattern.toUpperCase(Locale.ROOT);
+        if (name.startsWith("MINECRAFT:")) {
+            name = name.substring("MINECRAFT:".length());
+        }
+        String[] parts = name.split("\\*", -1);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(parts[i]));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * A block name pattern and the weight of the tier it belongs to.
+     */
+    private record Tier(Pattern pattern, double weight) {
+    }
+}
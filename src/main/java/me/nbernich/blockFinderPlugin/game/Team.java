@@ -2,26 +2,35 @@ package me.nbernich.blockFinderPlugin.game;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.TextColor;
-import org.bukkit.entity.Player;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Objects;
 
 /**
  * Represents a team in the Block Finder game.
+ * Members and scores are tracked by the TeamManager, by team index, and are safe to update from any region thread.
  */
 public class Team {
 
+    private final int index;
     private final String name;
     private final TextColor color;
-    private final HashSet<Player> members;
-    private int score;
+    private final Component displayName;
+    private final TeamRanking ranking;
 
-    public Team(String name, TextColor color) {
+    Team(int index, String name, TextColor color, TeamRanking ranking) {
+        this.index = index;
         this.name = name;
         this.color = color;
-        this.score = 0;
-        this.members = new HashSet<>();
+        this.displayName = Component.text(name, color);
+        this.ranking = ranking;
+    }
+
+    /**
+     * Get the index of the team, its position among the arena's teams in the order they were configured.
+     * @return the index of the team, from 0 up to the number of teams
+     */
+    public int getIndex() {
+        return index;
     }
 
     /**
@@ -40,65 +49,12 @@ public class Team {
         return color;
     }
 
-    /**
-     * Add a player to the team.
-     * @param player the player to add
-     */
-    public void addPlayer(Player player) {
-        members.add(player);
-    }
-
-    /**
-     * Remove a player from the team.
-     * @param player the player to remove
-     */
-    public void removePlayer(Player player) {
-        members.remove(player);
-    }
-
-    /**
-     * Get a set of members on this team.
-     * @return a set of players that are members of this team
-     */
-    public Set<Player> getMembers() {
-        return members;
-    }
-
-    /**
-     * Clear all members from the team.
-     */
-    public void clearMembers() {
-        members.clear();
-    }
-
-    /**
-     * Add a point to the team's score.
-     */
-    public void addPoint() {
-        this.score++;
-    }
-
     /**
      * Get the team's score.
      * @return the team's score
      */
     public int getScore() {
-        return score;
-    }
-
-    /**
-     * Set the team's score to a new value.
-     * @param newScore the new score to set
-     */
-    public void setScore(int newScore) {
-        this.score = newScore;
-    }
-
-    /**
-     * Clear the team's score, setting it to zero.
-     */
-    public void clearScore() {
-        this.score = 0;
+        return ranking.getScore(index);
     }
 
     /**
@@ -106,7 +62,7 @@ public class Team {
      * @return a Component representing the team's display name
      */
     public Component getDisplayName() {
-        return Component.text(name, color);
+        return displayName;
     }
 
     @Override
@@ -119,4 +75,9 @@ public class Team {
         }
         return this.name.equals(other.name) && this.color.equals(other.color);
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, color);
+    }
 }
@@ -1,53 +1,86 @@
 package me.nbernich.blockFinderPlugin.game;
 
-import me.nbernich.blockFinderPlugin.BlockFinderPlugin;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.persistence.GameJournal;
+import me.nbernich.blockFinderPlugin.persistence.JournalEntry;
 import me.nbernich.blockFinderPlugin.utils.Colors;
+import me.nbernich.blockFinderPlugin.utils.NameTrie;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.TextColor;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class to manage teams, their memebers, and their scores.
  * Also owns a ScoreboardDisplayManager to optionally sync scores with a sidebar scoreboard.
+ * Memberships map each player's UUID to the index of their team, and outlive the player's connection, so a player
+ * who leaves and rejoins the server is still on their team. Online players are looked up from the server only when
+ * they are needed, and only members who are online have a cached display name, so memory stays flat no matter how
+ * many times players join and leave. Memberships are safe to change from any region thread.
+ * Scores are kept in a TeamRanking, which keeps the teams in order as points are added, so score lists show the
+ * leading teams and a player's own rank without sorting every team.
+ * The teams, their ranking, their name trie and the membership table are part of the arena's immutable ArenaState,
+ * so a reload replaces them together with the arena's settings and race rounds, and team lookups never lock.
+ * Every change to memberships and scores is recorded in the arena's journal, so it survives a restart.
  */
 public class TeamManager  {
 
+    private final BlockFinderGame game;
+    private final Arena arena;
     private final ScoreboardDisplayManager scoreboardDisplayManager;
-    private final HashMap<String, Team> teamsByName;
-    private final HashMap<Player, Team> memberships;
+    private final GameJournal journal;
+    private final ConcurrentHashMap<UUID, Component> memberDisplayNames; // team-colored names of online members
 
     /**
-     * Initialize the TeamManager with user-defined settings, including a list of teams.
+     * Initialize the TeamManager for an arena, whose state holds its teams.
      * Also creates an associated ScoreboardDisplayManager.
-     * @param config The configuration file containing game settings.
-     */
-    public TeamManager(BlockFinderPlugin plugin, FileConfiguration config) {
-        this.scoreboardDisplayManager = new ScoreboardDisplayManager(config);
-        this.teamsByName = new HashMap<>();
-        this.memberships = new HashMap<>();
-
-        List<Map<?, ?>> teamList = config.getMapList("teams");
-        for (Map<?, ?> teamData : teamList) {
-            String name = String.valueOf(teamData.get("name"));
-            if (name.contains(" ")) {
-                plugin.getLogger().warning(
-                    String.format(
-                        "Team name '%s' contains multiple words, which is not allowed. It will be ignored.",
-                        name
-                    )
-                );
-                continue;
+     * @param arena The arena whose teams this manager manages.
+     * @param config The configuration section containing the scoreboard settings.
+     * @param journal The journal to record membership and score changes in.
+     */
+    public TeamManager(BlockFinderGame game, Arena arena, ConfigurationSection config, GameJournal journal) {
+        this.game = game;
+        this.arena = arena;
+        this.scoreboardDisplayManager = new ScoreboardDisplayManager(game, config);
+        this.journal = journal;
+        this.memberDisplayNames = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Bring the scoreboard, journal and cached names up to date after the arena's settings were replaced, such as
+     * after the configuration is reloaded. Teams were matched by name: teams that still exist kept their scores and
+     * members, and took on their new color and position. Members of teams that were removed are no longer on a team.
+     * This should be called on the global thread.
+     * @param oldState the state of the arena before the settings were replaced
+     * @param newState the state of the arena with the new settings
+     */
+    void handleSettingsApplied(ArenaState oldState, ArenaState newState) {
+        for (Team oldTeam : oldState.getTeams()) {
+            if (newState.getTeam(oldTeam.getName()) == null) {
+                scoreboardDisplayManager.removeTeam(oldTeam);
+            }
+        }
+        for (Team team : newState.getTeams()) {
+            scoreboardDisplayManager.syncScore(team);
+        }
+        oldState.getMemberships().forEach((player, teamIndex) -> {
+            if (newState.getTeamIndex(player) < 0) {
+                journal.record(new JournalEntry.Leave(player));
+            }
+        });
+        for (Player player : game.getServer().getOnlinePlayers()) {
+            Team team = getPlayerTeam(player);
+            if (team != null) {
+                memberDisplayNames.put(player.getUniqueId(), Component.text(player.getName(), team.getColor()));
+            } else if (memberDisplayNames.remove(player.getUniqueId()) != null) {
+                scoreboardDisplayManager.hide(player);
             }
-            String colorString = String.valueOf(teamData.get("color"));
-            TextColor color = Colors.parseColor(colorString);
-            Team team = new Team(name, color);
-            teamsByName.put(name, team);
         }
     }
 
@@ -58,18 +91,18 @@ public class TeamManager  {
      * @return true if the player was added, false if the team does not exist
      */
     public boolean addPlayer(Player player, String teamName) {
-        Team team = teamsByName.get(teamName);
+        ArenaState oldState = arena.updateState(state -> {
+            Team newTeam = state.getTeam(teamName);
+            return newTeam == null ? state : state.withMember(player.getUniqueId(), newTeam.getIndex());
+        });
+        Team team = oldState.getTeam(teamName);
         if (team == null) {
             return false;
         }
 
-        Team oldTeam = memberships.get(player);
-        if (oldTeam != null) {
-            oldTeam.removePlayer(player);
-        }
-
-        team.addPlayer(player);
-        memberships.put(player, team);
+        memberDisplayNames.put(player.getUniqueId(), Component.text(player.getName(), team.getColor()));
+        scoreboardDisplayManager.show(player);
+        journal.record(new JournalEntry.Join(player.getUniqueId(), teamName));
         return true;
     }
 
@@ -79,23 +112,76 @@ public class TeamManager  {
      * @return true if the player was removed, false if the player was not in a team
      */
     public boolean removePlayer(Player player) {
-        Team team = memberships.get(player);
-        if (team == null) {
+        ArenaState oldState = arena.updateState(state -> state.withoutMember(player.getUniqueId()));
+        if (oldState.getTeamIndex(player.getUniqueId()) < 0) {
             return false;
         }
 
-        team.removePlayer(player);
-        memberships.remove(player);
+        memberDisplayNames.remove(player.getUniqueId());
+        scoreboardDisplayManager.hide(player);
+        journal.record(new JournalEntry.Leave(player.getUniqueId()));
         return true;
     }
 
     /**
-     * Get the team a player is on.
+     * Restore saved team memberships. Players who are already online should then be passed to
+     * {@link #handleJoin(Player)}, so they see the scoreboard and their names are colored.
+     * Memberships of teams that no longer exist are ignored.
+     * @param savedMemberships the saved team name of each player, by player UUID
+     */
+    public void restoreMemberships(Map<UUID, String> savedMemberships) {
+        arena.updateState(state -> state.withMembers(savedMemberships));
+    }
+
+    /**
+     * Handle a player joining the server. If they are on a team, their colored name is cached and they are shown
+     * the scoreboard.
+     * @param player the player who joined
+     */
+    public void handleJoin(Player player) {
+        Team team = getPlayerTeam(player);
+        if (team == null) {
+            return;
+        }
+        memberDisplayNames.put(player.getUniqueId(), Component.text(player.getName(), team.getColor()));
+        scoreboardDisplayManager.show(player);
+    }
+
+    /**
+     * Handle a player leaving the server, dropping everything kept for them except their membership.
+     * @param player the player who left
+     */
+    public void handleQuit(Player player) {
+        memberDisplayNames.remove(player.getUniqueId());
+    }
+
+    /**
+     * Get the team a player is on, without locking. May be called from any thread.
      * @param player the player to get the team for
      * @return the team the player is on, or null if the player is not on a team
      */
     public Team getPlayerTeam(Player player) {
-        return memberships.get(player);
+        return arena.getState().getPlayerTeam(player.getUniqueId());
+    }
+
+    /**
+     * Get the members of a team who are online.
+     * @param team the team to get the members of
+     * @return the online players on the team
+     */
+    public List<Player> getOnlineMembers(Team team) {
+        ArenaState state = arena.getState();
+        Team currentTeam = state.resolve(team);
+        List<Player> members = new ArrayList<>();
+        if (currentTeam == null) {
+            return members;
+        }
+        for (Player player : game.getServer().getOnlinePlayers()) {
+            if (state.getTeamIndex(player.getUniqueId()) == currentTeam.getIndex()) {
+                members.add(player);
+            }
+        }
+        return members;
     }
 
     /**
@@ -103,20 +189,27 @@ public class TeamManager  {
      * @return a set of all team names
      */
     public Set<String> getTeamNames() {
-        return teamsByName.keySet();
+        return arena.getState().getTeamNames();
+    }
+
+    /**
+     * Get a prefix tree of all team names, for suggesting them in commands.
+     * @return a prefix tree of all team names
+     */
+    public NameTrie getTeamNameTrie() {
+        return arena.getState().getTeamNameTrie();
     }
 
     /**
      * Reset all teams, clearing their members and scores.
      */
     public void resetTeams() {
-        for (Team team : teamsByName.values()) {
-            team.clearMembers();
-            team.setScore(0);
+        ArenaState oldState = arena.updateState(ArenaState::withoutTeams);
+        for (Team team : oldState.getTeams()) {
+            oldState.getRanking().setScore(team.getIndex(), 0);
             scoreboardDisplayManager.syncScore(team);
         }
-        teamsByName.clear();
-        memberships.clear();
+        memberDisplayNames.clear();
     }
 
     /**
@@ -125,15 +218,36 @@ public class TeamManager  {
      * @return true if the point was added, false if the player is not on a team
      */
     public boolean addPoint(Player player) {
-        Team team = memberships.get(player);
+        Team team = getPlayerTeam(player);
         if (team == null) {
             return false;
         }
-        team.addPoint();
-        scoreboardDisplayManager.syncScore(team);
+        addPoint(team);
         return true;
     }
 
+    /**
+     * Add a point to a team, moving it up the ranking in O(log n).
+     * If the teams were reloaded since the team was looked up, the point goes to the reloaded team with the same
+     * name. Teams that were removed by a reset or reload are ignored. The point is added under the arena's state
+     * lock, so a reload that copies the scores at the same time cannot lose it after it was journaled.
+     * @param team the team to add a point for
+     */
+    public void addPoint(Team team) {
+        Team scoredTeam = arena.withLockedState(state -> {
+            Team currentTeam = state.resolve(team);
+            if (currentTeam != null) {
+                state.getRanking().addPoint(currentTeam.getIndex());
+            }
+            return currentTeam;
+        });
+        if (scoredTeam == null) {
+            return;
+        }
+        scoreboardDisplayManager.syncScore(scoredTeam);
+        journal.record(new JournalEntry.Point(scoredTeam.getName()));
+    }
+
     /**
      * Set the score for a team.
      * @param teamName the name of the team to set the score for
@@ -141,12 +255,18 @@ public class TeamManager  {
      * @return true if the score was set, false if the team does not exist
      */
     public boolean setScore(String teamName, int newScore) {
-        Team team = teamsByName.get(teamName);
+        Team team = arena.withLockedState(state -> {
+            Team namedTeam = state.getTeam(teamName);
+            if (namedTeam != null) {
+                state.getRanking().setScore(namedTeam.getIndex(), newScore);
+            }
+            return namedTeam;
+        });
         if (team == null) {
             return false;
         }
-        team.setScore(newScore);
         scoreboardDisplayManager.syncScore(team);
+        journal.record(new JournalEntry.Score(teamName, newScore));
         return true;
     }
 
@@ -154,9 +274,11 @@ public class TeamManager  {
      * Reset the scores of all teams to zero.
      */
     public void resetScores() {
-        for (Team team : teamsByName.values()) {
-            team.clearScore();
+        ArenaState state = arena.getState();
+        for (Team team : state.getTeams()) {
+            state.getRanking().setScore(team.getIndex(), 0);
             scoreboardDisplayManager.syncScore(team);
+            journal.record(new JournalEntry.Score(team.getName(), 0));
         }
     }
 
@@ -166,9 +288,15 @@ public class TeamManager  {
      */
     public void startScoreboardDisplay() {
         scoreboardDisplayManager.start();
-        for (Team team : teamsByName.values()) {
+        ArenaState state = arena.getState();
+        for (Team team : state.getTeams()) {
             scoreboardDisplayManager.syncScore(team);
         }
+        for (Player player : game.getServer().getOnlinePlayers()) {
+            if (state.getTeamIndex(player.getUniqueId()) >= 0) {
+                scoreboardDisplayManager.show(player);
+            }
+        }
     }
 
     /**
@@ -176,43 +304,68 @@ public class TeamManager  {
      * This should be called when the game stops.
      */
     public void stopScoreboardDisplay() {
+        ArenaState state = arena.getState();
+        for (Player player : game.getServer().getOnlinePlayers()) {
+            if (state.getTeamIndex(player.getUniqueId()) >= 0) {
+                scoreboardDisplayManager.hide(player);
+            }
+        }
         scoreboardDisplayManager.stop();
     }
 
+    /**
+     * Write changed scores to the scoreboard now, rather than at the next scheduled update.
+     * Must be called on the global thread.
+     */
+    public void refreshScoreboard() {
+        scoreboardDisplayManager.flushNow();
+    }
+
     /**
      * Get the display name for a player. This will include their team color if they are on a team.
+     * Names of team members are rendered when they join a team and reused afterward.
      * @param player the player to get the display name for
      * @return a Component containing the player's name, colored by their team if applicable
      */
     public Component getPlayerDisplayName(Player player) {
-        Team team = memberships.get(player);
-        if (team != null) {
-            return Component.text(player.getName(), team.getColor());
+        Component displayName = memberDisplayNames.get(player.getUniqueId());
+        if (displayName != null) {
+            return displayName;
         }
         return Component.text(player.getName(), Colors.DEFAULT);
     }
 
     /**
      * Create a Component listing the teams and their members.
+     * Members who are offline are listed by the name the server last saw them with.
      * @return a Component displaying membership information
      */
     public Component createMemberListMessage() {
+        ArenaState state = arena.getState();
+        Team[] currentTeams = state.getTeams();
+        List<List<UUID>> membersByTeam = new ArrayList<>();
+        for (int i = 0; i < currentTeams.length; i++) {
+            membersByTeam.add(new ArrayList<>());
+        }
+        state.getMemberships().forEach((player, teamIndex) -> membersByTeam.get(teamIndex).add(player));
+
         Component message = Component.empty();
-        for (Team team : teamsByName.values()) {
+        for (Team team : currentTeams) {
+            List<UUID> members = membersByTeam.get(team.getIndex());
             message = message.append(Component.text("  * ", Colors.DEFAULT))
                 .append(team.getDisplayName())
                 .append(Component.text(":", Colors.DEFAULT))
                 .appendNewline();
 
-            if (team.getMembers().isEmpty()) {
+            if (members.isEmpty()) {
                 message = message.append(Component.text("      [No Members]", Colors.DEFAULT))
                     .appendNewline();
                 continue;
             }
 
-            for (Player player : team.getMembers()) {
+            for (UUID member : members) {
                 message = message.append(Component.text("      - ", Colors.DEFAULT))
-                    .append(Component.text(player.getName(), team.getColor()))
+                    .append(getMemberDisplayName(member, team))
                     .appendNewline();
             }
         }
@@ -220,21 +373,78 @@ public class TeamManager  {
     }
 
     /**
-     * Create a Component listing the scores of all teams.
-     * @return a Component displaying the scores of all teams
+     * Helper to get the display name of a team member, who may be offline.
+     * @param member the UUID of the member
+     * @param team the member's team
+     * @return a Component containing the member's name, colored by their team
+     */
+    private Component getMemberDisplayName(UUID member, Team team) {
+        Component displayName = memberDisplayNames.get(member);
+        if (displayName != null) {
+            return displayName;
+        }
+        String name = game.getServer().getOfflinePlayer(member).getName();
+        return Component.text(name != null ? name : member.toString(), team.getColor());
+    }
+
+    /**
+     * Create a Component listing the highest-scoring teams, from the highest score to the lowest.
+     * @return a Component displaying the scores of the leading teams
      */
     public Component createScoresListMessage() {
+        return createScoresListMessage(null);
+    }
+
+    /**
+     * Create a Component listing the highest-scoring teams, from the highest score to the lowest.
+     * If the viewer's team is not one of them, its rank and score are listed after them.
+     * At most scoresListSize teams are listed, or every team if it is 0.
+     * @param viewer the player who will see the list, or null if it is not for a single player
+     * @return a Component displaying the scores of the leading teams
+     */
+    public Component createScoresListMessage(Player viewer) {
+        ArenaState state = arena.getState();
+        Team[] currentTeams = state.getTeams();
+        TeamRanking currentRanking = state.getRanking();
+        int scoresListSize = state.getSettings().getScoresListSize();
+        int limit = scoresListSize == 0 ? currentTeams.length : scoresListSize;
+        TeamRanking.Standing[] standings = currentRanking.getTopStandings(limit);
+
         Component message = Component.empty();
-        for (Team team : teamsByName.values()) {
-            String pointsLabel = team.getScore() == 1 ? " point" : " points";
-            message = message.append(Component.text("  * ", Colors.DEFAULT))
-                .append(team.getDisplayName())
-                .append(Component.text(": ", Colors.DEFAULT))
-                .append(Component.text(team.getScore(), Colors.HEADER))
-                .append(Component.text(pointsLabel, Colors.DEFAULT))
+        Team viewerTeam = viewer == null ? null : state.getPlayerTeam(viewer.getUniqueId());
+        boolean viewerTeamListed = viewerTeam == null;
+        for (TeamRanking.Standing standing : standings) {
+            Team team = currentTeams[standing.teamIndex()];
+            message = message.append(createStandingLine(team, standing));
+            viewerTeamListed |= team == viewerTeam;
+        }
+
+        int hiddenCount = currentTeams.length - standings.length;
+        if (hiddenCount > 0) {
+            String teamsLabel = hiddenCount == 1 ? " more team" : " more teams";
+            message = message.append(Component.text("    ... and " + hiddenCount + teamsLabel, Colors.DEFAULT))
                 .appendNewline();
         }
+        if (!viewerTeamListed) {
+            TeamRanking.Standing standing = currentRanking.getStanding(viewerTeam.getIndex());
+            message = message.append(createStandingLine(viewerTeam, standing));
+        }
         return message;
     }
 
+    /**
+     * Helper to create a line of a scores list for a team.
+     * @param team the team to show
+     * @param standing the team's score and rank
+     * @return a Component displaying the team's rank and score, ending with a new line
+     */
+    private static Component createStandingLine(Team team, TeamRanking.Standing standing) {
+        String pointsLabel = standing.score() == 1 ? " point" : " points";
+        return Component.text("  " + standing.rank() + ". ", Colors.DEFAULT)
+            .append(team.getDisplayName())
+            .append(Component.text(": ", Colors.DEFAULT))
+            .append(Component.text(standing.score(), Colors.HEADER))
+            .append(Component.text(pointsLabel, Colors.DEFAULT))
+            .appendNewline();
+    }
 }
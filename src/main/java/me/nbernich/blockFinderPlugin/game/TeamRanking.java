@@ -0,0 +1,172 @@
+package me.nbernich.blockFinderPlugin.game;
+
+/**
+ * The scores of an arena's teams, kept in order from the highest score to the lowest.
+ * <p>
+ * Scores are stored by team index in a primitive array, next to the order of the teams and each team's position in
+ * that order. Ranks are competition ranks, so teams with the same score share a rank and the next rank is skipped,
+ * and teams with the same score may be listed in any order. That makes adding a point cheap: the team swaps places
+ * with the first team that had its old score, found by binary search, so it costs O(log n) no matter how many teams
+ * are tied. Setting a score to any other value moves the team with a single array copy.
+ * <p>
+ * Points are added from region threads, so every method is synchronized.
+ */
+final class TeamRanking {
+
+    /**
+     * A team's place in the ranking at the time it was read.
+     * @param teamIndex the index of the team
+     * @param score the team's score
+     * @param rank the team's rank, where 1 is the highest
+     */
+    record Standing(int teamIndex, int score, int rank) {}
+
+    private final int[] scores; // by team index
+    private final int[] order; // team indexes, from the highest score to the lowest
+    private final int[] positions; // the position of each team in order, by team index
+
+    /**
+     * Create a ranking of teams that all have a score of zero.
+     * @param teamCount the number of teams
+     */
+    TeamRanking(int teamCount) {
+        this.scores = new int[teamCount];
+        this.order = new int[teamCount];
+        this.positions = new int[teamCount];
+        for (int i = 0; i < teamCount; i++) {
+            order[i] = i;
+            positions[i] = i;
+        }
+    }
+
+    /**
+     * Get the number of teams in the ranking.
+     * @return the number of teams
+     */
+    int size() {
+        return scores.length;
+    }
+
+    /**
+     * Get the score of a team.
+     * @param teamIndex the index of the team
+     * @return the team's score
+     */
+    synchronized int getScore(int teamIndex) {
+        return scores[teamIndex];
+    }
+
+    /**
+     * Add a point to a team's score, in O(log n).
+     * @param teamIndex the index of the team
+     */
+    synchronized void addPoint(int teamIndex) {
+        int position = positions[teamIndex];
+        int groupStart = firstPositionAtMost(scores[teamIndex], position);
+        swap(groupStart, position);
+        scores[teamIndex]++;
+    }
+
+    /**
+     * Set a team's score to a new value, moving it to its new place in the order.
+     * @param teamIndex the index of the team
+     * @param newScore the new score
+     */
+    synchronized void setScore(int teamIndex, int newScore) {
+        int position = positions[teamIndex];
+        int oldScore = scores[teamIndex];
+        if (newScore > oldScore) {
+            // the team moves up, in front of every team with a lower score than its new one
+            int target = firstPositionAtMost(newScore - 1, position);
+            System.arraycopy(order, target, order, target + 1, position - target);
+            order[target] = teamIndex;
+            updatePositions(target, position);
+        } else if (newScore < oldScore) {
+            // the team moves down, behind every team with a score at least as high as its new one
+            int target = firstPositionAtMost(newScore - 1, order.length, position + 1) - 1;
+            System.arraycopy(order, position + 1, order, position, target - position);
+            order[target] = teamIndex;
+            updatePositions(position, target);
+        }
+        scores[teamIndex] = newScore;
+    }
+
+    /**
+     * Get the rank of a team, which is one more than the number of teams with a higher score.
+     * @param teamIndex the index of the team
+     * @return the team's rank, where 1 is the highest
+     */
+    synchronized int getRank(int teamIndex) {
+        return firstPositionAtMost(scores[teamIndex], positions[teamIndex]) + 1;
+    }
+
+    /**
+     * Get the standing of a team.
+     * @param teamIndex the index of the team
+     * @return the team's score and rank, read together
+     */
+    synchronized Standing getStanding(int teamIndex) {
+        return new Standing(teamIndex, scores[teamIndex], getRank(teamIndex));
+    }
+
+    /**
+     * Get the standings of the highest-scoring teams, without sorting.
+     * @param limit the most teams to return
+     * @return the standings of up to limit teams, from the highest score to the lowest
+     */
+    synchronized Standing[] getTopStandings(int limit) {
+        Standing[] standings = new Standing[Math.min(limit, order.length)];
+        int rank = 1;
+        for (int position = 0; position < standings.length; position++) {
+            int teamIndex = order[position];
+            if (position > 0 && scores[teamIndex] != scores[order[position - 1]]) {
+                rank = position + 1;
+            }
+            standings[position] = new Standing(teamIndex, scores[teamIndex], rank);
+        }
+        return standings;
+    }
+
+    /**
+     * Helper to find the first position whose team has a score of at most the given score.
+     * @param score the score to compare against
+     * @param end a position known to hold such a team, or the number of teams
+     * @return the first such position, at most end
+     */
+    private int firstPositionAtMost(int score, int end) {
+        return firstPositionAtMost(score, end, 0);
+    }
+
+    /**
+     * Helper to binary search the positions from start to end for the first team with a score of at most the given
+     * score. Every team before start must have a higher score.
+     */
+    private int firstPositionAtMost(int score, int end, int start) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (scores[order[middle]] <= score) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void swap(int first, int second) {
+        int firstTeam = order[first];
+        int secondTeam = order[second];
+        order[first] = secondTeam;
+        order[second] = firstTeam;
+        positions[secondTeam] = first;
+        positions[firstTeam] = second;
+    }
+
+    private void updatePositions(int from, int to) {
+        for (int position = from; position <= to; position++) {
+            positions[order[position]] = position;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The current round of every team in a race, by team index.
+ * <p>
+ * Each team's round is an ordinary Round whose epoch is the team's round number, starting from 1, and whose targets
+ * carry their own bitmap. The sneak listener finds a team's round with a single array read, so checking a sneak costs
+ * the same however many teams there are, and never allocates. Rounds are replaced one slot at a time, under the
+ * block manager's lock, and read without locking. The table is published in the arena's state, together with the
+ * memberships whose team indexes it is read by.
+ */
+final class TeamRounds {
+
+    private final String[] teamNames; // by team index, to carry rounds over when the teams are reloaded
+    private final TargetSet firstTargets;
+    private final AtomicReferenceArray<Round> rounds;
+
+    /**
+     * Start every team on its first round.
+     * @param teams the teams of the arena, by team index
+     * @param firstTargets the targets of the first round
+     */
+    TeamRounds(Team[] teams, TargetSet firstTargets) {
+        this.teamNames = new String[teams.length];
+        this.firstTargets = firstTargets;
+        this.rounds = new AtomicReferenceArray<>(teams.length);
+        for (int i = 0; i < teamNames.length; i++) {
+            teamNames[i] = teams[i].getName();
+            rounds.set(i, new Round(1, firstTargets));
+        }
+    }
+
+    /**
+     * Get the current round of a team.
+     * @param teamIndex the index of the team
+     * @return the team's round, or an empty round if there is no such team
+     */
+    Round get(int teamIndex) {
+        return teamIndex >= 0 && teamIndex < rounds.length() ? rounds.get(teamIndex) : Round.NONE;
+    }
+
+    /**
+     * Move a team on to a new round.
+     * @param teamIndex the index of the team
+     * @param round the team's new round
+     */
+    void set(int teamIndex, Round round) {
+        rounds.set(teamIndex, round);
+    }
+
+    /**
+     * Get the number of teams in the race.
+     * @return the number of teams
+     */
+    int size() {
+        return rounds.length();
+    }
+
+    /**
+     * Create the rounds for a reloaded list of teams. Teams that still exist keep their round, even if their index
+     * changed, and new teams start on their first round.
+     * @param teams the reloaded teams, by team index
+     * @return the rounds of the reloaded teams
+     */
+    TeamRounds remap(Team[] teams) {
+        TeamRounds remapped = new TeamRounds(teams, firstTargets);
+        for (int oldIndex = 0; oldIndex < teamNames.length; oldIndex++) {
+            for (int newIndex = 0; newIndex < remapped.teamNames.length; newIndex++) {
+                if (teamNames[oldIndex].equals(remapped.teamNames[newIndex])) {
+                    remapped.rounds.set(newIndex, rounds.get(oldIndex));
+                    break;
+                }
+            }
+        }
+        return remapped;
+    }
+}
@@ -0,0 +1,49 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import java.util.Locale;
+
+/**
+ * How to choose between players on different teams who find a target in the same tick.
+ */
+public enum TieBreakPolicy {
+
+    /**
+     * The first find to arrive wins immediately. This is the default, and the only policy that scores in the event.
+     */
+    FIRST_ARRIVAL,
+
+    /**
+     * Every find in the tick has an equal chance to win. The winner is chosen at the start of the next tick.
+     */
+    RANDOM,
+
+    /**
+     * The find from the team with the lowest score wins, with ties going to the first arrival.
+     * The winner is chosen at the start of the next tick.
+     */
+    TRAILING_TEAM;
+
+    /**
+     * Parse a policy from its configuration name, such as "first-arrival" or "trailing_team".
+     * @param name the name of the policy
+     * @return the matching policy, or null if there is none
+     */
+    public static TieBreakPolicy fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        try {
+            return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if this policy decides the winner as soon as the first find arrives.
+     * @return true if the first find wins immediately, false if the winner is chosen at the end of the tick
+     */
+    public boolean resolvesImmediately() {
+        return this == FIRST_ARRIVAL;
+    }
+}
@@ -0,0 +1,252 @@
+package me.nbernich.blockFinderPlugin.game;
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * A bag of block types that hands out random, distinct draws, in proportion to each block type's weight.
+ * <p>
+ * Draws are sampled from an alias table in constant time. Block types that have already been drawn (or picked
+ * earlier in the same draw) stay in the table and are rejected when sampled, which is tracked with a bitmap.
+ * To keep rejections rare, the table is rebuilt over the remaining block types whenever their weight falls below
+ * half of the table's weight, so a draw costs amortized constant time however many block types have been used.
+ * Refilling the bag only clears the bitmap. Block types with a weight of zero are never drawn.
+ */
+public class WeightedBag {
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final int[] ordinals; // block types that can be drawn, by candidate index
+    private final double[] weights; // weights of those block types, by candidate index
+    private final int[] indexesByOrdinal; // candidate index of each Material ordinal, or -1
+    private final long[] drawnBits; // candidate indexes that have been drawn
+    private final double totalWeight;
+    private int remaining;
+    private double remainingWeight;
+
+    private AliasTable table;
+    private int[] tableIndexes; // candidate index of each table column
+    private double tableWeight;
+    private int rebuildCount;
+
+    /**
+     * Create a full bag containing the given block types.
+     * @param candidates the block types that can be drawn, without duplicates
+     * @param weights the weight of each block type, by Material ordinal
+     */
+    public WeightedBag(Collection<Material> candidates, double[] weights) {
+        this.indexesByOrdinal = new int[MATERIALS.length];
+        Arrays.fill(indexesByOrdinal, -1);
+
+        int[] candidateOrdinals = new int[candidates.size()];
+        double[] candidateWeights = new double[candidates.size()];
+        int count = 0;
+        double weightSum = 0;
+        for (Material candidate : candidates) {
+            double weight = weights[candidate.ordinal()];
+            if (weight <= 0) {
+                continue;
+            }
+            indexesByOrdinal[candidate.ordinal()] = count;
+            candidateOrdinals[count] = candidate.ordinal();
+            candidateWeights[count] = weight;
+            weightSum += weight;
+            count++;
+        }
+
+        this.ordinals = Arrays.copyOf(candidateOrdinals, count);
+        this.weights = Arrays.copyOf(candidateWeights, count);
+        this.drawnBits = new long[(count + 63) >>> 6];
+        this.totalWeight = weightSum;
+        this.remaining = count;
+        this.remainingWeight = weightSum;
+        rebuildTable();
+    }
+
+    /**
+     * Create a copy of a bag, with the same block types drawn, that can be drawn from independently.
+     * The copy shares the block types and weights, which never change, and gets its own alias table.
+     * @param bag the bag to copy
+     */
+    public WeightedBag(WeightedBag bag) {
+        this.ordinals = bag.ordinals;
+        this.weights = bag.weights;
+        this.indexesByOrdinal = bag.indexesByOrdinal;
+        this.drawnBits = bag.drawnBits.clone();
+        this.totalWeight = bag.totalWeight;
+        this.remaining = bag.remaining;
+        this.remainingWeight = bag.remainingWeight;
+        rebuildTable();
+    }
+
+    /**
+     * Get the number of block types that can still be drawn before the bag needs a refill.
+     * @return the number of remaining block types
+     */
+    public int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Get the number of block types in the bag when it is full.
+     * @return the capacity of the bag
+     */
+    public int capacity() {
+        return ordinals.length;
+    }
+
+    /**
+     * Draw distinct block types, removing them from the bag until the next refill.
+     * @param count the number of block types to draw
+     * @param rng the random source to draw with
+     * @return the drawn block types
+     * @throws IllegalStateException if fewer than count block types remain
+     */
+    public Material[] draw(int count, RandomGenerator rng) throws IllegalStateException {
+        if (count > remaining) {
+            throw new IllegalStateException(
+                String.format("Cannot draw %d block types from a bag with %d remaining.", count, remaining)
+            );
+        }
+
+        Material[] drawn = new Material[count];
+        for (int i = 0; i < count; i++) {
+            if (remainingWeight < tableWeight / 2) {
+                rebuildTable();
+            }
+            int index = drawIndex(rng);
+            markDrawn(index);
+            drawn[i] = MATERIALS[ordinals[index]];
+        }
+        return drawn;
+    }
+
+    /**
+     * Draw distinct block types without removing them from the bag.
+     * @param count the number of block types to draw
+     * @param rng the random source to draw with
+     * @return the drawn block types
+     * @throws IllegalStateException if fewer than count block types remain
+     */
+    public Material[] sample(int count, RandomGenerator rng) throws IllegalStateException {
+        int previousRebuildCount = rebuildCount;
+        Material[] drawn = draw(count, rng);
+        for (Material blockType : drawn) {
+            unmarkDrawn(indexesByOrdinal[blockType.ordinal()]);
+        }
+        if (rebuildCount != previousRebuildCount) {
+            rebuildTable(); // the table was rebuilt without the block types that were just put back
+        }
+        return drawn;
+    }
+
+    /**
+     * Remove a specific block type from the bag until the next refill, as if it had been drawn.
+     * @param blockType the block type to remove
+     * @return true if the block type was removed, false if it was not in the bag or was already drawn
+     */
+    public boolean take(Material blockType) {
+        int index = indexesByOrdinal[blockType.ordinal()];
+        if (index < 0 || isDrawn(index)) {
+            return false;
+        }
+        markDrawn(index);
+        return true;
+    }
+
+    /**
+     * Get the block types that have been drawn since the last refill.
+     * @return the drawn block types
+     */
+    public List<Material> drawn() {
+        List<Material> drawn = new ArrayList<>(ordinals.length - remaining);
+        for (int index = 0; index < ordinals.length; index++) {
+            if (isDrawn(index)) {
+                drawn.add(MATERIALS[ordinals[index]]);
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * Return every drawn block type to the bag.
+     */
+    public void refill() {
+        Arrays.fill(drawnBits, 0L);
+        this.remaining = ordinals.length;
+        this.remainingWeight = totalWeight;
+        if (table.size() != ordinals.length) {
+            rebuildTable();
+        }
+    }
+
+    /**
+     * Remove every block type from the bag until the next refill.
+     */
+    public void empty() {
+        for (int index = 0; index < ordinals.length; index++) {
+            if (!isDrawn(index)) {
+                markDrawn(index);
+            }
+        }
+    }
+
+    /**
+     * Helper to sample a block type that has not been drawn, rejecting any that have.
+     * The table is rebuilt before the remaining weight drops below half, so each sample is accepted at least
+     * half the time. The linear scan only guards against floating point drift.
+     * @param rng the random source to draw with
+     * @return the candidate index of the sampled block type
+     */
+    private int drawIndex(RandomGenerator rng) {
+        for (int attempt = 0; attempt < 64; attempt++) {
+            int index = tableIndexes[table.sample(rng)];
+            if (!isDrawn(index)) {
+                return index;
+            }
+        }
+        rebuildTable();
+        return tableIndexes[table.sample(rng)];
+    }
+
+    /**
+     * Helper to rebuild the alias table over the block types that have not been drawn.
+     */
+    private void rebuildTable() {
+        int[] indexes = new int[remaining];
+        double[] tableWeights = new double[remaining];
+        int count = 0;
+        for (int index = 0; index < ordinals.length && count < remaining; index++) {
+            if (!isDrawn(index)) {
+                indexes[count] = index;
+                tableWeights[count] = weights[index];
+                count++;
+            }
+        }
+        this.table = new AliasTable(tableWeights, count);
+        this.tableIndexes = indexes;
+        this.tableWeight = remainingWeight;
+        this.rebuildCount++;
+    }
+
+    private boolean isDrawn(int index) {
+        return (drawnBits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void markDrawn(int index) {
+        drawnBits[index >>> 6] |= 1L << index;
+        remaining--;
+        remainingWeight -= weights[index];
+    }
+
+    private void unmarkDrawn(int index) {
+        drawnBits[index >>> 6] &= ~(1L << index);
+        remaining++;
+        remainingWeight += weights[index];
+    }
+}
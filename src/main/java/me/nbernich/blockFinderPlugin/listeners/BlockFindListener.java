@@ -1,10 +1,16 @@
 package me.nbernich.blockFinderPlugin.listeners;
 
-import me.nbernich.blockFinderPlugin.BlockFinderPlugin;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.game.ArenaManager;
 import me.nbernich.blockFinderPlugin.game.BlockManager;
+import me.nbernich.blockFinderPlugin.game.Round;
+import me.nbernich.blockFinderPlugin.game.TargetSet;
+import me.nbernich.blockFinderPlugin.stats.FlightEvents;
+import me.nbernich.blockFinderPlugin.stats.PerformanceStats;
+import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
@@ -12,54 +18,92 @@ import org.bukkit.event.player.PlayerToggleSneakEvent;
 
 /**
  * Listener for detecting when a player finds a target block type.
- * This occurs when a player toggles sneak while standing up to two blocks above a target block.
+ * This occurs when a player starts sneaking while standing up to two blocks above a target block.
+ * A single listener serves every arena, dispatching each event to the arena of the player's world.
  */
 public class BlockFindListener implements Listener {
 
-    private final BlockFinderPlugin plugin;
-    private final BlockManager blockManager;
+    private static final int SEARCH_DEPTH = 2; // how many blocks below the player's feet to check
 
-    public BlockFindListener(BlockFinderPlugin plugin) {
-        this.plugin = plugin;
-        this.blockManager = plugin.getBlockManager();
+    private final BlockFinderGame game;
+    private final ArenaManager arenaManager;
+    private final PerformanceStats stats;
+    private final FlightEvents flightEvents;
+    private final ThreadLocal<Location> scratchLocation; // reused per thread so checking a sneak does not allocate
+    private boolean registered;
+
+    public BlockFindListener(BlockFinderGame game) {
+        this.game = game;
+        this.arenaManager = game.getArenaManager();
+        this.stats = game.getPerformanceStats();
+        this.flightEvents = game.getFlightEvents();
+        this.scratchLocation = ThreadLocal.withInitial(() -> new Location(null, 0, 0, 0));
+        this.registered = false;
     }
 
     /**
-     * Starts this event listener.
+     * Starts this event listener, if it is not already running.
      */
-    public void start() {
-        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+    public synchronized void start() {
+        if (registered) {
+            return;
+        }
+        game.getServer().getPluginManager().registerEvents(this, game.getPlugin());
+        this.registered = true;
     }
 
     /**
      * Stops this event listener.
      */
-    public void stop() {
+    public synchronized void stop() {
         HandlerList.unregisterAll(this);
+        this.registered = false;
     }
 
     /**
      * Handle the PlayerToggleSneakEvent to check for target blocks.
+     * Only pressing sneak counts; releasing it is ignored.
      * @param event the PlayerToggleSneakEvent triggered by a player sneaking
      */
     @EventHandler
     public void onPlayerToggleSneak(PlayerToggleSneakEvent event) {
-        if (!blockManager.hasCurrentTargets()) {
+        if (!event.isSneaking()) {
             return;
         }
 
-        Block playerBlock = event.getPlayer().getLocation().getBlock();
-        Material[] candidateBlockTypes = {
-            playerBlock.getType(),
-            playerBlock.getRelative(BlockFace.DOWN).getType(),
-            playerBlock.getRelative(BlockFace.DOWN, 2).getType()
-        };
+        long startNanos = System.nanoTime();
+        stats.countSneak();
+        boolean hit = checkForTarget(event.getPlayer());
+        stats.record(PerformanceStats.Operation.SNEAK_CHECK, startNanos);
+        flightEvents.sneakCheck(startNanos, hit);
+    }
+
+    /**
+     * Helper to check if a player is standing above a target block, and claim the find if they are.
+     * @param player the player who started sneaking
+     * @return true if the player is standing above a target block, false otherwise
+     */
+    private boolean checkForTarget(Player player) {
+        Location location = player.getLocation(scratchLocation.get());
+        World world = location.getWorld();
+        BlockManager blockManager = arenaManager.getArena(world).getBlockManager();
+        Round round = blockManager.getRound(player); // in a race, the round of the player's team
+        TargetSet targets = round.getTargets();
+        if (targets.isEmpty()) {
+            return false;
+        }
+
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
 
-        for (Material candidate : candidateBlockTypes) {
-            if (blockManager.isTarget(candidate)) {
-                blockManager.handleFoundBlock(event.getPlayer(), candidate);
-                return;
+        for (int depth = 0; depth <= SEARCH_DEPTH; depth++) {
+            Material candidate = world.getType(x, y - depth, z);
+            if (targets.contains(candidate)) {
+                blockManager.handleFoundBlock(player, candidate, round);
+                return true;
             }
         }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package me.nbernich.blockFinderPlugin.listeners;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.game.Arena;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Listener for players joining and leaving the server, which shows members the scoreboard of their arena when they
+ * join and drops what was cached for them when they leave. Team memberships themselves are kept by UUID, so players
+ * stay on their teams while they are offline.
+ */
+public class PlayerConnectionListener implements Listener {
+
+    private final BlockFinderGame game;
+
+    public PlayerConnectionListener(BlockFinderGame game) {
+        this.game = game;
+    }
+
+    /**
+     * Handle every online player as if they just joined, such as after restored memberships are loaded on a reload.
+     */
+    public void restoreOnlinePlayers() {
+        for (Player player : game.getServer().getOnlinePlayers()) {
+            for (Arena arena : game.getArenaManager().getArenas()) {
+                arena.getTeamManager().handleJoin(player);
+            }
+        }
+    }
+
+    /**
+     * Handle the PlayerJoinEvent to set up the player in every arena whose teams they are on.
+     * @param event the PlayerJoinEvent triggered by a player joining the server
+     */
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        for (Arena arena : game.getArenaManager().getArenas()) {
+            arena.getTeamManager().handleJoin(event.getPlayer());
+        }
+    }
+
+    /**
+     * Handle the PlayerQuitEvent to drop what every arena cached for the player.
+     * @param event the PlayerQuitEvent triggered by a player leaving the server
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        for (Arena arena : game.getArenaManager().getArenas()) {
+            arena.getTeamManager().handleQuit(event.getPlayer());
+        }
+    }
+}
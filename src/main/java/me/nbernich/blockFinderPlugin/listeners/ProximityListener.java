@@ -0,0 +1,77 @@
+package me.nbernich.blockFinderPlugin.listeners;
+
+import me.nbernich.blockFinderPlugin.proximity.ProximityTracker;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+/**
+ * Listener that keeps the proximity index up to date as chunks load and unload, and as blocks are placed or broken.
+ */
+public class ProximityListener implements Listener {
+
+    private final ProximityTracker proximityTracker;
+
+    public ProximityListener(ProximityTracker proximityTracker) {
+        this.proximityTracker = proximityTracker;
+    }
+
+    /**
+     * Handle the ChunkLoadEvent to add the chunk to the index.
+     * @param event the ChunkLoadEvent triggered by a chunk loading
+     */
+    @EventHandler
+    public void onChunkLoad(ChunkLoadEvent event) {
+        proximityTracker.onChunkLoad(event.getChunk());
+    }
+
+    /**
+     * Handle the ChunkUnloadEvent to remove the chunk from the index.
+     * @param event the ChunkUnloadEvent triggered by a chunk unloading
+     */
+    @EventHandler
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        proximityTracker.onChunkUnload(event.getChunk());
+    }
+
+    /**
+     * Handle the BlockPlaceEvent to index a placed target block.
+     * @param event the BlockPlaceEvent triggered by a player placing a block
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        Block block = event.getBlockPlaced();
+        proximityTracker.onBlockChange(
+            block.getWorld(), block.getX(), block.getY(), block.getZ(),
+            event.getBlockReplacedState().getType(), block.getType()
+        );
+    }
+
+    /**
+     * Handle the BlockBreakEvent to remove a broken target block from the index.
+     * @param event the BlockBreakEvent triggered by a player breaking a block
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        Block block = event.getBlock();
+        proximityTracker.onBlockChange(
+            block.getWorld(), block.getX(), block.getY(), block.getZ(), block.getType(), Material.AIR
+        );
+    }
+
+    /**
+     * Handle the PlayerQuitEvent to forget the distance last shown to the player.
+     * @param event the PlayerQuitEvent triggered by a player leaving the server
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        proximityTracker.forget(event.getPlayer());
+    }
+}
@@ -0,0 +1,251 @@
+package me.nbernich.blockFinderPlugin.persistence;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * The journal of one arena's game state, made of a compact snapshot and an append-only log of the changes since.
+ * Game threads only call {@link #record(JournalEntry)}, which hands the entry to the shared JournalWriter and never
+ * touches the disk. The writer thread appends entries, keeps a copy of the state up to date, and periodically
+ * replaces the snapshot and truncates the log.
+ * <p>
+ * Each log entry is framed with its length, a sequence number, and a CRC32 checksum. A crash can leave a torn entry
+ * at the end of the log, so replay stops at the first entry that is incomplete or fails its checksum. An intact entry
+ * that cannot be parsed, such as one written by a newer version of the plugin, is logged and skipped. Entries whose
+ * sequence number is already covered by the snapshot are skipped, in case a crash happened between writing a new
+ * snapshot and truncating the log.
+ */
+public class GameJournal {
+
+    /**
+     * A journal that records nothing, for arenas that are not persisted.
+     */
+    public static final GameJournal DISABLED = new GameJournal(null, null, null, null);
+
+    private static final int MAX_ENTRY_LENGTH = 1 << 16;
+
+    private final Logger logger;
+    private final JournalWriter writer;
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private volatile boolean recording;
+
+    // only used by the thread that loads the journal, then by the writer thread once the journal is open
+    private GameState state;
+    private FileChannel channel;
+    private DataOutputStream out;
+    private long snapshotSequence;
+    private final ByteArrayOutputStream entryBuffer;
+    private final DataOutputStream entryOut;
+    private final CRC32 crc;
+
+    /**
+     * Create a journal for an arena, stored in the given directory.
+     * @param logger the logger to report skipped entries to
+     * @param writer the writer that appends entries to this journal
+     * @param directory the directory containing the journal files
+     * @param arenaName the name of the arena, used to name the journal files
+     */
+    public GameJournal(Logger logger, JournalWriter writer, Path directory, String arenaName) {
+        this.logger = logger;
+        this.writer = writer;
+        this.journalFile = directory == null ? null : directory.resolve(arenaName + ".journal");
+        this.snapshotFile = directory == null ? null : directory.resolve(arenaName + ".snapshot");
+        this.recording = false;
+        this.state = new GameState();
+        this.entryBuffer = new ByteArrayOutputStream(64);
+        this.entryOut = new DataOutputStream(entryBuffer);
+        this.crc = new CRC32();
+    }
+
+    /**
+     * Load the saved game state, by reading the snapshot and replaying the log on top of it.
+     * This reads from disk, so it should only be called while the plugin is enabling.
+     * @return the saved game state, or an empty state if nothing was saved
+     * @throws IOException if the snapshot exists but could not be read
+     */
+    public GameState load() throws IOException {
+        if (journalFile == null) {
+            return state;
+        }
+
+        if (Files.exists(snapshotFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+                this.state = GameState.read(in);
+            }
+        }
+
+        if (Files.exists(journalFile)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+                replay(in);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Helper to apply every intact log entry to the loaded state.
+     * @param in the log to replay
+     */
+    private void replay(DataInputStream in) {
+        byte[] payload = new byte[MAX_ENTRY_LENGTH];
+        while (true) {
+            int length;
+            long sequence;
+            try {
+                length = in.readInt();
+                if (length < 0 || length > MAX_ENTRY_LENGTH) {
+                    return; // corrupt frame
+                }
+                sequence = in.readLong();
+                in.readFully(payload, 0, length);
+                int checksum = in.readInt();
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return; // torn write
+                }
+            } catch (IOException e) {
+                return; // end of the log, or an incomplete entry
+            }
+            if (sequence <= state.getSequence()) {
+                continue; // already in the snapshot
+            }
+
+            JournalEntry entry;
+            try {
+                entry = JournalEntry.read(new DataInputStream(new ByteArrayInputStream(payload, 0, length)));
+            } catch (IOException e) {
+                // the frame is intact, so the next entry starts right after it
+                logger.warning(String.format(
+                    "Skipping game journal entry %d in %s, which could not be read (%s).",
+                    sequence, journalFile.getFileName(), e.getMessage()
+                ));
+                state.skip(sequence);
+                continue;
+            }
+            state.apply(sequence, entry);
+        }
+    }
+
+    /**
+     * Open the journal for recording, starting from the loaded state.
+     * The loaded state is written as a new snapshot first, which also discards any torn entry at the end of the log.
+     * @throws IOException if the journal files could not be written
+     */
+    public void open() throws IOException {
+        if (journalFile == null) {
+            return;
+        }
+
+        Files.createDirectories(journalFile.getParent());
+        writeSnapshot();
+        this.channel = FileChannel.open(
+            journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND
+        );
+        channel.truncate(0);
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        writer.register(this);
+        this.recording = true;
+    }
+
+    /**
+     * Record a change to the game state. The change is written to disk asynchronously, in a batch with other changes.
+     * Does nothing if the journal is not open.
+     * @param entry the change to record
+     */
+    public void record(JournalEntry entry) {
+        if (recording) {
+            writer.submit(this, entry);
+        }
+    }
+
+    /**
+     * Stop recording changes. Changes that were already recorded will still be written.
+     */
+    void stopRecording() {
+        this.recording = false;
+    }
+
+    /**
+     * Append an entry to the log and apply it to the writer's copy of the state.
+     * Only called by the writer thread.
+     * @param entry the entry to append
+     * @throws IOException if the entry could not be written
+     */
+    void append(JournalEntry entry) throws IOException {
+        entryBuffer.reset();
+        entry.write(entryOut);
+        entryOut.flush();
+
+        long sequence = state.getSequence() + 1;
+        crc.reset();
+        crc.update(entryBuffer.toByteArray());
+
+        out.writeInt(entryBuffer.size());
+        out.writeLong(sequence);
+        entryBuffer.writeTo(out);
+        out.writeInt((int) crc.getValue());
+        state.apply(sequence, entry);
+    }
+
+    /**
+     * Flush appended entries and force them to disk. Only called by the writer thread.
+     * @throws IOException if the entries could not be written
+     */
+    void flush() throws IOException {
+        out.flush();
+        channel.force(false);
+    }
+
+    /**
+     * Check if entries have been appended since the last snapshot. Only called by the writer thread.
+     * @return true if a new snapshot would differ from the last one
+     */
+    boolean hasChangesSinceSnapshot() {
+        return state.getSequence() != snapshotSequence;
+    }
+
+    /**
+     * Replace the snapshot with the current state and truncate the log. Only called by the writer thread.
+     * @throws IOException if the snapshot could not be written
+     */
+    void snapshot() throws IOException {
+        flush();
+        writeSnapshot();
+        channel.truncate(0);
+    }
+
+    /**
+     * Flush and close the log. Only called by the writer thread.
+     * @throws IOException if the log could not be closed
+     */
+    void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Helper to write the current state to a temporary file and atomically move it over the snapshot,
+     * so a crash never leaves a partial snapshot behind.
+     * @throws IOException if the snapshot could not be written
+     */
+    private void writeSnapshot() throws IOException {
+        Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temporaryFile.toFile());
+             DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            state.write(snapshotOut);
+            snapshotOut.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.snapshotSequence = state.getSequence();
+    }
+}
@@ -0,0 +1,219 @@
+package me.nbernich.blockFinderPlugin.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The persistent state of one arena's game: scores, memberships, the current round, which block types have
+ * already been used, and the seed targets are drawn with. The journal writer keeps a copy up to date by applying every entry it writes, so a snapshot
+ * always matches the journal exactly, without reading anything from the game threads.
+ */
+public class GameState {
+
+    private static final int MAGIC_V1 = 0x42465331; // "BFS1", before the target seed was saved
+    private static final int MAGIC = 0x42465332; // "BFS2"
+
+    private long sequence; // sequence number of the last journal entry applied
+    private long epoch;
+    private boolean hasTargetSeed;
+    private long targetSeed;
+    private final List<String> targets;
+    private final Set<String> usedBlockTypes;
+    private final Map<String, Integer> scores;
+    private final Map<UUID, String> memberships;
+
+    /**
+     * Create an empty state, as for an arena that has never been played.
+     */
+    public GameState() {
+        this.sequence = 0;
+        this.epoch = 0;
+        this.hasTargetSeed = false;
+        this.targetSeed = 0;
+        this.targets = new ArrayList<>();
+        this.usedBlockTypes = new LinkedHashSet<>();
+        this.scores = new LinkedHashMap<>();
+        this.memberships = new HashMap<>();
+    }
+
+    /**
+     * Record that a journal entry was skipped because it could not be read, so its sequence number is not applied
+     * again.
+     * @param sequence the sequence number of the entry
+     */
+    public void skip(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Apply a journal entry to this state.
+     * @param sequence the sequence number of the entry
+     * @param entry the entry to apply
+     */
+    public void apply(long sequence, JournalEntry entry) {
+        this.sequence = sequence;
+        switch (entry) {
+            case JournalEntry.Point point -> scores.merge(point.team(), 1, Integer::sum);
+            case JournalEntry.Score score -> scores.put(score.team(), score.score());
+            case JournalEntry.Join join -> memberships.put(join.player(), join.team());
+            case JournalEntry.Leave leave -> memberships.remove(leave.player());
+            case JournalEntry.Round round -> {
+                this.epoch = round.epoch();
+                targets.clear();
+                targets.addAll(round.targets());
+                if (round.drawn()) {
+                    usedBlockTypes.addAll(round.targets());
+                }
+            }
+            case JournalEntry.Refill refill -> usedBlockTypes.clear();
+            case JournalEntry.Seed seed -> {
+                this.hasTargetSeed = true;
+                this.targetSeed = seed.seed();
+            }
+        }
+    }
+
+    /**
+     * Get the sequence number of the last journal entry applied to this state.
+     * @return the sequence number, or 0 if no entries have been applied
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the epoch of the current round.
+     * @return the epoch of the current round
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Check if a target seed has been saved.
+     * @return true if the arena has recorded the seed it draws targets with
+     */
+    public boolean hasTargetSeed() {
+        return hasTargetSeed;
+    }
+
+    /**
+     * Get the seed the arena drew targets with, so a random seed can be used again after a restart.
+     * @return the saved seed, or 0 if none was saved
+     */
+    public long getTargetSeed() {
+        return targetSeed;
+    }
+
+    /**
+     * Get the names of the current target block types.
+     * @return the current targets, or an empty list if the game is not running
+     */
+    public List<String> getTargets() {
+        return Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * Get the names of block types that have been used as targets since the pool was last refilled.
+     * @return the used block types
+     */
+    public Set<String> getUsedBlockTypes() {
+        return Collections.unmodifiableSet(usedBlockTypes);
+    }
+
+    /**
+     * Get the score of each team, by team name.
+     * @return the team scores
+     */
+    public Map<String, Integer> getScores() {
+        return Collections.unmodifiableMap(scores);
+    }
+
+    /**
+     * Get the team of each player, by player UUID.
+     * @return the team memberships
+     */
+    public Map<UUID, String> getMemberships() {
+        return Collections.unmodifiableMap(memberships);
+    }
+
+    /**
+     * Write this state as a compact snapshot.
+     * @param out the stream to write to
+     * @throws IOException if the snapshot could not be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeLong(sequence);
+        out.writeLong(epoch);
+        out.writeBoolean(hasTargetSeed);
+        out.writeLong(targetSeed);
+        writeStrings(out, targets);
+        writeStrings(out, usedBlockTypes);
+
+        out.writeInt(scores.size());
+        for (Map.Entry<String, Integer> score : scores.entrySet()) {
+            out.writeUTF(score.getKey());
+            out.writeInt(score.getValue());
+        }
+
+        out.writeInt(memberships.size());
+        for (Map.Entry<UUID, String> membership : memberships.entrySet()) {
+            out.writeLong(membership.getKey().getMostSignificantBits());
+            out.writeLong(membership.getKey().getLeastSignificantBits());
+            out.writeUTF(membership.getValue());
+        }
+    }
+
+    /**
+     * Read a state from a snapshot written by {@link #write(DataOutput)}. Snapshots from before the target seed was
+     * saved are read without one.
+     * @param in the stream to read from
+     * @return the state in the snapshot
+     * @throws IOException if the snapshot could not be read or is not a snapshot
+     */
+    public static GameState read(DataInput in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC && magic != MAGIC_V1) {
+            throw new IOException("Not a Block Finder state snapshot");
+        }
+
+        GameState state = new GameState();
+        state.sequence = in.readLong();
+        state.epoch = in.readLong();
+        if (magic == MAGIC) {
+            state.hasTargetSeed = in.readBoolean();
+            state.targetSeed = in.readLong();
+        }
+        readStrings(in, state.targets);
+        readStrings(in, state.usedBlockTypes);
+
+        int scoreCount = in.readInt();
+        for (int i = 0; i < scoreCount; i++) {
+            state.scores.put(in.readUTF(), in.readInt());
+        }
+
+        int membershipCount = in.readInt();
+        for (int i = 0; i < membershipCount; i++) {
+            UUID player = new UUID(in.readLong(), in.readLong());
+            state.memberships.put(player, in.readUTF());
+        }
+        return state;
+    }
+
+    private static void writeStrings(DataOutput out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static void readStrings(DataInput in, Collection<String> strings) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            strings.add(in.readUTF());
+        }
+    }
+}
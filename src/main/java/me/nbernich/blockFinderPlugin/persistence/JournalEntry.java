@@ -0,0 +1,148 @@
+package me.nbernich.blockFinderPlugin.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A single change to an arena's game state, as recorded in its journal.
+ * Block types and teams are stored by name, so a journal can be replayed even if the server's block list changes.
+ */
+public sealed interface JournalEntry {
+
+    byte POINT = 1;
+    byte SCORE = 2;
+    byte JOIN = 3;
+    byte LEAVE = 4;
+    byte ROUND = 5;
+    byte REFILL = 6;
+    byte SEED = 7;
+
+    /**
+     * A team earned a point.
+     * @param team the name of the team
+     */
+    record Point(String team) implements JournalEntry {
+    }
+
+    /**
+     * A team's score was set to a specific value.
+     * @param team the name of the team
+     * @param score the new score
+     */
+    record Score(String team, int score) implements JournalEntry {
+    }
+
+    /**
+     * A player joined a team, leaving any previous team.
+     * @param player the UUID of the player
+     * @param team the name of the team
+     */
+    record Join(UUID player, String team) implements JournalEntry {
+    }
+
+    /**
+     * A player left their team.
+     * @param player the UUID of the player
+     */
+    record Leave(UUID player) implements JournalEntry {
+    }
+
+    /**
+     * A new round started. A round with no targets means the game was stopped.
+     * @param epoch the epoch of the round
+     * @param targets the names of the target block types
+     * @param drawn whether the targets were removed from the pool of candidates (repeat prevention)
+     */
+    record Round(long epoch, List<String> targets, boolean drawn) implements JournalEntry {
+    }
+
+    /**
+     * The pool of candidate block types was refilled.
+     */
+    record Refill() implements JournalEntry {
+    }
+
+    /**
+     * The arena started drawing targets with a seed, so a random seed is kept when the server restarts.
+     * @param seed the seed targets are drawn with
+     */
+    record Seed(long seed) implements JournalEntry {
+    }
+
+    /**
+     * Write this entry to a stream.
+     * @param out the stream to write to
+     * @throws IOException if the entry could not be written
+     */
+    default void write(DataOutput out) throws IOException {
+        switch (this) {
+            case Point point -> {
+                out.writeByte(POINT);
+                out.writeUTF(point.team());
+            }
+            case Score score -> {
+                out.writeByte(SCORE);
+                out.writeUTF(score.team());
+                out.writeInt(score.score());
+            }
+            case Join join -> {
+                out.writeByte(JOIN);
+                out.writeLong(join.player().getMostSignificantBits());
+                out.writeLong(join.player().getLeastSignificantBits());
+                out.writeUTF(join.team());
+            }
+            case Leave leave -> {
+                out.writeByte(LEAVE);
+                out.writeLong(leave.player().getMostSignificantBits());
+                out.writeLong(leave.player().getLeastSignificantBits());
+            }
+            case Round round -> {
+                out.writeByte(ROUND);
+                out.writeLong(round.epoch());
+                out.writeBoolean(round.drawn());
+                out.writeByte(round.targets().size());
+                for (String target : round.targets()) {
+                    out.writeUTF(target);
+                }
+            }
+            case Refill refill -> out.writeByte(REFILL);
+            case Seed seed -> {
+                out.writeByte(SEED);
+                out.writeLong(seed.seed());
+            }
+        }
+    }
+
+    /**
+     * Read an entry from a stream.
+     * @param in the stream to read from
+     * @return the entry that was read
+     * @throws IOException if the entry could not be read or has an unknown type
+     */
+    static JournalEntry read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case POINT -> new Point(in.readUTF());
+            case SCORE -> new Score(in.readUTF(), in.readInt());
+            case JOIN -> new Join(new UUID(in.readLong(), in.readLong()), in.readUTF());
+            case LEAVE -> new Leave(new UUID(in.readLong(), in.readLong()));
+            case ROUND -> {
+                long epoch = in.readLong();
+                boolean drawn = in.readBoolean();
+                int targetCount = in.readUnsignedByte();
+                List<String> targets = new ArrayList<>(targetCount);
+                for (int i = 0; i < targetCount; i++) {
+                    targets.add(in.readUTF());
+                }
+                yield new Round(epoch, targets, drawn);
+            }
+            case REFILL -> new Refill();
+            case SEED -> new Seed(in.readLong());
+            default -> throw new IOException("Unknown journal entry type " + type);
+        };
+    }
+}
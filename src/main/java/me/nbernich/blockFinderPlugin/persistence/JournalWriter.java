@@ -0,0 +1,168 @@
+package me.nbernich.blockFinderPlugin.persistence;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A background thread that writes journal entries for every arena.
+ * Entries are queued by game threads and written in batches: the writer takes everything queued since its last
+ * batch, appends it, and forces each touched journal to disk once per batch. Every few seconds, journals that have
+ * changed are compacted into a snapshot. The game threads never wait for any of this.
+ */
+public class JournalWriter implements Runnable {
+
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    private static final Pending SHUTDOWN = new Pending(null, null);
+
+    private final Logger logger;
+    private final long snapshotIntervalNanos;
+    private final BlockingQueue<Pending> queue;
+    private final List<GameJournal> journals;
+    private final Thread thread;
+
+    /**
+     * Create a journal writer. The writer does not run until it is started.
+     * @param logger the logger to report write failures to
+     * @param snapshotIntervalSeconds how often to compact changed journals into snapshots
+     */
+    public JournalWriter(Logger logger, int snapshotIntervalSeconds) {
+        this.logger = logger;
+        this.snapshotIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, snapshotIntervalSeconds));
+        this.queue = new LinkedBlockingQueue<>();
+        this.journals = new CopyOnWriteArrayList<>();
+        this.thread = new Thread(this, "BlockFinder Journal Writer");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Start writing entries in the background.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Stop recording changes, write everything already queued, snapshot every journal, and close them.
+     * Blocks until the writer has finished, so this should only be called while the plugin is disabling.
+     */
+    public void shutdown() {
+        for (GameJournal journal : journals) {
+            journal.stopRecording();
+        }
+        queue.add(SHUTDOWN);
+        try {
+            thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("Timed out waiting for the game journal to be written.");
+        }
+    }
+
+    /**
+     * Add a journal to be written by this writer.
+     * @param journal the journal to add
+     */
+    void register(GameJournal journal) {
+        journals.add(journal);
+    }
+
+    /**
+     * Queue an entry to be appended to a journal.
+     * @param journal the journal to append to
+     * @param entry the entry to append
+     */
+    void submit(GameJournal journal, JournalEntry entry) {
+        queue.add(new Pending(journal, entry));
+    }
+
+    @Override
+    public void run() {
+        List<Pending> batch = new ArrayList<>();
+        Set<GameJournal> touched = new LinkedHashSet<>();
+        long nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+        boolean stopping = false;
+
+        while (!stopping) {
+            try {
+                long wait = Math.max(0, nextSnapshot - System.nanoTime());
+                Pending first = queue.poll(wait, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+
+            for (Pending pending : batch) {
+                if (pending == SHUTDOWN) {
+                    stopping = true;
+                    continue;
+                }
+                try {
+                    pending.journal().append(pending.entry());
+                    touched.add(pending.journal());
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Could not write to the game journal.", e);
+                }
+            }
+            batch.clear();
+
+            for (GameJournal journal : touched) {
+                try {
+                    journal.flush();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Could not flush the game journal.", e);
+                }
+            }
+            touched.clear();
+
+            if (stopping || System.nanoTime() - nextSnapshot >= 0) {
+                snapshotChangedJournals();
+                nextSnapshot = System.nanoTime() + snapshotIntervalNanos;
+            }
+        }
+
+        for (GameJournal journal : journals) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not close the game journal.", e);
+            }
+        }
+    }
+
+    /**
+     * Helper to compact every journal that has changed since its last snapshot.
+     */
+    private void snapshotChangedJournals() {
+        for (GameJournal journal : journals) {
+            if (!journal.hasChangesSinceSnapshot()) {
+                continue;
+            }
+            try {
+                journal.snapshot();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not write a game state snapshot.", e);
+            }
+        }
+    }
+
+    /**
+     * An entry waiting to be appended to a journal.
+     */
+    private record Pending(GameJournal journal, JournalEntry entry) {
+    }
+}
@@ -0,0 +1,509 @@
+package me.nbernich.blockFinderPlugin.persistence;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only log of every finished round, kept for analyzing matches afterward.
+ * <p>
+ * Rounds are written by a single background thread, in a compact binary format: numbers are variable-length, and
+ * each string (arena, team, or block type name) is written in full only the first time it appears in a file, and as
+ * a small index after that. The log is split into numbered segment files, and a new segment is started whenever the
+ * current one grows past the configured size, and every time the plugin is enabled. Because a segment is never
+ * appended to after a restart, a crash can only leave an incomplete round at the very end of a segment, which is
+ * skipped when reading.
+ * <p>
+ * Exports stream the segments to CSV or JSON one round at a time on the same thread, so the history is never loaded
+ * into memory and exports always include every round recorded before them.
+ */
+public class RoundHistory {
+
+    /**
+     * The file formats the history can be exported to.
+     */
+    public enum Format {
+        CSV, JSON
+    }
+
+    /**
+     * The result of an export.
+     * @param file the file the history was exported to
+     * @param roundCount the number of rounds exported
+     */
+    public record Export(Path file, long roundCount) {
+    }
+
+    private static final int MAGIC = 0x42465248; // "BFRH"
+    private static final String SEGMENT_PREFIX = "rounds-";
+    private static final String SEGMENT_SUFFIX = ".bin";
+    private static final DateTimeFormatter EXPORT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    private final Logger logger;
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final ExecutorService executor;
+
+    // only used by the executor thread
+    private int segmentIndex;
+    private DataOutputStream out;
+    private final Map<String, Integer> dictionary;
+
+    /**
+     * Create a round history stored in the given directory. Nothing is written until the history is opened.
+     * @param logger the logger to report write failures to
+     * @param directory the directory containing the history segments and exports
+     * @param maxSegmentKilobytes the size at which a new segment is started
+     */
+    public RoundHistory(Logger logger, Path directory, int maxSegmentKilobytes) {
+        this.logger = logger;
+        this.directory = directory;
+        this.maxSegmentBytes = Math.max(1, maxSegmentKilobytes) * 1024L;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BlockFinder Round History");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dictionary = new HashMap<>();
+    }
+
+    /**
+     * Start a new segment for the rounds played from now on.
+     */
+    public void open() {
+        executor.execute(() -> {
+            try {
+                Files.createDirectories(directory);
+                this.segmentIndex = findLastSegmentIndex();
+                startSegment();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not open the round history.", e);
+            }
+        });
+    }
+
+    /**
+     * Add a finished round to the history. The round is written in the background.
+     * @param round the round to add
+     */
+    public void record(RoundRecord round) {
+        executor.execute(() -> {
+            if (out == null) {
+                return;
+            }
+            try {
+                if (out.size() >= maxSegmentBytes) {
+                    startSegment();
+                }
+                writeRound(round);
+                out.flush();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not write to the round history.", e);
+            }
+        });
+    }
+
+    /**
+     * Export the whole history to a new file in the history directory, in the background.
+     * @param format the format to export to
+     * @return a future completed with the result of the export, or completed exceptionally if it failed
+     */
+    public CompletableFuture<Export> export(Format format) {
+        return CompletableFuture.supplyAsync(() -> {
+            Path file = findExportFile(format);
+            try (BufferedWriter writer = Files.newBufferedWriter(
+                file, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE
+            )) {
+                long roundCount = format == Format.CSV ? exportCsv(writer) : exportJson(writer);
+                return new Export(file, roundCount);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Finish writing every queued round and close the history.
+     * Blocks until the history has been written, so this should only be called while the plugin is disabling.
+     */
+    public void close() {
+        executor.execute(() -> {
+            try {
+                if (out != null) {
+                    out.close();
+                    this.out = null;
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Could not close the round history.", e);
+            }
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.warning("Timed out waiting for the round history to be written.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper to close the current segment, if any, and start the next one with an empty string dictionary.
+     * @throws IOException if the segment could not be created
+     */
+    private void startSegment() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        this.segmentIndex++;
+        Path file = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+            file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE
+        )));
+        dictionary.clear();
+        out.writeInt(MAGIC);
+    }
+
+    /**
+     * Helper to write a round to the current segment.
+     * @param round the round to write
+     * @throws IOException if the round could not be written
+     */
+    private void writeRound(RoundRecord round) throws IOException {
+        out.writeByte(round.outcome().ordinal());
+        writeString(round.arena());
+        writeVarLong(out, round.epoch());
+        writeVarLong(out, round.startTimeMillis());
+        writeVarLong(out, Math.max(0, round.durationMillis()));
+        out.writeByte(round.targets().size());
+        for (String target : round.targets()) {
+            writeString(target);
+        }
+        if (round.outcome() == RoundRecord.Outcome.FOUND) {
+            out.writeLong(round.finder().getMostSignificantBits());
+            out.writeLong(round.finder().getLeastSignificantBits());
+            writeString(round.team());
+            writeString(round.foundBlockType());
+        }
+    }
+
+    /**
+     * Helper to write a string as its index in the segment's dictionary, followed by the string itself
+     * if this is its first appearance in the segment.
+     * @param string the string to write
+     * @throws IOException if the string could not be written
+     */
+    private void writeString(String string) throws IOException {
+        Integer index = dictionary.get(string);
+        if (index != null) {
+            writeVarLong(out, index);
+            return;
+        }
+        int newIndex = dictionary.size();
+        dictionary.put(string, newIndex);
+        writeVarLong(out, newIndex);
+        out.writeUTF(string);
+    }
+
+    /**
+     * Helper to find the index of the newest existing segment.
+     * @return the highest segment index, or 0 if there are no segments
+     * @throws IOException if the history directory could not be listed
+     */
+    private int findLastSegmentIndex() throws IOException {
+        int lastIndex = 0;
+        for (Path segment : listSegments()) {
+            String fileName = segment.getFileName().toString();
+            String number = fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length());
+            try {
+                lastIndex = Math.max(lastIndex, Integer.parseInt(number));
+            } catch (NumberFormatException e) {
+                // not one of our segments
+            }
+        }
+        return lastIndex;
+    }
+
+    /**
+     * Helper to list every segment, oldest first.
+     * @return the paths of all segments in the history directory
+     * @throws IOException if the history directory could not be listed
+     */
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+            directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX
+        )) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        segments.sort(Comparator.comparing(Path::getFileName)); // names are zero-padded, so this is numeric order
+        return segments;
+    }
+
+    /**
+     * Helper to pick a name for a new export file, from the current time down to the millisecond. Exports run one at
+     * a time on the executor, so a counter is only added if an earlier export started in the same millisecond.
+     * @param format the format of the export, which gives the file extension
+     * @return the path of an export file that does not exist yet
+     */
+    private Path findExportFile(Format format) {
+        String name = "export-" + LocalDateTime.now().format(EXPORT_TIMESTAMP);
+        String extension = "." + format.name().toLowerCase(Locale.ROOT);
+        Path file = directory.resolve(name + extension);
+        for (int i = 2; Files.exists(file); i++) {
+            file = directory.resolve(name + "-" + i + extension);
+        }
+        return file;
+    }
+
+    /**
+     * Helper to read every round in the history, oldest first, passing each to a visitor.
+     * Reading a segment stops at the first incomplete round, which can only be at the end of a segment, and at the
+     * first corrupt round, which is logged. Either way, reading goes on with the next segment.
+     * @param visitor the visitor to pass each round to
+     * @throws IOException if a segment could not be opened, or the visitor failed
+     */
+    private void readRounds(RoundVisitor visitor) throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+
+        List<String> strings = new ArrayList<>();
+        for (Path segment : listSegments()) {
+            strings.clear();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+                if (in.readInt() != MAGIC) {
+                    logger.warning(String.format("Skipping %s, which is not a round history segment.", segment));
+                    continue;
+                }
+                while (true) {
+                    RoundRecord round;
+                    try {
+                        round = readRound(in, strings);
+                    } catch (EOFException | UTFDataFormatException e) {
+                        break; // end of the segment, or an incomplete round at its end
+                    } catch (IOException e) {
+                        logger.warning(String.format(
+                            "Skipping the rest of %s after a corrupt round (%s).", segment, e.getMessage()
+                        ));
+                        break;
+                    }
+                    if (round == null) {
+                        logger.warning(String.format(
+                            "Skipping the rest of %s after a corrupt round (unknown outcome or string index).",
+                            segment
+                        ));
+                        break;
+                    }
+                    visitor.visit(round);
+                }
+            } catch (EOFException e) {
+                // an empty segment
+            }
+        }
+    }
+
+    /**
+     * Helper to read a round written by {@link #writeRound(RoundRecord)}.
+     * @param in the segment to read from
+     * @param strings the strings seen so far in the segment, by dictionary index
+     * @return the round that was read, or null if the segment is corrupt
+     * @throws IOException if the round could not be read
+     */
+    private static RoundRecord readRound(DataInputStream in, List<String> strings) throws IOException {
+        RoundRecord.Outcome outcome = RoundRecord.Outcome.fromOrdinal(in.readUnsignedByte());
+        if (outcome == null) {
+            return null;
+        }
+        String arena = readString(in, strings);
+        long epoch = readVarLong(in);
+        long startTimeMillis = readVarLong(in);
+        long endTimeMillis = startTimeMillis + readVarLong(in);
+        int targetCount = in.readUnsignedByte();
+        List<String> targets = new ArrayList<>(targetCount);
+        for (int i = 0; i < targetCount; i++) {
+            targets.add(readString(in, strings));
+        }
+
+        UUID finder = null;
+        String team = null;
+        String foundBlockType = null;
+        if (outcome == RoundRecord.Outcome.FOUND) {
+            finder = new UUID(in.readLong(), in.readLong());
+            team = readString(in, strings);
+            foundBlockType = readString(in, strings);
+        }
+        boolean missingFind = outcome == RoundRecord.Outcome.FOUND && (team == null || foundBlockType == null);
+        if (arena == null || targets.contains(null) || missingFind) {
+            return null; // a string index that was never defined, so the segment is corrupt
+        }
+        return new RoundRecord(
+            arena, epoch, startTimeMillis, endTimeMillis, targets, outcome, finder, team, foundBlockType
+        );
+    }
+
+    /**
+     * Helper to read a string written by {@link #writeString(String)}.
+     * @param in the segment to read from
+     * @param strings the strings seen so far in the segment, by dictionary index
+     * @return the string, or null if its index is invalid
+     * @throws IOException if the string could not be read
+     */
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        long index = readVarLong(in);
+        if (index >= 0 && index < strings.size()) {
+            return strings.get((int) index);
+        }
+        if (index != strings.size()) {
+            return null;
+        }
+        String string = in.readUTF();
+        strings.add(string);
+        return string;
+    }
+
+    /**
+     * Helper to stream the history as CSV, with one row per round.
+     * @param writer the writer to export to
+     * @return the number of rounds exported
+     * @throws IOException if the history could not be read or exported
+     */
+    private long exportCsv(BufferedWriter writer) throws IOException {
+        writer.write("arena,epoch,outcome,start_time,duration_ms,targets,finder,team,found_block");
+        writer.newLine();
+        long[] roundCount = {0};
+        readRounds(round -> {
+            writer.write(csvField(round.arena()));
+            writer.write(',');
+            writer.write(Long.toString(round.epoch()));
+            writer.write(',');
+            writer.write(round.outcome().name().toLowerCase(Locale.ROOT));
+            writer.write(',');
+            writer.write(Instant.ofEpochMilli(round.startTimeMillis()).toString());
+            writer.write(',');
+            writer.write(Long.toString(round.durationMillis()));
+            writer.write(',');
+            writer.write(csvField(String.join(";", round.targets())));
+            writer.write(',');
+            writer.write(round.finder() == null ? "" : round.finder().toString());
+            writer.write(',');
+            writer.write(round.team() == null ? "" : csvField(round.team()));
+            writer.write(',');
+            writer.write(round.foundBlockType() == null ? "" : round.foundBlockType());
+            writer.newLine();
+            roundCount[0]++;
+        });
+        return roundCount[0];
+    }
+
+    /**
+     * Helper to stream the history as a JSON array, with one object per round.
+     * @param writer the writer to export to
+     * @return the number of rounds exported
+     * @throws IOException if the history could not be read or exported
+     */
+    private long exportJson(BufferedWriter writer) throws IOException {
+        writer.write('[');
+        long[] roundCount = {0};
+        readRounds(round -> {
+            writer.write(roundCount[0] == 0 ? "\n  {" : ",\n  {");
+            writer.write("\"arena\": " + jsonString(round.arena()));
+            writer.write(", \"epoch\": " + round.epoch());
+            writer.write(", \"outcome\": " + jsonString(round.outcome().name().toLowerCase(Locale.ROOT)));
+            writer.write(", \"startTime\": " + jsonString(Instant.ofEpochMilli(round.startTimeMillis()).toString()));
+            writer.write(", \"durationMillis\": " + round.durationMillis());
+            writer.write(", \"targets\": [");
+            for (int i = 0; i < round.targets().size(); i++) {
+                writer.write(i == 0 ? "" : ", ");
+                writer.write(jsonString(round.targets().get(i)));
+            }
+            writer.write(']');
+            if (round.outcome() == RoundRecord.Outcome.FOUND) {
+                writer.write(", \"finder\": " + jsonString(round.finder().toString()));
+                writer.write(", \"team\": " + jsonString(round.team()));
+                writer.write(", \"foundBlock\": " + jsonString(round.foundBlockType()));
+            }
+            writer.write('}');
+            roundCount[0]++;
+        });
+        writer.write(roundCount[0] == 0 ? "]" : "\n]");
+        writer.newLine();
+        return roundCount[0];
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+
+    /**
+     * A callback for each round read from the history.
+     */
+    @FunctionalInterface
+    private interface RoundVisitor {
+        void visit(RoundRecord round) throws IOException;
+    }
+}
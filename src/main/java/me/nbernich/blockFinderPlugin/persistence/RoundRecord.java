@@ -0,0 +1,53 @@
+package me.nbernich.blockFinderPlugin.persistence;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A finished round, as written to the round history.
+ * @param arena the name of the arena the round was played in
+ * @param epoch the epoch of the round within its arena
+ * @param startTimeMillis when the round started, in milliseconds since the epoch
+ * @param endTimeMillis when the round ended, in milliseconds since the epoch
+ * @param targets the names of the target block types
+ * @param outcome how the round ended
+ * @param finder the UUID of the player who found a target, or null if the round was not won
+ * @param team the name of the finder's team, or null if the round was not won
+ * @param foundBlockType the name of the block type that was found, or null if the round was not won
+ */
+public record RoundRecord(
+    String arena, long epoch, long startTimeMillis, long endTimeMillis, List<String> targets, Outcome outcome,
+    UUID finder, String team, String foundBlockType
+) {
+
+    /**
+     * How a round ended.
+     */
+    public enum Outcome {
+        /** A player found one of the targets. */
+        FOUND,
+        /** The round was skipped, and new targets were selected. */
+        SKIPPED,
+        /** The game was stopped, or ran out of block types. */
+        STOPPED;
+
+        private static final Outcome[] VALUES = values();
+
+        /**
+         * Get an outcome by its ordinal, as stored in the history file.
+         * @param ordinal the ordinal of the outcome
+         * @return the outcome, or null if the ordinal is out of range
+         */
+        static Outcome fromOrdinal(int ordinal) {
+            return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+        }
+    }
+
+    /**
+     * Get how long the round lasted.
+     * @return the length of the round in milliseconds
+     */
+    public long durationMillis() {
+        return endTimeMillis - startTimeMillis;
+    }
+}
@@ -0,0 +1,387 @@
+package me.nbernich.blockFinderPlugin.proximity;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.game.Arena;
+import me.nbernich.blockFinderPlugin.game.BlockManager;
+import me.nbernich.blockFinderPlugin.game.Round;
+import me.nbernich.blockFinderPlugin.utils.Colors;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shows each player in a running game how far they are from the nearest target block, and whether they are
+ * getting warmer or colder, in their action bar.
+ * <p>
+ * Target blocks are kept in a TargetIndex per world. Chunks are added as they load and removed as they unload,
+ * and placed or broken target blocks update their chunk in place. Chunks that load during a game are queued for a
+ * scan, and when an arena's round changes, a task on the global thread notices the new epoch and queues every
+ * indexed chunk in the arena's worlds. A few queued chunks per tick are snapshotted on the thread that owns them,
+ * and then scanned for the targets on a background thread, so loading many chunks at once never stalls a tick.
+ * Distance queries only read the index, so they are cheap enough to run for every player several times a second.
+ */
+public class ProximityTracker {
+
+    private final static int DEFAULT_RADIUS_CHUNKS = 4;
+    private final static int DEFAULT_UPDATE_INTERVAL_TICKS = 5;
+    private final static int DEFAULT_CHUNKS_PER_TICK = 32;
+
+    private final BlockFinderGame game;
+    private final int radiusChunks;
+    private final int updateIntervalTicks;
+    private final int chunksPerTick;
+    private final ConcurrentHashMap<UUID, TargetIndex> indexesByWorldId;
+    private final ConcurrentHashMap<UUID, Long> lastDistances; // squared distance last shown to each player
+    private final HashMap<Arena, Long> indexedEpochs; // only used on the global thread
+    private final LinkedHashSet<ChunkRebuild> rebuildQueue; // only used on the global thread
+    private final ConcurrentLinkedQueue<ChunkRebuild> loadedChunks; // chunks to move to the rebuild queue
+    private final Component[][] messages; // rendered messages by trend and distance, filled on first use
+    private ExecutorService scanner;
+    private ScheduledTask rebuildTask;
+    private ScheduledTask displayTask;
+
+    /**
+     * Initialize the ProximityTracker with user-defined settings.
+     * @param game The game this tracker is connected to.
+     * @param config The configuration section containing game settings.
+     */
+    public ProximityTracker(BlockFinderGame game, ConfigurationSection config) {
+        this.game = game;
+        this.indexesByWorldId = new ConcurrentHashMap<>();
+        this.lastDistances = new ConcurrentHashMap<>();
+        this.indexedEpochs = new HashMap<>();
+        this.rebuildQueue = new LinkedHashSet<>();
+        this.loadedChunks = new ConcurrentLinkedQueue<>();
+
+        int configRadius = config.getInt("proximity.radiusChunks", DEFAULT_RADIUS_CHUNKS);
+        if (configRadius < 0) {
+            game.getLogger().warning("Invalid proximity radius. Cannot be less than 0. Using default.");
+            this.radiusChunks = DEFAULT_RADIUS_CHUNKS;
+        } else {
+            this.radiusChunks = configRadius;
+        }
+
+        int configUpdateInterval = config.getInt("proximity.updateIntervalTicks", DEFAULT_UPDATE_INTERVAL_TICKS);
+        if (configUpdateInterval < 1) {
+            game.getLogger().warning("Invalid proximity update interval. Cannot be less than 1 tick. Using default.");
+            this.updateIntervalTicks = DEFAULT_UPDATE_INTERVAL_TICKS;
+        } else {
+            this.updateIntervalTicks = configUpdateInterval;
+        }
+
+        int configChunksPerTick = config.getInt("proximity.chunksPerTick", DEFAULT_CHUNKS_PER_TICK);
+        if (configChunksPerTick < 1) {
+            game.getLogger().warning("Invalid proximity chunks per tick. Cannot be less than 1. Using default.");
+            this.chunksPerTick = DEFAULT_CHUNKS_PER_TICK;
+        } else {
+            this.chunksPerTick = configChunksPerTick;
+        }
+
+        int maxDistance = (radiusChunks + 1) * 16 * 2; // generous bound on any distance within the search radius
+        this.messages = new Component[Trend.VALUES.length][maxDistance + 1];
+    }
+
+    /**
+     * Start tracking chunks and showing distances.
+     * Chunks around players who are already online are added to the index and queued for a scan, since their load
+     * events were missed.
+     */
+    public void start() {
+        this.scanner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "BlockFinder Proximity Index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Player player : game.getServer().getOnlinePlayers()) {
+            Scheduling.runForPlayer(game.getPlugin(), player, () -> trackChunksAround(player));
+        }
+        this.rebuildTask = Scheduling.runGlobalAtFixedRate(game.getPlugin(), this::rebuildChanged, 1L);
+        this.displayTask = Scheduling.runGlobalAtFixedRate(game.getPlugin(), this::showDistances, updateIntervalTicks);
+    }
+
+    /**
+     * Stop showing distances and discard the index.
+     */
+    public void stop() {
+        if (rebuildTask != null) {
+            rebuildTask.cancel();
+        }
+        if (displayTask != null) {
+            displayTask.cancel();
+        }
+        if (scanner != null) {
+            scanner.shutdownNow();
+        }
+        indexesByWorldId.clear();
+        lastDistances.clear();
+        loadedChunks.clear();
+    }
+
+    /**
+     * Add a chunk that has just loaded to the index, and queue it to be scanned for targets if a game is running.
+     * The scan shares the per-tick budget with rebuilds, so a burst of chunk loads is spread over several ticks.
+     * @param chunk the chunk that loaded
+     */
+    public void onChunkLoad(Chunk chunk) {
+        track(chunk.getWorld(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Remove a chunk that is unloading from the index.
+     * @param chunk the chunk that is unloading
+     */
+    public void onChunkUnload(Chunk chunk) {
+        TargetIndex index = indexesByWorldId.get(chunk.getWorld().getUID());
+        if (index != null) {
+            index.untrack(chunk.getX(), chunk.getZ());
+        }
+    }
+
+    /**
+     * Update the index after a block changed from one type to another, if either type is a current target.
+     * Should be called from the thread that owns the block.
+     * @param world the world the block is in
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param oldType the type of the block before the change
+     * @param newType the type of the block after the change
+     */
+    public void onBlockChange(World world, int x, int y, int z, Material oldType, Material newType) {
+        Round round = getTrackedRound(game.getArenaManager().getArena(world));
+        boolean wasTarget = round.getTargets().contains(oldType);
+        boolean isTarget = round.getTargets().contains(newType);
+        if (wasTarget == isTarget) {
+            return;
+        }
+        TargetIndex index = getIndex(world);
+        if (isTarget) {
+            index.add(x, y, z, round.getEpoch());
+        } else {
+            index.remove(x, y, z, round.getEpoch());
+        }
+    }
+
+    /**
+     * Forget the last distance shown to a player, such as when they leave.
+     * @param player the player to forget
+     */
+    public void forget(Player player) {
+        lastDistances.remove(player.getUniqueId());
+    }
+
+    /**
+     * Helper to queue rebuilds for arenas whose round has changed, and start rebuilding the next few chunks.
+     * Runs on the global thread every tick.
+     */
+    private void rebuildChanged() {
+        ChunkRebuild loaded;
+        while ((loaded = loadedChunks.poll()) != null) {
+            rebuildQueue.add(loaded);
+        }
+        for (Arena arena : game.getArenaManager().getArenas()) {
+            Round round = getTrackedRound(arena);
+            Long indexedEpoch = indexedEpochs.put(arena, round.getEpoch());
+            if (indexedEpoch != null && indexedEpoch == round.getEpoch()) {
+                continue;
+            }
+            if (round.getTargets().isEmpty()) {
+                continue;
+            }
+            // a chunk still queued from an earlier round keeps its place, and is scanned for the newest targets
+            for (World world : game.getArenaManager().getWorlds(arena)) {
+                for (long chunkKey : getIndex(world).chunkKeys()) {
+                    rebuildQueue.add(new ChunkRebuild(world.getUID(), chunkKey));
+                }
+            }
+        }
+
+        Iterator<ChunkRebuild> queued = rebuildQueue.iterator();
+        for (int i = 0; i < chunksPerTick && queued.hasNext(); i++) {
+            ChunkRebuild rebuild = queued.next();
+            queued.remove();
+            World world = game.getServer().getWorld(rebuild.worldId());
+            TargetIndex index = indexesByWorldId.get(rebuild.worldId());
+            if (world == null || index == null) {
+                continue;
+            }
+            int chunkX = (int) rebuild.chunkKey();
+            int chunkZ = (int) (rebuild.chunkKey() >> 32);
+            game.getServer().getRegionScheduler().execute(game.getPlugin(), world, chunkX, chunkZ, () -> {
+                if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                    return;
+                }
+                Round round = getTrackedRound(game.getArenaManager().getArena(world));
+                if (!round.getTargets().isEmpty()) {
+                    scan(world.getChunkAt(chunkX, chunkZ), index, round);
+                }
+            });
+        }
+    }
+
+    /**
+     * Helper to get the round whose targets are indexed for an arena. In a race, each team has its own targets,
+     * which are not indexed, so no distances are shown.
+     * @param arena the arena to get the round of
+     * @return the arena's current round, or an empty round during a race
+     */
+    private static Round getTrackedRound(Arena arena) {
+        BlockManager blockManager = arena.getBlockManager();
+        return blockManager.isRacing() ? Round.NONE : blockManager.getCurrentRound();
+    }
+
+    /**
+     * Helper to add a loaded chunk to the index, and queue it for a scan if a game is running in its world.
+     * Can be called from any thread.
+     * @param world the world the chunk is in
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     */
+    private void track(World world, int chunkX, int chunkZ) {
+        getIndex(world).track(chunkX, chunkZ);
+        Round round = getTrackedRound(game.getArenaManager().getArena(world));
+        if (!round.getTargets().isEmpty()) {
+            loadedChunks.add(new ChunkRebuild(world.getUID(), TargetIndex.chunkKey(chunkX, chunkZ)));
+        }
+    }
+
+    /**
+     * Helper to snapshot a chunk on the current thread, which must own it, and scan it in the background.
+     * @param chunk the chunk to scan
+     * @param index the index of the chunk's world
+     * @param round the round whose targets to look for
+     */
+    private void scan(Chunk chunk, TargetIndex index, Round round) {
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        int maxHeight = chunk.getWorld().getMaxHeight();
+        scanner.execute(() -> index.build(snapshot, round.getTargets(), round.getEpoch(), maxHeight));
+    }
+
+    /**
+     * Helper to add the loaded chunks around a player to the index, and queue them for a scan if a game is running.
+     * Runs on the player's thread.
+     * @param player the player whose surroundings to track
+     */
+    private void trackChunksAround(Player player) {
+        World world = player.getWorld();
+        Location location = player.getLocation();
+        int centerChunkX = location.getBlockX() >> 4;
+        int centerChunkZ = location.getBlockZ() >> 4;
+        for (int chunkX = centerChunkX - radiusChunks; chunkX <= centerChunkX + radiusChunks; chunkX++) {
+            for (int chunkZ = centerChunkZ - radiusChunks; chunkZ <= centerChunkZ + radiusChunks; chunkZ++) {
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    track(world, chunkX, chunkZ);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper to show every player in a running game their distance to the nearest target.
+     * Runs on the global thread once per update interval, and queries each player on their own thread.
+     */
+    private void showDistances() {
+        for (Player player : game.getServer().getOnlinePlayers()) {
+            Scheduling.runForPlayer(game.getPlugin(), player, () -> showDistance(player));
+        }
+    }
+
+    /**
+     * Helper to show a player their distance to the nearest target, if a game is running in their world.
+     * Runs on the player's thread.
+     * @param player the player to show the distance to
+     */
+    private void showDistance(Player player) {
+        World world = player.getWorld();
+        Round round = getTrackedRound(game.getArenaManager().getArena(world));
+        TargetIndex index = indexesByWorldId.get(world.getUID());
+        if (round.getTargets().isEmpty() || index == null) {
+            lastDistances.remove(player.getUniqueId());
+            return;
+        }
+
+        Location location = player.getLocation();
+        long distanceSquared = index.nearestDistanceSquared(
+            location.getBlockX(), location.getBlockY(), location.getBlockZ(), round.getEpoch(), radiusChunks
+        );
+        Long lastDistanceSquared = distanceSquared < 0
+            ? lastDistances.remove(player.getUniqueId())
+            : lastDistances.put(player.getUniqueId(), distanceSquared);
+
+        Trend trend;
+        if (distanceSquared < 0) {
+            trend = Trend.NONE;
+        } else if (lastDistanceSquared == null || lastDistanceSquared == distanceSquared) {
+            trend = Trend.STEADY;
+        } else {
+            trend = distanceSquared < lastDistanceSquared ? Trend.WARMER : Trend.COLDER;
+        }
+        int distance = distanceSquared < 0 ? 0 : (int) Math.round(Math.sqrt(distanceSquared));
+        player.sendActionBar(getMessage(trend, distance));
+    }
+
+    /**
+     * Helper to get the message for a distance and trend, rendering it on first use.
+     * @param trend whether the player is getting closer, farther, or neither
+     * @param distance the distance to the nearest target, in blocks
+     * @return the action bar message
+     */
+    private Component getMessage(Trend trend, int distance) {
+        int clampedDistance = Math.min(distance, messages[trend.ordinal()].length - 1);
+        Component message = messages[trend.ordinal()][clampedDistance];
+        if (message != null) {
+            return message;
+        }
+
+        if (trend == Trend.NONE) {
+            message = Component.text(
+                String.format("No targets within %d blocks", radiusChunks * 16), Colors.DEFAULT
+            );
+        } else {
+            String blocksLabel = clampedDistance == 1 ? " block" : " blocks";
+            message = Component.text("Nearest target: ", Colors.DEFAULT)
+                .append(Component.text(clampedDistance, Colors.HEADER))
+                .append(Component.text(blocksLabel, Colors.DEFAULT));
+            if (trend == Trend.WARMER) {
+                message = message.append(Component.text(" - warmer", Colors.WARMER));
+            } else if (trend == Trend.COLDER) {
+                message = message.append(Component.text(" - colder", Colors.COLDER));
+            }
+        }
+        messages[trend.ordinal()][clampedDistance] = message;
+        return message;
+    }
+
+    private TargetIndex getIndex(World world) {
+        return indexesByWorldId.computeIfAbsent(world.getUID(), id -> new TargetIndex(world.getMinHeight()));
+    }
+
+    /**
+     * Whether a player is getting closer to the nearest target since their last update.
+     */
+    private enum Trend {
+        NONE, STEADY, WARMER, COLDER;
+
+        private static final Trend[] VALUES = values();
+    }
+
+    /**
+     * A chunk waiting to be rebuilt for new targets. A chunk is queued at most once, and is scanned for the targets
+     * of whichever round is current when its turn comes.
+     */
+    private record ChunkRebuild(UUID worldId, long chunkKey) {
+    }
+}
@@ -0,0 +1,213 @@
+package me.nbernich.blockFinderPlugin.proximity;
+
+import me.nbernich.blockFinderPlugin.game.TargetSet;
+import org.bukkit.ChunkSnapshot;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A spatial index of the target blocks in one world's loaded chunks.
+ * <p>
+ * Each chunk maps to an immutable array of its target block positions, packed into ints, tagged with the epoch of
+ * the round whose targets it was built for. Entries from an older round are ignored by queries until the chunk is
+ * rebuilt. Block changes replace a chunk's array with an updated copy, so queries can read entries from any thread
+ * without locking, and one query only touches the chunks in a small square around the player.
+ */
+class TargetIndex {
+
+    private final int minHeight;
+    private final ConcurrentHashMap<Long, ChunkTargets> chunks;
+
+    /**
+     * Create an empty index for a world.
+     * @param minHeight the lowest block height in the world
+     */
+    TargetIndex(int minHeight) {
+        this.minHeight = minHeight;
+        this.chunks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the key of a chunk, combining its coordinates into one number.
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     * @return the key of the chunk
+     */
+    static long chunkKey(int chunkX, int chunkZ) {
+        return (chunkX & 0xFFFFFFFFL) | ((long) chunkZ << 32);
+    }
+
+    /**
+     * Get the keys of every chunk in the index, including ones that are out of date.
+     * @return the chunk keys
+     */
+    Iterable<Long> chunkKeys() {
+        return chunks.keySet();
+    }
+
+    /**
+     * Add a loaded chunk to the index without any targets, so it will be included in the next rebuild.
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     */
+    void track(int chunkX, int chunkZ) {
+        chunks.putIfAbsent(chunkKey(chunkX, chunkZ), ChunkTargets.UNBUILT);
+    }
+
+    /**
+     * Remove an unloaded chunk from the index.
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkZ the z coordinate of the chunk
+     */
+    void untrack(int chunkX, int chunkZ) {
+        chunks.remove(chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Scan a chunk snapshot for target blocks and store the result, replacing what was indexed for the chunk.
+     * This walks through every block in the chunk, so it should run off the server threads.
+     * Does nothing if the chunk was unloaded while it was being scanned, or was already built for a newer round by a
+     * scan that finished first.
+     * @param snapshot the chunk to scan
+     * @param targets the targets to look for
+     * @param epoch the epoch of the round the targets belong to
+     * @param maxHeight the highest block height in the world, exclusive
+     */
+    void build(ChunkSnapshot snapshot, TargetSet targets, long epoch, int maxHeight) {
+        int[] positions = new int[16];
+        int count = 0;
+        for (int sectionY = minHeight; sectionY < maxHeight; sectionY += 16) {
+            if (snapshot.isSectionEmpty((sectionY - minHeight) >> 4)) {
+                continue;
+            }
+            int sectionTop = Math.min(sectionY + 16, maxHeight);
+            for (int y = sectionY; y < sectionTop; y++) {
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        if (targets.contains(snapshot.getBlockType(x, y, z))) {
+                            if (count == positions.length) {
+                                positions = Arrays.copyOf(positions, count * 2);
+                            }
+                            positions[count++] = pack(x, y, z);
+                        }
+                    }
+                }
+            }
+        }
+
+        ChunkTargets built = new ChunkTargets(epoch, Arrays.copyOf(positions, count));
+        chunks.computeIfPresent(chunkKey(snapshot.getX(), snapshot.getZ()), (key, old) -> old.epoch() > epoch ? old : built);
+    }
+
+    /**
+     * Record that a target block was placed. Only applies to chunks that are indexed for the given round.
+     * @param blockX the x coordinate of the block
+     * @param blockY the y coordinate of the block
+     * @param blockZ the z coordinate of the block
+     * @param epoch the epoch of the current round
+     */
+    void add(int blockX, int blockY, int blockZ, long epoch) {
+        int position = pack(blockX & 15, blockY, blockZ & 15);
+        chunks.computeIfPresent(chunkKey(blockX >> 4, blockZ >> 4), (key, old) -> {
+            if (old.epoch() != epoch || indexOf(old.positions(), position) >= 0) {
+                return old;
+            }
+            int[] positions = Arrays.copyOf(old.positions(), old.positions().length + 1);
+            positions[positions.length - 1] = position;
+            return new ChunkTargets(epoch, positions);
+        });
+    }
+
+    /**
+     * Record that a target block was removed. Only applies to chunks that are indexed for the given round.
+     * @param blockX the x coordinate of the block
+     * @param blockY the y coordinate of the block
+     * @param blockZ the z coordinate of the block
+     * @param epoch the epoch of the current round
+     */
+    void remove(int blockX, int blockY, int blockZ, long epoch) {
+        int position = pack(blockX & 15, blockY, blockZ & 15);
+        chunks.computeIfPresent(chunkKey(blockX >> 4, blockZ >> 4), (key, old) -> {
+            int index = old.epoch() == epoch ? indexOf(old.positions(), position) : -1;
+            if (index < 0) {
+                return old;
+            }
+            int[] positions = new int[old.positions().length - 1];
+            System.arraycopy(old.positions(), 0, positions, 0, index);
+            System.arraycopy(old.positions(), index + 1, positions, index, positions.length - index);
+            return new ChunkTargets(epoch, positions);
+        });
+    }
+
+    /**
+     * Find the squared distance from a position to the nearest indexed target block.
+     * Chunks are searched in rings around the position's chunk, stopping once no closer block can exist.
+     * @param blockX the x coordinate of the position
+     * @param blockY the y coordinate of the position
+     * @param blockZ the z coordinate of the position
+     * @param epoch the epoch of the current round, so out-of-date chunks are skipped
+     * @param radiusChunks how many chunks away from the position's chunk to search
+     * @return the squared distance to the nearest target block, or -1 if there is none within the radius
+     */
+    long nearestDistanceSquared(int blockX, int blockY, int blockZ, long epoch, int radiusChunks) {
+        int centerChunkX = blockX >> 4;
+        int centerChunkZ = blockZ >> 4;
+        long best = Long.MAX_VALUE;
+
+        for (int ring = 0; ring <= radiusChunks; ring++) {
+            // every block in this ring is at least this far away horizontally, so a closer result cannot exist
+            long ringDistance = (long) Math.max(0, ring - 1) * 16;
+            if (best <= ringDistance * ringDistance) {
+                break;
+            }
+
+            for (int dx = -ring; dx <= ring; dx++) {
+                boolean isEdgeColumn = dx == -ring || dx == ring;
+                int step = isEdgeColumn ? 1 : 2 * ring; // inside the ring, only the top and bottom chunks are new
+                for (int dz = -ring; dz <= ring; dz += Math.max(1, step)) {
+                    ChunkTargets entry = chunks.get(chunkKey(centerChunkX + dx, centerChunkZ + dz));
+                    if (entry == null || entry.epoch() != epoch) {
+                        continue;
+                    }
+                    int baseX = (centerChunkX + dx) << 4;
+                    int baseZ = (centerChunkZ + dz) << 4;
+                    for (int position : entry.positions()) {
+                        long offsetX = baseX + (position & 15) - blockX;
+                        long offsetY = (position >>> 8) + minHeight - blockY;
+                        long offsetZ = baseZ + ((position >>> 4) & 15) - blockZ;
+                        long distance = offsetX * offsetX + offsetY * offsetY + offsetZ * offsetZ;
+                        if (distance < best) {
+                            best = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return best == Long.MAX_VALUE ? -1 : best;
+    }
+
+    /**
+     * Helper to pack a position within a chunk into an int: x in bits 0-3, z in bits 4-7, and height above the
+     * bottom of the world in the remaining bits.
+     */
+    private int pack(int localX, int y, int localZ) {
+        return localX | (localZ << 4) | ((y - minHeight) << 8);
+    }
+
+    private static int indexOf(int[] positions, int position) {
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] == position) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The target block positions in one chunk, for the round with the given epoch.
+     */
+    private record ChunkTargets(long epoch, int[] positions) {
+        private static final ChunkTargets UNBUILT = new ChunkTargets(-1, new int[0]);
+    }
+}
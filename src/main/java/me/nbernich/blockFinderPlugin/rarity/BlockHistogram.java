@@ -0,0 +1,159 @@
+package me.nbernich.blockFinderPlugin.rarity;
+
+import org.bukkit.Material;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Counts of each block type found while scanning a world, indexed by Material ordinal.
+ * Air is counted but left out of the total, so the abundance of a block type is its share of the solid blocks
+ * (and liquids) that were scanned. Chunk counts are merged in from several scanning threads, so updates are
+ * synchronized; they happen once per chunk, not once per block.
+ */
+public final class BlockHistogram {
+
+    private static final int MAGIC = 0x42464248; // "BFBH"
+    private static final Material[] MATERIALS = Material.values();
+
+    private final long[] counts;
+    private long nonAirCount;
+    private int chunkCount;
+    private int scanRadius;
+    private long scannedAtMillis;
+
+    /**
+     * Create an empty histogram for a scan of the given radius.
+     * @param scanRadius the radius of the scan, in chunks around the world spawn
+     */
+    public BlockHistogram(int scanRadius) {
+        this.counts = new long[MATERIALS.length];
+        this.nonAirCount = 0;
+        this.chunkCount = 0;
+        this.scanRadius = scanRadius;
+        this.scannedAtMillis = 0;
+    }
+
+    /**
+     * Add the block counts of a scanned chunk.
+     * @param chunkCounts the number of blocks of each type in the chunk, by Material ordinal
+     */
+    synchronized void addChunk(int[] chunkCounts) {
+        for (int ordinal = 0; ordinal < chunkCounts.length; ordinal++) {
+            int count = chunkCounts[ordinal];
+            if (count == 0) {
+                continue;
+            }
+            counts[ordinal] += count;
+            if (!MATERIALS[ordinal].isAir()) {
+                nonAirCount += count;
+            }
+        }
+        chunkCount++;
+    }
+
+    /**
+     * Mark the scan as finished at the current time.
+     */
+    synchronized void finish() {
+        this.scannedAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the number of blocks of a type that were found.
+     * @param blockType the block type to look up
+     * @return the number of blocks of that type
+     */
+    public synchronized long getCount(Material blockType) {
+        return counts[blockType.ordinal()];
+    }
+
+    /**
+     * Get the number of blocks found that are not air.
+     * @return the number of non-air blocks
+     */
+    public synchronized long getNonAirCount() {
+        return nonAirCount;
+    }
+
+    /**
+     * Get the number of chunks that were scanned.
+     * @return the number of chunks
+     */
+    public synchronized int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Get the radius of the scan that produced this histogram.
+     * @return the radius, in chunks around the world spawn
+     */
+    public synchronized int getScanRadius() {
+        return scanRadius;
+    }
+
+    /**
+     * Get when the scan that produced this histogram finished.
+     * @return the time, in milliseconds since the epoch
+     */
+    public synchronized long getScannedAtMillis() {
+        return scannedAtMillis;
+    }
+
+    /**
+     * Write this histogram to a stream. Block types are stored by name, so the cache survives server updates.
+     * @param out the stream to write to
+     * @throws IOException if the histogram could not be written
+     */
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(scanRadius);
+        out.writeLong(scannedAtMillis);
+        out.writeInt(chunkCount);
+
+        int presentCount = 0;
+        for (long count : counts) {
+            if (count != 0) {
+                presentCount++;
+            }
+        }
+        out.writeInt(presentCount);
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] != 0) {
+                out.writeUTF(MATERIALS[ordinal].name());
+                out.writeLong(counts[ordinal]);
+            }
+        }
+    }
+
+    /**
+     * Read a histogram written by {@link #write(DataOutput)}. Block types that no longer exist are skipped.
+     * @param in the stream to read from
+     * @return the histogram that was read
+     * @throws IOException if the histogram could not be read
+     */
+    public static BlockHistogram read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a Block Finder block histogram");
+        }
+
+        BlockHistogram histogram = new BlockHistogram(in.readInt());
+        histogram.scannedAtMillis = in.readLong();
+        histogram.chunkCount = in.readInt();
+
+        int presentCount = in.readInt();
+        for (int i = 0; i < presentCount; i++) {
+            Material blockType = Material.getMaterial(in.readUTF());
+            long count = in.readLong();
+            if (blockType == null) {
+                continue;
+            }
+            histogram.counts[blockType.ordinal()] = count;
+            if (!blockType.isAir()) {
+                histogram.nonAirCount += count;
+            }
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,75 @@
+package me.nbernich.blockFinderPlugin.rarity;
+
+import org.bukkit.Material;
+
+/**
+ * Which block types exist anywhere in a world's saved region files, indexed by Material ordinal.
+ * Only section palettes are read, so each block type is counted once for every 16x16x16 section whose palette
+ * lists it, not once per block. Counts are merged in from several scanning threads, so updates are synchronized;
+ * they happen once per batch of chunks.
+ */
+public final class MaterialInventory {
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final long[] sectionCounts;
+    private long chunkCount;
+    private long skippedChunkCount;
+
+    /**
+     * Create an empty inventory.
+     */
+    public MaterialInventory() {
+        this.sectionCounts = new long[MATERIALS.length];
+        this.chunkCount = 0;
+        this.skippedChunkCount = 0;
+    }
+
+    /**
+     * Add the section counts of a batch of scanned chunks.
+     * @param batchSectionCounts the number of sections listing each block type, by Material ordinal
+     * @param batchChunkCount the number of chunks that were read
+     * @param batchSkippedChunkCount the number of chunks that could not be read or were not fully generated
+     */
+    synchronized void addChunks(long[] batchSectionCounts, int batchChunkCount, int batchSkippedChunkCount) {
+        for (int ordinal = 0; ordinal < batchSectionCounts.length; ordinal++) {
+            sectionCounts[ordinal] += batchSectionCounts[ordinal];
+        }
+        chunkCount += batchChunkCount;
+        skippedChunkCount += batchSkippedChunkCount;
+    }
+
+    /**
+     * Check if a block type appears anywhere in the scanned chunks.
+     * @param blockType the block type to check
+     * @return true if at least one section lists the block type, false otherwise
+     */
+    public synchronized boolean contains(Material blockType) {
+        return sectionCounts[blockType.ordinal()] > 0;
+    }
+
+    /**
+     * Get the number of sections whose palette lists a block type.
+     * @param blockType the block type to get the count of
+     * @return the number of sections that contain the block type
+     */
+    public synchronized long getSectionCount(Material blockType) {
+        return sectionCounts[blockType.ordinal()];
+    }
+
+    /**
+     * Get the number of fully generated chunks that were read.
+     * @return the number of chunks that were read
+     */
+    public synchronized long getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Get the number of chunks that could not be read, or were not fully generated.
+     * @return the number of chunks that were skipped
+     */
+    public synchronized long getSkippedChunkCount() {
+        return skippedChunkCount;
+    }
+}
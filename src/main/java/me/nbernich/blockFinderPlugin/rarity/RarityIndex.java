@@ -0,0 +1,353 @@
+package me.nbernich.blockFinderPlugin.rarity;
+
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * An index of how common each block type is in each world, used to keep rare block types out of target selection,
+ * or to make them less likely to be selected.
+ * <p>
+ * Block counts come from a background scan of the chunks around each world's spawn (see WorldScan), and are cached
+ * in the plugin's rarity folder so a world is only scanned again once its cache is older than the configured age.
+ * Worlds are scanned one at a time. Whenever a scan finishes, the target candidates of arenas where no game is
+ * running are reloaded, and running arenas pick up the new data when their next game starts.
+ * <p>
+ * For pre-generated maps, the region files of every world can also be read directly (see RegionScan), to find
+ * which block types exist anywhere in the map without loading any chunks. Block types that do not appear in any
+ * of an arena's worlds are then left out of its targets entirely.
+ */
+public class RarityIndex {
+
+    private final static double DEFAULT_MINIMUM_ABUNDANCE = 0.000005;
+    private final static int DEFAULT_SCAN_RADIUS = 16;
+    private final static int DEFAULT_CHUNKS_PER_TICK = 4;
+    private final static int DEFAULT_RESCAN_AFTER_HOURS = 168;
+    private static final Material[] MATERIALS = Material.values();
+
+    private final BlockFinderGame game;
+    private final Path directory;
+    private final double minimumAbundance;
+    private final double rareWeight;
+    private final int scanRadius;
+    private final int chunksPerTick;
+    private final long rescanAfterMillis;
+    private final boolean shouldScanRegionFiles;
+    private final ConcurrentHashMap<String, BlockHistogram> histogramsByWorldName;
+    private final ConcurrentHashMap<String, MaterialInventory> inventoriesByWorldName;
+    private final ArrayDeque<World> worldsToScan; // only used on the global thread
+    private ForkJoinPool pool;
+    private WorldScan currentScan;
+
+    /**
+     * Initialize the RarityIndex with user-defined settings.
+     * @param game The game this index is connected to.
+     * @param config The configuration section containing game settings.
+     */
+    public RarityIndex(BlockFinderGame game, ConfigurationSection config) {
+        this.game = game;
+        this.directory = game.getDataFolder().toPath().resolve("rarity");
+        this.histogramsByWorldName = new ConcurrentHashMap<>();
+        this.inventoriesByWorldName = new ConcurrentHashMap<>();
+        this.worldsToScan = new ArrayDeque<>();
+
+        double configMinimumAbundance = config.getDouble("rarity.minimumAbundance", DEFAULT_MINIMUM_ABUNDANCE);
+        if (configMinimumAbundance < 0 || configMinimumAbundance >= 1) {
+            game.getLogger().warning("Invalid minimum abundance. Must be at least 0 and less than 1. Using default.");
+            this.minimumAbundance = DEFAULT_MINIMUM_ABUNDANCE;
+        } else {
+            this.minimumAbundance = configMinimumAbundance;
+        }
+
+        double configRareWeight = config.getDouble("rarity.rareWeight", 0);
+        if (configRareWeight < 0) {
+            game.getLogger().warning("Invalid rare weight. Cannot be negative. Using 0.");
+            this.rareWeight = 0;
+        } else {
+            this.rareWeight = configRareWeight;
+        }
+
+        int configScanRadius = config.getInt("rarity.scanRadiusChunks", DEFAULT_SCAN_RADIUS);
+        if (configScanRadius < 0) {
+            game.getLogger().warning("Invalid scan radius. Cannot be less than 0. Using default.");
+            this.scanRadius = DEFAULT_SCAN_RADIUS;
+        } else {
+            this.scanRadius = configScanRadius;
+        }
+
+        int configChunksPerTick = config.getInt("rarity.chunksPerTick", DEFAULT_CHUNKS_PER_TICK);
+        if (configChunksPerTick < 1) {
+            game.getLogger().warning("Invalid chunks per tick. Cannot be less than 1. Using default.");
+            this.chunksPerTick = DEFAULT_CHUNKS_PER_TICK;
+        } else {
+            this.chunksPerTick = configChunksPerTick;
+        }
+
+        this.rescanAfterMillis = TimeUnit.HOURS.toMillis(config.getInt("rarity.rescanAfterHours", DEFAULT_RESCAN_AFTER_HOURS));
+        this.shouldScanRegionFiles = config.getBoolean("rarity.scanRegionFiles", false);
+    }
+
+    /**
+     * Load the cached block counts of every world, and start scanning worlds whose cache is missing or out of date.
+     * If enabled, the region files of every world are also read in the background.
+     * Reads from disk, so it should only be called while the plugin is enabling.
+     */
+    public void start() {
+        this.pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+        for (World world : game.getServer().getWorlds()) {
+            BlockHistogram histogram = loadCache(world);
+            if (histogram != null) {
+                histogramsByWorldName.put(world.getName(), histogram);
+            }
+            boolean isStale = histogram == null
+                || histogram.getScanRadius() != scanRadius
+                || System.currentTimeMillis() - histogram.getScannedAtMillis() > rescanAfterMillis;
+            if (isStale) {
+                worldsToScan.add(world);
+            }
+            if (shouldScanRegionFiles) {
+                scanRegionFiles(world);
+            }
+        }
+        Scheduling.runGlobal(game.getPlugin(), this::scanNextWorld);
+    }
+
+    /**
+     * Stop any scan in progress. Worlds that were not finished will be scanned again next time.
+     */
+    public void stop() {
+        if (currentScan != null) {
+            currentScan.cancel();
+            this.currentScan = null;
+        }
+        worldsToScan.clear();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Get weight multipliers for target candidates, based on how common each block type is in the given worlds.
+     * Block types that are common enough keep their weight, and rare ones have it scaled by the rare weight,
+     * which leaves them out entirely when the rare weight is 0. Counts from all of the worlds are combined.
+     * @param candidates the block types that may be selected as targets
+     * @param worlds the worlds the targets will be searched for in
+     * @param minimumCount the fewest block types that may be left selectable
+     * @return a multiplier for each block type by Material ordinal, or null if none of the worlds have been scanned
+     *     yet or too few block types would be left
+     */
+    public double[] getWeightMultipliers(Collection<Material> candidates, Collection<World> worlds, int minimumCount) {
+        List<BlockHistogram> histograms = new ArrayList<>();
+        long nonAirCount = 0;
+        for (World world : worlds) {
+            BlockHistogram histogram = histogramsByWorldName.get(world.getName());
+            if (histogram != null) {
+                histograms.add(histogram);
+                nonAirCount += histogram.getNonAirCount();
+            }
+        }
+        if (nonAirCount == 0) {
+            return null;
+        }
+
+        double[] multipliers = new double[MATERIALS.length];
+        Arrays.fill(multipliers, 1.0);
+        int commonCount = 0;
+        for (Material candidate : candidates) {
+            long count = 0;
+            for (BlockHistogram histogram : histograms) {
+                count += histogram.getCount(candidate);
+            }
+            if (count > 0 && (double) count / nonAirCount >= minimumAbundance) {
+                commonCount++;
+            } else {
+                multipliers[candidate.ordinal()] = rareWeight;
+            }
+        }
+
+        if (rareWeight == 0 && commonCount < minimumCount) {
+            game.getLogger().warning(String.format(
+                "Only %d block types are common enough to be targets. Ignoring rarity instead.", commonCount
+            ));
+            return null;
+        }
+        return multipliers;
+    }
+
+    /**
+     * Get the target candidates that exist somewhere in the region files of the given worlds.
+     * @param candidates the block types that may be selected as targets
+     * @param worlds the worlds the targets will be searched for in
+     * @param minimumCount the fewest block types that may be left
+     * @return the candidates found in at least one of the worlds, or null if the region files of any of the worlds
+     *     have not been read yet or too few block types would be left
+     */
+    public List<Material> getPresentBlockTypes(Collection<Material> candidates, Collection<World> worlds, int minimumCount) {
+        List<MaterialInventory> inventories = new ArrayList<>();
+        for (World world : worlds) {
+            MaterialInventory inventory = inventoriesByWorldName.get(world.getName());
+            if (inventory == null) {
+                return null; // a block type missing from the scanned worlds may still exist in this one
+            }
+            inventories.add(inventory);
+        }
+        if (inventories.isEmpty()) {
+            return null;
+        }
+
+        List<Material> presentBlockTypes = new ArrayList<>();
+        for (Material candidate : candidates) {
+            for (MaterialInventory inventory : inventories) {
+                if (inventory.contains(candidate)) {
+                    presentBlockTypes.add(candidate);
+                    break;
+                }
+            }
+        }
+
+        if (presentBlockTypes.size() < minimumCount) {
+            game.getLogger().warning(String.format(
+                "Only %d block types exist in the map. Ignoring the region file scan instead.", presentBlockTypes.size()
+            ));
+            return null;
+        }
+        return presentBlockTypes;
+    }
+
+    /**
+     * Helper to read the region files of a world in the background, and reload the target candidates of idle arenas
+     * once they have been read.
+     * @param world the world whose region files to read
+     */
+    private void scanRegionFiles(World world) {
+        String worldName = world.getName();
+        Path regionFolder = getRegionFolder(world);
+        game.getLogger().info(String.format("Reading the region files of world '%s'...", worldName));
+        new RegionScan(regionFolder, pool).start().whenComplete((inventory, error) -> {
+            if (error != null) {
+                game.getLogger().log(
+                    Level.WARNING, String.format("Could not read the region files of world '%s'.", worldName), error
+                );
+                return;
+            }
+            inventoriesByWorldName.put(worldName, inventory);
+            game.getLogger().info(String.format(
+                "Read %d chunks from the region files of world '%s' (%d skipped).",
+                inventory.getChunkCount(), worldName, inventory.getSkippedChunkCount()
+            ));
+            Scheduling.runGlobal(game.getPlugin(), () -> game.getArenaManager().loadIdleBlockTypes());
+        });
+    }
+
+    /**
+     * Helper to get the folder holding a world's region files, which depends on its dimension.
+     * @param world the world to get the region folder of
+     * @return the path of the world's region folder
+     */
+    private static Path getRegionFolder(World world) {
+        Path worldFolder = world.getWorldFolder().toPath();
+        return switch (world.getEnvironment()) {
+            case NETHER -> worldFolder.resolve("DIM-1").resolve("region");
+            case THE_END -> worldFolder.resolve("DIM1").resolve("region");
+            default -> worldFolder.resolve("region");
+        };
+    }
+
+    /**
+     * Helper to start scanning the next world that needs it, if no scan is running.
+     * Runs on the global thread.
+     */
+    private void scanNextWorld() {
+        if (currentScan != null || worldsToScan.isEmpty()) {
+            return;
+        }
+
+        World world = worldsToScan.poll();
+        game.getLogger().info(String.format("Scanning world '%s' for block rarity...", world.getName()));
+        WorldScan scan = new WorldScan(game, world, pool, scanRadius, chunksPerTick);
+        this.currentScan = scan;
+        scan.start().thenAcceptAsync(histogram -> {
+            saveCache(world, histogram);
+            Scheduling.runGlobal(game.getPlugin(), () -> finishScan(scan, world, histogram));
+        }, pool);
+    }
+
+    /**
+     * Helper to publish the results of a finished scan and move on to the next world.
+     * Runs on the global thread.
+     * @param scan the scan that finished
+     * @param world the world that was scanned
+     * @param histogram the block counts from the scan
+     */
+    private void finishScan(WorldScan scan, World world, BlockHistogram histogram) {
+        if (currentScan != scan) {
+            return; // stopped while the cache was being written
+        }
+        this.currentScan = null;
+        histogramsByWorldName.put(world.getName(), histogram);
+        game.getLogger().info(String.format(
+            "Finished scanning %d chunks of world '%s' for block rarity.", histogram.getChunkCount(), world.getName()
+        ));
+        game.getArenaManager().loadIdleBlockTypes();
+        scanNextWorld();
+    }
+
+    /**
+     * Helper to read the cached block counts of a world.
+     * @param world the world to read the cache of
+     * @return the cached block counts, or null if there is no readable cache
+     */
+    private BlockHistogram loadCache(World world) {
+        Path file = getCacheFile(world);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return BlockHistogram.read(in);
+        } catch (IOException e) {
+            game.getLogger().warning(String.format(
+                "Could not read the block rarity cache of world '%s'. It will be scanned again.", world.getName()
+            ));
+            return null;
+        }
+    }
+
+    /**
+     * Helper to write the block counts of a world to its cache, replacing the old cache atomically.
+     * @param world the world the counts belong to
+     * @param histogram the block counts to write
+     */
+    private void saveCache(World world, BlockHistogram histogram) {
+        Path file = getCacheFile(world);
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaryFile))
+            )) {
+                histogram.write(out);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            game.getLogger().log(
+                Level.WARNING, String.format("Could not cache the block rarity of world '%s'.", world.getName()), e
+            );
+        }
+    }
+
+    private Path getCacheFile(World world) {
+        return directory.resolve(world.getName().replaceAll("[^A-Za-z0-9_-]", "_") + ".histogram");
+    }
+}
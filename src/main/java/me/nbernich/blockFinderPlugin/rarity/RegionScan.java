@@ -0,0 +1,430 @@
+package me.nbernich.blockFinderPlugin.rarity;
+
+import org.bukkit.Material;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A scan of the Anvil region files in a world folder, finding which block types exist anywhere in the saved world.
+ * <p>
+ * The server is never asked to load a chunk. Each region file is memory-mapped, its header is read to find the
+ * chunks it holds, and the chunks are decompressed on a fork-join pool, split in halves down to a small batch of
+ * chunks per task. Chunk data is read as a stream of NBT tags, and everything except the block palette of each
+ * section is skipped without being decoded, so the packed block data itself is never unpacked.
+ * <p>
+ * Only fully generated chunks are counted. Chunks that are stored with an unsupported compression type, or that
+ * are corrupt or half-written while the server saves them, are counted as skipped.
+ */
+class RegionScan {
+
+    private static final int MATERIAL_COUNT = Material.values().length;
+    private static final int SECTOR_BYTES = 4096;
+    private static final int HEADER_BYTES = 2 * SECTOR_BYTES; // chunk locations, then timestamps
+    private static final int CHUNKS_PER_REGION = 1024;
+    private static final int CHUNKS_PER_TASK = 32;
+    private static final int EXTERNAL_CHUNK_FLAG = 128;
+
+    private static final byte TAG_END = 0;
+    private static final byte TAG_STRING = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_COMPOUND = 10;
+
+    private final Path regionFolder;
+    private final ForkJoinPool pool;
+    private final MaterialInventory inventory;
+    private final ConcurrentHashMap<String, Optional<Material>> materialsByName;
+
+    /**
+     * Create a scan of a region folder. The scan does not run until it is started.
+     * @param regionFolder the folder holding the world's .mca files
+     * @param pool the pool to decompress and read chunks on
+     */
+    RegionScan(Path regionFolder, ForkJoinPool pool) {
+        this.regionFolder = regionFolder;
+        this.pool = pool;
+        this.inventory = new MaterialInventory();
+        this.materialsByName = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start scanning in the background.
+     * @return a future completed with the block types found once every region file has been read,
+     *     or completed exceptionally if the region folder could not be listed
+     */
+    CompletableFuture<MaterialInventory> start() {
+        return CompletableFuture.supplyAsync(() -> {
+            List<Path> regionFiles = new ArrayList<>();
+            if (Files.isDirectory(regionFolder)) {
+                try (Stream<Path> files = Files.list(regionFolder)) {
+                    files.filter(file -> file.getFileName().toString().matches("r\\.-?\\d+\\.-?\\d+\\.mca"))
+                        .forEach(regionFiles::add);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            List<RegionTask> tasks = new ArrayList<>();
+            for (Path regionFile : regionFiles) {
+                tasks.add(new RegionTask(regionFile));
+            }
+            RecursiveAction.invokeAll(tasks);
+            return inventory;
+        }, pool);
+    }
+
+    /**
+     * Reads one region file: maps it, finds its chunks, and reads them in parallel.
+     */
+    private final class RegionTask extends RecursiveAction {
+
+        private final Path regionFile;
+
+        private RegionTask(Path regionFile) {
+            this.regionFile = regionFile;
+        }
+
+        @Override
+        protected void compute() {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(regionFile, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                    return; // empty, or not a region file
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); // stays valid after closing
+            } catch (IOException e) {
+                return; // deleted or unreadable, so there is nothing to count
+            }
+
+            int[] slots = new int[CHUNKS_PER_REGION];
+            int chunkCount = 0;
+            for (int slot = 0; slot < CHUNKS_PER_REGION; slot++) {
+                if (buffer.getInt(slot * 4) != 0) {
+                    slots[chunkCount++] = slot;
+                }
+            }
+            if (chunkCount > 0) {
+                new ChunkTask(buffer, slots, 0, chunkCount).invoke();
+            }
+        }
+
+        /**
+         * Reads a range of the chunks in a region file, splitting the range in halves until each task has a small
+         * batch of chunks.
+         */
+        private final class ChunkTask extends RecursiveAction {
+
+            private final MappedByteBuffer buffer;
+            private final int[] slots;
+            private final int from;
+            private final int to;
+
+            private ChunkTask(MappedByteBuffer buffer, int[] slots, int from, int to) {
+                this.buffer = buffer;
+                this.slots = slots;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > CHUNKS_PER_TASK) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(
+                        new ChunkTask(buffer, slots, from, middle), new ChunkTask(buffer, slots, middle, to)
+                    );
+                    return;
+                }
+
+                ChunkReader reader = new ChunkReader();
+                for (int i = from; i < to; i++) {
+                    int slot = slots[i];
+                    long position = (long) (buffer.getInt(slot * 4) >>> 8) * SECTOR_BYTES; // sector offset
+                    try (DataInputStream in = openChunk(buffer, position, slot, reader.inflater)) {
+                        reader.read(in);
+                    } catch (IOException | RuntimeException e) {
+                        reader.skippedChunkCount++; // corrupt, half-written, or unsupported compression
+                    }
+                }
+                reader.inflater.end();
+                inventory.addChunks(reader.sectionCounts, reader.chunkCount, reader.skippedChunkCount);
+            }
+        }
+
+        /**
+         * Helper to open a stream over the decompressed data of a chunk.
+         * @param buffer the mapped region file
+         * @param position the position of the chunk's data in the file
+         * @param slot the index of the chunk within the region, used to find oversized chunks stored separately
+         * @param inflater the inflater to reuse for zlib-compressed chunks
+         * @return a stream of the chunk's NBT data
+         * @throws IOException if the chunk is out of bounds or uses an unsupported compression type
+         */
+        private DataInputStream openChunk(ByteBuffer buffer, long position, int slot, Inflater inflater)
+            throws IOException {
+            if (position + 5 > buffer.limit()) {
+                throw new EOFException("Chunk is past the end of the region file");
+            }
+            int length = buffer.getInt((int) position);
+            int compression = buffer.get((int) position + 4) & 0xFF;
+            if (length < 1 || position + 4 + length > buffer.limit()) {
+                throw new EOFException("Chunk is past the end of the region file");
+            }
+
+            InputStream raw;
+            if ((compression & EXTERNAL_CHUNK_FLAG) != 0) {
+                raw = new BufferedInputStream(Files.newInputStream(getExternalChunkFile(slot)));
+                compression &= ~EXTERNAL_CHUNK_FLAG;
+            } else {
+                raw = new ByteBufferInputStream(buffer.slice((int) position + 5, length - 1));
+            }
+
+            inflater.reset();
+            InputStream decompressed = switch (compression) {
+                case 1 -> new GZIPInputStream(raw, SECTOR_BYTES);
+                case 2 -> new InflaterInputStream(raw, inflater, SECTOR_BYTES);
+                case 3 -> raw;
+                default -> {
+                    raw.close();
+                    throw new IOException("Unsupported chunk compression type " + compression);
+                }
+            };
+            return new DataInputStream(new BufferedInputStream(decompressed, SECTOR_BYTES));
+        }
+
+        /**
+         * Helper to get the file an oversized chunk is stored in, next to its region file.
+         * @param slot the index of the chunk within the region
+         * @return the path of the chunk's own file
+         */
+        private Path getExternalChunkFile(int slot) {
+            String[] parts = regionFile.getFileName().toString().split("\\.");
+            int chunkX = Integer.parseInt(parts[1]) * 32 + (slot & 31);
+            int chunkZ = Integer.parseInt(parts[2]) * 32 + (slot >>> 5);
+            return regionFile.resolveSibling(String.format("c.%d.%d.mcc", chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * Reads the section palettes of chunks, one batch at a time on a single thread. Scratch state is kept between
+     * chunks, so reading a chunk allocates nothing beyond the streams and palette names.
+     */
+    private final class ChunkReader {
+
+        private final Inflater inflater = new Inflater();
+        private final long[] sectionCounts = new long[MATERIAL_COUNT];
+        private final int[] sectionStamps = new int[MATERIAL_COUNT]; // last section each block type was listed in
+        private final int[] chunkSectionCounts = new int[MATERIAL_COUNT]; // sections listing each type in this chunk
+        private final int[] chunkOrdinals = new int[MATERIAL_COUNT]; // distinct block types listed in this chunk
+        private int chunkListingCount;
+        private int sectionStamp;
+        private boolean isFullChunk;
+        private int chunkCount;
+        private int skippedChunkCount;
+
+        /**
+         * Read a chunk and count the block types listed in its sections, if it is fully generated.
+         * @param in the decompressed chunk data
+         * @throws IOException if the chunk data is not valid NBT
+         */
+        private void read(DataInputStream in) throws IOException {
+            for (int i = 0; i < chunkListingCount; i++) {
+                chunkSectionCounts[chunkOrdinals[i]] = 0; // left over if the last chunk could not be read
+            }
+            this.chunkListingCount = 0;
+            this.isFullChunk = false;
+            if (in.readByte() != TAG_COMPOUND) {
+                throw new IOException("Chunk data is not a compound tag");
+            }
+            skipString(in); // root name
+            readChunkFields(in);
+
+            if (!isFullChunk) {
+                skippedChunkCount++;
+                return;
+            }
+            for (int i = 0; i < chunkListingCount; i++) {
+                int ordinal = chunkOrdinals[i];
+                sectionCounts[ordinal] += chunkSectionCounts[ordinal];
+                chunkSectionCounts[ordinal] = 0;
+            }
+            this.chunkListingCount = 0;
+            chunkCount++;
+        }
+
+        /**
+         * Helper to read the fields of a chunk compound, looking for its sections and generation status.
+         * Chunks saved before 1.18 keep these inside a "Level" compound.
+         */
+        private void readChunkFields(DataInputStream in) throws IOException {
+            byte type;
+            while ((type = in.readByte()) != TAG_END) {
+                String name = in.readUTF();
+                if (type == TAG_COMPOUND && name.equals("Level")) {
+                    readChunkFields(in);
+                } else if (type == TAG_LIST && (name.equals("sections") || name.equals("Sections"))) {
+                    readSections(in);
+                } else if (type == TAG_STRING && name.equals("Status")) {
+                    String status = in.readUTF();
+                    this.isFullChunk = status.equals("minecraft:full") || status.equals("full");
+                } else {
+                    skipTag(in, type);
+                }
+            }
+        }
+
+        private void readSections(DataInputStream in) throws IOException {
+            byte elementType = in.readByte();
+            int length = in.readInt();
+            if (elementType != TAG_COMPOUND) {
+                skipList(in, elementType, length);
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                sectionStamp++;
+                readSectionFields(in);
+            }
+        }
+
+        private void readSectionFields(DataInputStream in) throws IOException {
+            byte type;
+            while ((type = in.readByte()) != TAG_END) {
+                String name = in.readUTF();
+                if (type == TAG_COMPOUND && name.equals("block_states")) {
+                    readSectionFields(in); // the palette is inside, next to the packed block data
+                } else if (type == TAG_LIST && (name.equals("palette") || name.equals("Palette"))) {
+                    readPalette(in);
+                } else {
+                    skipTag(in, type);
+                }
+            }
+        }
+
+        private void readPalette(DataInputStream in) throws IOException {
+            byte elementType = in.readByte();
+            int length = in.readInt();
+            if (elementType != TAG_COMPOUND) {
+                skipList(in, elementType, length);
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                byte type;
+                while ((type = in.readByte()) != TAG_END) {
+                    String name = in.readUTF();
+                    if (type == TAG_STRING && name.equals("Name")) {
+                        addListing(in.readUTF());
+                    } else {
+                        skipTag(in, type);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Helper to record that the current section lists a block type. Block states of the same block type, such as
+         * stairs facing different ways, are only counted once per section. Counts are kept per chunk until its
+         * generation status is known, and each block type takes one slot of the chunk's scratch however many
+         * sections list it.
+         * @param blockName the namespaced name of the block type
+         */
+        private void addListing(String blockName) {
+            Optional<Material> material = materialsByName.computeIfAbsent(
+                blockName, name -> Optional.ofNullable(Material.matchMaterial(name))
+            );
+            if (material.isEmpty()) {
+                return;
+            }
+            int ordinal = material.get().ordinal();
+            if (sectionStamps[ordinal] != sectionStamp) {
+                sectionStamps[ordinal] = sectionStamp;
+                if (chunkSectionCounts[ordinal]++ == 0) {
+                    chunkOrdinals[chunkListingCount++] = ordinal;
+                }
+            }
+        }
+    }
+
+    private static void skipTag(DataInputStream in, byte type) throws IOException {
+        switch (type) {
+            case 1 -> in.skipNBytes(1);
+            case 2 -> in.skipNBytes(2);
+            case 3, 5 -> in.skipNBytes(4);
+            case 4, 6 -> in.skipNBytes(8);
+            case 7 -> in.skipNBytes(in.readInt());
+            case 8 -> skipString(in);
+            case 9 -> skipList(in, in.readByte(), in.readInt());
+            case 10 -> {
+                byte fieldType;
+                while ((fieldType = in.readByte()) != TAG_END) {
+                    skipString(in);
+                    skipTag(in, fieldType);
+                }
+            }
+            case 11 -> in.skipNBytes(4L * in.readInt());
+            case 12 -> in.skipNBytes(8L * in.readInt());
+            default -> throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    private static void skipList(DataInputStream in, byte elementType, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            skipTag(in, elementType);
+        }
+    }
+
+    private static void skipString(DataInputStream in) throws IOException {
+        in.skipNBytes(in.readUnsignedShort());
+    }
+
+    /**
+     * A stream over the remaining bytes of a buffer, so compressed chunks can be read straight from the mapped file.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
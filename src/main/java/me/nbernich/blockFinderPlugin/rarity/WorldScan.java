@@ -0,0 +1,188 @@
+package me.nbernich.blockFinderPlugin.rarity;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import me.nbernich.blockFinderPlugin.BlockFinderGame;
+import me.nbernich.blockFinderPlugin.utils.Scheduling;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scan of the generated chunks around a world's spawn, counting every block type.
+ * <p>
+ * Each tick, a task on the global thread asks for a few more chunks, up to the per-tick budget of chunks in flight.
+ * Chunks are loaded without generating new terrain, and a snapshot is taken on the thread that owns the chunk. The
+ * snapshots that arrived since the last tick are then counted on a fork-join pool, split in halves down to one chunk
+ * per task, so the server threads only ever copy chunk data and never walk through blocks.
+ */
+class WorldScan {
+
+    private static final int MATERIAL_COUNT = Material.values().length;
+
+    private final BlockFinderGame game;
+    private final World world;
+    private final ForkJoinPool pool;
+    private final int radius;
+    private final int chunksPerTick;
+    private final int spawnChunkX;
+    private final int spawnChunkZ;
+    private final int minHeight;
+    private final int maxHeight;
+    private final int chunkTotal;
+    private final BlockHistogram histogram;
+    private final ConcurrentLinkedQueue<ChunkSnapshot> snapshots;
+    private final AtomicInteger chunksInFlight;
+    private final AtomicInteger batchesInFlight;
+    private final CompletableFuture<BlockHistogram> result;
+    private int nextChunk; // only used on the global thread
+    private ScheduledTask task;
+
+    /**
+     * Create a scan of a world. The scan does not run until it is started.
+     * @param game the game that owns the scan
+     * @param world the world to scan
+     * @param pool the pool to count blocks on
+     * @param radius the radius to scan, in chunks around the world spawn
+     * @param chunksPerTick the most chunks to have loading at once
+     */
+    WorldScan(BlockFinderGame game, World world, ForkJoinPool pool, int radius, int chunksPerTick) {
+        this.game = game;
+        this.world = world;
+        this.pool = pool;
+        this.radius = radius;
+        this.chunksPerTick = chunksPerTick;
+        this.spawnChunkX = world.getSpawnLocation().getBlockX() >> 4;
+        this.spawnChunkZ = world.getSpawnLocation().getBlockZ() >> 4;
+        this.minHeight = world.getMinHeight();
+        this.maxHeight = world.getMaxHeight();
+        this.chunkTotal = (2 * radius + 1) * (2 * radius + 1);
+        this.histogram = new BlockHistogram(radius);
+        this.snapshots = new ConcurrentLinkedQueue<>();
+        this.chunksInFlight = new AtomicInteger();
+        this.batchesInFlight = new AtomicInteger();
+        this.result = new CompletableFuture<>();
+        this.nextChunk = 0;
+    }
+
+    /**
+     * Start scanning in the background.
+     * @return a future completed with the block counts once every chunk has been scanned
+     */
+    CompletableFuture<BlockHistogram> start() {
+        this.task = Scheduling.runGlobalAtFixedRate(game.getPlugin(), this::tick, 1L);
+        return result;
+    }
+
+    /**
+     * Stop scanning. The result will never be completed.
+     */
+    void cancel() {
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Helper to request more chunks, count the snapshots that have arrived, and finish once everything is counted.
+     * Runs on the global thread every tick.
+     */
+    private void tick() {
+        while (nextChunk < chunkTotal && chunksInFlight.get() < chunksPerTick) {
+            int side = 2 * radius + 1;
+            int chunkX = spawnChunkX - radius + nextChunk % side;
+            int chunkZ = spawnChunkZ - radius + nextChunk / side;
+            nextChunk++;
+
+            chunksInFlight.incrementAndGet();
+            world.getChunkAtAsync(chunkX, chunkZ, false).whenComplete((chunk, error) -> {
+                if (chunk != null) {
+                    snapshots.add(chunk.getChunkSnapshot(false, false, false)); // on the chunk's own thread
+                }
+                chunksInFlight.decrementAndGet();
+            });
+        }
+
+        List<ChunkSnapshot> batch = new ArrayList<>();
+        ChunkSnapshot snapshot;
+        while ((snapshot = snapshots.poll()) != null) {
+            batch.add(snapshot);
+        }
+        if (!batch.isEmpty()) {
+            ChunkSnapshot[] batchSnapshots = batch.toArray(new ChunkSnapshot[0]);
+            batchesInFlight.incrementAndGet();
+            pool.execute(() -> {
+                try {
+                    new CountTask(batchSnapshots, 0, batchSnapshots.length).invoke();
+                } finally {
+                    batchesInFlight.decrementAndGet();
+                }
+            });
+        }
+
+        // snapshots are queued before their chunk leaves flight, so checking in this order cannot miss one
+        if (nextChunk >= chunkTotal && chunksInFlight.get() == 0 && snapshots.isEmpty()
+            && batchesInFlight.get() == 0) {
+            task.cancel();
+            histogram.finish();
+            result.complete(histogram);
+        }
+    }
+
+    /**
+     * Counts the blocks in a range of snapshots, splitting the range in halves until each task has one chunk.
+     */
+    private final class CountTask extends RecursiveAction {
+
+        private final ChunkSnapshot[] snapshots;
+        private final int from;
+        private final int to;
+
+        private CountTask(ChunkSnapshot[] snapshots, int from, int to) {
+            this.snapshots = snapshots;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CountTask(snapshots, from, middle), new CountTask(snapshots, middle, to));
+                return;
+            }
+            histogram.addChunk(countBlocks(snapshots[from]));
+        }
+
+        /**
+         * Helper to count the blocks of each type in a chunk, skipping sections that are entirely air.
+         * @param snapshot the chunk to count
+         * @return the number of blocks of each type, by Material ordinal
+         */
+        private int[] countBlocks(ChunkSnapshot snapshot) {
+            int[] counts = new int[MATERIAL_COUNT];
+            for (int sectionY = minHeight; sectionY < maxHeight; sectionY += 16) {
+                int sectionHeight = Math.min(16, maxHeight - sectionY);
+                if (snapshot.isSectionEmpty((sectionY - minHeight) >> 4)) {
+                    counts[Material.AIR.ordinal()] += 256 * sectionHeight;
+                    continue;
+                }
+                for (int y = sectionY; y < sectionY + sectionHeight; y++) {
+                    for (int x = 0; x < 16; x++) {
+                        for (int z = 0; z < 16; z++) {
+                            counts[snapshot.getBlockType(x, y, z).ordinal()]++;
+                        }
+                    }
+                }
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package me.nbernich.blockFinderPlugin.stats;
+
+import jdk.jfr.*;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Custom JDK Flight Recorder events for the game, so its activity shows up next to tick spikes in a recording.
+ * <p>
+ * Every method checks whether its event type is enabled in a running recording before doing anything else, so
+ * while no recording is running (or the event is turned off in the recording's settings) emitting costs a single
+ * field read and nothing is allocated. Sneak checks happen far too often to record each one, so they are sampled,
+ * and a check is always recorded when it is slower than the configured threshold.
+ */
+public class FlightEvents {
+
+    private final static int DEFAULT_SNEAK_CHECK_SAMPLE_RATE = 100;
+    private final static long DEFAULT_SNEAK_CHECK_THRESHOLD_MICROS = 1000;
+    private final static long DEFAULT_SCOREBOARD_FLUSH_THRESHOLD_MICROS = 0;
+    private static final List<Class<? extends Event>> EVENT_CLASSES = List.of(
+        RoundStartEvent.class, RoundEndEvent.class, FindClaimEvent.class, SneakCheckEvent.class,
+        ScoreboardFlushEvent.class
+    );
+
+    private final boolean enabled;
+    private final int sneakCheckSampleRate;
+    private final long sneakCheckThresholdNanos;
+    private final long scoreboardFlushThresholdNanos;
+    private final EventType roundStartType;
+    private final EventType roundEndType;
+    private final EventType findClaimType;
+    private final EventType sneakCheckType;
+    private final EventType scoreboardFlushType;
+
+    /**
+     * Initialize the FlightEvents with user-defined settings, and register the event types with the flight recorder.
+     * @param logger The logger to report invalid settings to.
+     * @param config The configuration section containing game settings.
+     */
+    public FlightEvents(Logger logger, ConfigurationSection config) {
+        this.enabled = config.getBoolean("flightRecorder.enabled", true);
+
+        int configSampleRate = config.getInt("flightRecorder.sneakCheckSampleRate", DEFAULT_SNEAK_CHECK_SAMPLE_RATE);
+        if (configSampleRate < 0) {
+            logger.warning("Invalid sneak check sample rate. Cannot be less than 0. Using default.");
+            this.sneakCheckSampleRate = DEFAULT_SNEAK_CHECK_SAMPLE_RATE;
+        } else {
+            this.sneakCheckSampleRate = configSampleRate;
+        }
+
+        long configSneakThreshold = config.getLong(
+            "flightRecorder.sneakCheckThresholdMicros", DEFAULT_SNEAK_CHECK_THRESHOLD_MICROS
+        );
+        if (configSneakThreshold < 0) {
+            logger.warning("Invalid sneak check threshold. Cannot be less than 0. Using default.");
+            configSneakThreshold = DEFAULT_SNEAK_CHECK_THRESHOLD_MICROS;
+        }
+        this.sneakCheckThresholdNanos = TimeUnit.MICROSECONDS.toNanos(configSneakThreshold);
+
+        long configFlushThreshold = config.getLong(
+            "flightRecorder.scoreboardFlushThresholdMicros", DEFAULT_SCOREBOARD_FLUSH_THRESHOLD_MICROS
+        );
+        if (configFlushThreshold < 0) {
+            logger.warning("Invalid scoreboard flush threshold. Cannot be less than 0. Using default.");
+            configFlushThreshold = DEFAULT_SCOREBOARD_FLUSH_THRESHOLD_MICROS;
+        }
+        this.scoreboardFlushThresholdNanos = TimeUnit.MICROSECONDS.toNanos(configFlushThreshold);
+
+        if (!enabled) {
+            this.roundStartType = null;
+            this.roundEndType = null;
+            this.findClaimType = null;
+            this.sneakCheckType = null;
+            this.scoreboardFlushType = null;
+            return;
+        }
+        for (Class<? extends Event> eventClass : EVENT_CLASSES) {
+            FlightRecorder.register(eventClass); // so the events can be configured before any are emitted
+        }
+        this.roundStartType = EventType.getEventType(RoundStartEvent.class);
+        this.roundEndType = EventType.getEventType(RoundEndEvent.class);
+        this.findClaimType = EventType.getEventType(FindClaimEvent.class);
+        this.sneakCheckType = EventType.getEventType(SneakCheckEvent.class);
+        this.scoreboardFlushType = EventType.getEventType(ScoreboardFlushEvent.class);
+    }
+
+    /**
+     * Unregister the event types, so the plugin's classes can be unloaded.
+     */
+    public void unregister() {
+        if (!enabled) {
+            return;
+        }
+        for (Class<? extends Event> eventClass : EVENT_CLASSES) {
+            FlightRecorder.unregister(eventClass);
+        }
+    }
+
+    /**
+     * Check if round events should be emitted, so callers can skip building their target lists otherwise.
+     * @return true if round start or end events are being recorded, false otherwise
+     */
+    public boolean isRecordingRounds() {
+        return enabled && (roundStartType.isEnabled() || roundEndType.isEnabled());
+    }
+
+    /**
+     * Emit an event for a round starting.
+     * @param arena the name of the arena the round is in
+     * @param epoch the epoch of the round
+     * @param targets the target block types of the round, separated by commas
+     */
+    public void roundStart(String arena, long epoch, String targets) {
+        if (!enabled || !roundStartType.isEnabled()) {
+            return;
+        }
+        RoundStartEvent event = new RoundStartEvent();
+        event.arena = arena;
+        event.epoch = epoch;
+        event.targets = targets;
+        event.commit();
+    }
+
+    /**
+     * Emit an event for a round ending.
+     * @param arena the name of the arena the round was in
+     * @param epoch the epoch of the round
+     * @param targets the target block types of the round, separated by commas
+     * @param outcome how the round ended, such as FOUND or SKIPPED
+     * @param durationMillis how long the round lasted, in milliseconds
+     */
+    public void roundEnd(String arena, long epoch, String targets, String outcome, long durationMillis) {
+        if (!enabled || !roundEndType.isEnabled()) {
+            return;
+        }
+        RoundEndEvent event = new RoundEndEvent();
+        event.arena = arena;
+        event.epoch = epoch;
+        event.targets = targets;
+        event.outcome = outcome;
+        event.roundDuration = durationMillis;
+        event.commit();
+    }
+
+    /**
+     * Emit an event for a player claiming a round by finding one of its targets.
+     * @param arena the name of the arena the round is in
+     * @param epoch the epoch of the claimed round
+     * @param player the name of the player who found the target
+     * @param material the name of the block type that was found
+     * @param tick the server tick the find happened in
+     * @param first whether this was the first claim of the round; later claims lose, or are weighed against it in the
+     *     same tick, depending on the tie-break policy
+     */
+    public void findClaim(String arena, long epoch, String player, String material, int tick, boolean first) {
+        if (!enabled || !findClaimType.isEnabled()) {
+            return;
+        }
+        FindClaimEvent event = new FindClaimEvent();
+        event.arena = arena;
+        event.epoch = epoch;
+        event.player = player;
+        event.material = material;
+        event.tick = tick;
+        event.first = first;
+        event.commit();
+    }
+
+    /**
+     * Emit an event for a sneak check, if it is sampled or slower than the threshold.
+     * @param startNanos the value of System.nanoTime() when the check started
+     * @param hit whether the player was standing above a target
+     */
+    public void sneakCheck(long startNanos, boolean hit) {
+        if (!enabled || !sneakCheckType.isEnabled()) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        boolean sampled = sneakCheckSampleRate > 0 && ThreadLocalRandom.current().nextInt(sneakCheckSampleRate) == 0;
+        if (!sampled && durationNanos < sneakCheckThresholdNanos) {
+            return;
+        }
+        SneakCheckEvent event = new SneakCheckEvent();
+        event.checkDuration = durationNanos;
+        event.hit = hit;
+        event.sampled = sampled;
+        event.commit();
+    }
+
+    /**
+     * Emit an event for a scoreboard flush, if it is slower than the threshold.
+     * @param startNanos the value of System.nanoTime() when the flush started
+     * @param teamCount the number of teams whose scores were written
+     */
+    public void scoreboardFlush(long startNanos, int teamCount) {
+        if (!enabled || !scoreboardFlushType.isEnabled()) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        if (durationNanos < scoreboardFlushThresholdNanos) {
+            return;
+        }
+        ScoreboardFlushEvent event = new ScoreboardFlushEvent();
+        event.flushDuration = durationNanos;
+        event.teamCount = teamCount;
+        event.commit();
+    }
+
+    @Name("blockfinder.RoundStart")
+    @Label("Round Start")
+    @Category({"Block Finder", "Game"})
+    @Description("A round of Block Finder started with new targets")
+    @StackTrace(false)
+    static final class RoundStartEvent extends Event {
+        @Label("Arena")
+        String arena;
+
+        @Label("Epoch")
+        long epoch;
+
+        @Label("Targets")
+        String targets;
+    }
+
+    @Name("blockfinder.RoundEnd")
+    @Label("Round End")
+    @Category({"Block Finder", "Game"})
+    @Description("A round of Block Finder was won, skipped or stopped")
+    @StackTrace(false)
+    static final class RoundEndEvent extends Event {
+        @Label("Arena")
+        String arena;
+
+        @Label("Epoch")
+        long epoch;
+
+        @Label("Targets")
+        String targets;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Round Duration")
+        @Timespan(Timespan.MILLISECONDS)
+        long roundDuration;
+    }
+
+    @Name("blockfinder.FindClaim")
+    @Label("Find Claim")
+    @Category({"Block Finder", "Game"})
+    @Description("A player found a target block and claimed the round")
+    @StackTrace(false)
+    static final class FindClaimEvent extends Event {
+        @Label("Arena")
+        String arena;
+
+        @Label("Epoch")
+        long epoch;
+
+        @Label("Player")
+        String player;
+
+        @Label("Material")
+        String material;
+
+        @Label("Server Tick")
+        int tick;
+
+        @Label("First Claim")
+        boolean first;
+    }
+
+    @Name("blockfinder.SneakCheck")
+    @Label("Sneak Check")
+    @Category({"Block Finder", "Hot Path"})
+    @Description("A check for a target block below a sneaking player, sampled or slower than the threshold")
+    @StackTrace(false)
+    static final class SneakCheckEvent extends Event {
+        @Label("Check Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long checkDuration;
+
+        @Label("Hit")
+        boolean hit;
+
+        @Label("Sampled")
+        boolean sampled;
+    }
+
+    @Name("blockfinder.ScoreboardFlush")
+    @Label("Scoreboard Flush")
+    @Category({"Block Finder", "Hot Path"})
+    @Description("Changed team scores were written to the sidebar scoreboard")
+    @StackTrace(false)
+    static final class ScoreboardFlushEvent extends Event {
+        @Label("Flush Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long flushDuration;
+
+        @Label("Teams Written")
+        int teamCount;
+    }
+}
@@ -0,0 +1,133 @@
+package me.nbernich.blockFinderPlugin.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, which can be recorded into from any thread without allocating.
+ * <p>
+ * Buckets are log-linear: every power of two is split into 8 equal buckets, so a reported percentile is never more
+ * than 12.5% above the true value, across the whole range of a long. Recording computes a bucket index from the
+ * leading zeros of the value and increments a single array slot. Reading walks all the buckets, which is only done
+ * when stats are displayed.
+ * <p>
+ * Resetting while values are being recorded may keep or drop the values recorded at the same moment.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (65 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong max;
+
+    /**
+     * Create an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Record a latency.
+     * @param nanos the latency in nanoseconds; negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Get the number of latencies recorded since the last reset.
+     * @return the number of recorded latencies
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get the largest latency recorded since the last reset.
+     * @return the largest latency in nanoseconds, or 0 if none were recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get an upper bound of the latency that the given fraction of recorded latencies are at or below.
+     * @param percentile the fraction of latencies, between 0 and 1 (such as 0.99)
+     * @return the latency in nanoseconds, or 0 if none were recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Discard every recorded latency.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * Helper to find the bucket a value belongs in. Values below the sub-bucket count each get their own bucket.
+     * @param value a value of at least 0
+     * @return the index of the value's bucket
+     */
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Helper to get the largest value that belongs in a bucket.
+     * @param index the index of the bucket
+     * @return the largest value in the bucket
+     */
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        long upperBound = lowerBound + width - 1;
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound; // the top buckets run past the largest long
+    }
+}
@@ -0,0 +1,163 @@
+package me.nbernich.blockFinderPlugin.stats;
+
+import me.nbernich.blockFinderPlugin.utils.Colors;
+import net.kyori.adventure.text.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the work the plugin does on server threads, shown by /bfinder perf.
+ * <p>
+ * Every timed operation has its own LatencyHistogram, and game events are counted with LongAdders, so recording
+ * never locks or allocates and can stay on all the time. Rates are measured from the last reset, or from when the
+ * plugin was enabled.
+ */
+public class PerformanceStats {
+
+    /**
+     * An operation whose latency is recorded.
+     */
+    public enum Operation {
+        SNEAK_CHECK("Sneak check"),
+        FOUND_BLOCK("Found block"),
+        SELECT_TARGETS("Select targets"),
+        SCOREBOARD_FLUSH("Scoreboard flush"),
+        COMMAND("Command");
+
+        private static final Operation[] VALUES = values();
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    private final LatencyHistogram[] histograms;
+    private final LongAdder sneakCount;
+    private final LongAdder findCount;
+    private final LongAdder timeToFindMillis;
+    private volatile long resetAtNanos;
+
+    /**
+     * Create empty stats, measuring rates from now.
+     */
+    public PerformanceStats() {
+        this.histograms = new LatencyHistogram[Operation.VALUES.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        this.sneakCount = new LongAdder();
+        this.findCount = new LongAdder();
+        this.timeToFindMillis = new LongAdder();
+        this.resetAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Record how long an operation took.
+     * @param operation the operation that finished
+     * @param startNanos the value of System.nanoTime() when the operation started
+     */
+    public void record(Operation operation, long startNanos) {
+        histograms[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Count a player starting to sneak while a game is running.
+     */
+    public void countSneak() {
+        sneakCount.increment();
+    }
+
+    /**
+     * Count a round being won.
+     * @param timeToFindMillis how long the round lasted before its targets were found, in milliseconds
+     */
+    public void countFind(long timeToFindMillis) {
+        findCount.increment();
+        this.timeToFindMillis.add(timeToFindMillis);
+    }
+
+    /**
+     * Discard every recorded latency and count, and measure rates from now.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        sneakCount.reset();
+        findCount.reset();
+        timeToFindMillis.reset();
+        this.resetAtNanos = System.nanoTime();
+    }
+
+    /**
+     * Create a message showing the latency of each operation and the rates of game events.
+     * @return a Component containing the stats
+     */
+    public Component createReportMessage() {
+        double elapsedSeconds = Math.max(1, System.nanoTime() - resetAtNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        long finds = findCount.sum();
+
+        Component message = Component.text(
+            String.format("Performance over the last %s:", formatDuration(elapsedSeconds)), Colors.HEADER
+        );
+        for (Operation operation : Operation.VALUES) {
+            LatencyHistogram histogram = histograms[operation.ordinal()];
+            message = message.appendNewline()
+                .append(Component.text("  * ", Colors.DEFAULT))
+                .append(Component.text(operation.label, Colors.HEADER))
+                .append(Component.text(String.format(
+                    ": %d calls, p50 %s, p99 %s, max %s",
+                    histogram.getCount(),
+                    formatNanos(histogram.getPercentile(0.5)),
+                    formatNanos(histogram.getPercentile(0.99)),
+                    formatNanos(histogram.getMax())
+                ), Colors.DEFAULT));
+        }
+
+        String meanTimeToFind = finds == 0 ? "-" : formatDuration(timeToFindMillis.sum() / 1000.0 / finds);
+        message = message.appendNewline()
+            .append(Component.text("  * ", Colors.DEFAULT))
+            .append(Component.text("Game", Colors.HEADER))
+            .append(Component.text(String.format(
+                ": %.1f finds per hour, mean time to find %s, %.1f sneaks per second",
+                finds * 3600 / elapsedSeconds, meanTimeToFind, sneakCount.sum() / elapsedSeconds
+            ), Colors.DEFAULT));
+        return message;
+    }
+
+    /**
+     * Helper to format a latency with a unit that keeps it short.
+     * @param nanos the latency in nanoseconds
+     * @return the formatted latency, such as "12.5 us"
+     */
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + " ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+        return String.format("%.2f s", nanos / 1e9);
+    }
+
+    /**
+     * Helper to format a duration in seconds, minutes or hours.
+     * @param seconds the duration in seconds
+     * @return the formatted duration, such as "4.2 min"
+     */
+    private static String formatDuration(double seconds) {
+        if (seconds < 60) {
+            return String.format("%.1f s", seconds);
+        }
+        if (seconds < 3600) {
+            return String.format("%.1f min", seconds / 60);
+        }
+        return String.format("%.1f h", seconds / 3600);
+    }
+}
@@ -18,6 +18,8 @@ public class Colors {
     public static final NamedTextColor COMMAND = NamedTextColor.AQUA;
     public static final NamedTextColor TARGET_BLOCK = NamedTextColor.GOLD;
     public static final NamedTextColor FOUND_BLOCK = NamedTextColor.GOLD;
+    public static final NamedTextColor WARMER = NamedTextColor.RED;
+    public static final NamedTextColor COLDER = NamedTextColor.BLUE;
 
     private static final Map<String, NamedTextColor> colorMap = NamedTextColor.NAMES.keyToValue();
 
@@ -0,0 +1,64 @@
+package me.nbernich.blockFinderPlugin.utils;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Material;
+
+/**
+ * Utility class that caches display names of block types.
+ * Names and their components are rendered the first time they are needed and reused afterward,
+ * since they only depend on the Material itself.
+ */
+public class MaterialNames {
+
+    private static final int MATERIAL_COUNT = Material.values().length;
+
+    private static final String[] displayNames = new String[MATERIAL_COUNT];
+    private static final Component[] targetComponents = new Component[MATERIAL_COUNT];
+    private static final Component[] foundComponents = new Component[MATERIAL_COUNT];
+
+    /**
+     * Get the display name of a block type in Title Case (e.g., "Oak Log").
+     * @param blockType the block type to name
+     * @return the display name of the block type
+     */
+    public static String getDisplayName(Material blockType) {
+        int ordinal = blockType.ordinal();
+        String displayName = displayNames[ordinal];
+        if (displayName == null) {
+            displayName = Formatting.toTitleCase(blockType.name());
+            displayNames[ordinal] = displayName;
+        }
+        return displayName;
+    }
+
+    /**
+     * Get the display name of a block type, colored as a target block.
+     * @param blockType the block type to name
+     * @return a Component containing the display name
+     */
+    public static Component getTargetComponent(Material blockType) {
+        int ordinal = blockType.ordinal();
+        Component component = targetComponents[ordinal];
+        if (component == null) {
+            component = Component.text(getDisplayName(blockType), Colors.TARGET_BLOCK);
+            targetComponents[ordinal] = component;
+        }
+        return component;
+    }
+
+    /**
+     * Get the display name of a block type, colored as a found block.
+     * @param blockType the block type to name
+     * @return a Component containing the display name
+     */
+    public static Component getFoundComponent(Material blockType) {
+        int ordinal = blockType.ordinal();
+        Component component = foundComponents[ordinal];
+        if (component == null) {
+            component = Component.text(getDisplayName(blockType), Colors.FOUND_BLOCK);
+            foundComponents[ordinal] = component;
+        }
+        return component;
+    }
+
+}
@@ -0,0 +1,89 @@
+package me.nbernich.blockFinderPlugin.utils;
+
+import java.util.*;
+
+/**
+ * An immutable prefix tree of names, used to suggest command arguments as they are typed.
+ * <p>
+ * Every node keeps the sorted, unmodifiable list of names below it, so looking up a prefix walks one node per
+ * typed character and returns a list that was built ahead of time, without allocating. Matching ignores case,
+ * and names are returned as they were given. A trie is built once from a set of names and replaced when the
+ * names change.
+ */
+public final class NameTrie {
+
+    /**
+     * A trie with no names.
+     */
+    public static final NameTrie EMPTY = new NameTrie(List.of());
+
+    private final Node root;
+
+    /**
+     * Build a trie of the given names.
+     * @param names the names to suggest, without duplicates
+     */
+    public NameTrie(Collection<String> names) {
+        List<String> sortedNames = new ArrayList<>(names);
+        sortedNames.sort(String.CASE_INSENSITIVE_ORDER);
+        this.root = build(sortedNames, 0);
+    }
+
+    /**
+     * Get the names that start with a prefix, ignoring case.
+     * @param prefix the typed prefix
+     * @return an unmodifiable list of matching names in alphabetical order, which is empty if none match
+     */
+    public List<String> withPrefix(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(Character.toLowerCase(prefix.charAt(i)));
+        }
+        return node == null ? List.of() : node.names;
+    }
+
+    /**
+     * Get every name in the trie.
+     * @return an unmodifiable list of all names in alphabetical order
+     */
+    public List<String> getNames() {
+        return root.names;
+    }
+
+    /**
+     * Helper to build the node for a group of names that share a prefix of the given length.
+     * @param names the names below the node, sorted ignoring case
+     * @param depth the length of the shared prefix
+     * @return the node holding the names
+     */
+    private static Node build(List<String> names, int depth) {
+        TreeMap<Character, List<String>> namesByNextChar = new TreeMap<>();
+        for (String name : names) {
+            if (name.length() > depth) {
+                char next = Character.toLowerCase(name.charAt(depth));
+                namesByNextChar.computeIfAbsent(next, c -> new ArrayList<>()).add(name);
+            }
+        }
+
+        char[] keys = new char[namesByNextChar.size()];
+        Node[] children = new Node[namesByNextChar.size()];
+        int i = 0;
+        for (Map.Entry<Character, List<String>> entry : namesByNextChar.entrySet()) {
+            keys[i] = entry.getKey();
+            children[i] = build(entry.getValue(), depth + 1);
+            i++;
+        }
+        return new Node(List.copyOf(names), keys, children);
+    }
+
+    /**
+     * A node of the trie, with its children sorted by character for binary search.
+     */
+    private record Node(List<String> names, char[] keys, Node[] children) {
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : children[index];
+        }
+    }
+}
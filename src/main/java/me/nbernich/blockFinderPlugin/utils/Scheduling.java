@@ -0,0 +1,105 @@
+package me.nbernich.blockFinderPlugin.utils;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Utility class for running tasks on the right thread, on both Paper and Folia.
+ * Paper's region schedulers run everything on the main thread, so the same calls work on both platforms.
+ * While the plugin is disabling, tasks can no longer be scheduled, so they run immediately instead.
+ */
+public class Scheduling {
+
+    private static final boolean FOLIA = detectFolia();
+
+    /**
+     * Check if the server is running Folia, where events arrive concurrently on region threads.
+     * @return true if the server is running Folia, false otherwise
+     */
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    /**
+     * Run a task on the global region thread (the main thread on Paper) as soon as possible.
+     * Used for work that touches server-wide state, such as broadcasts and scoreboards.
+     * @param plugin the plugin that owns the task
+     * @param task the task to run
+     */
+    public static void runGlobal(Plugin plugin, Runnable task) {
+        if (!plugin.isEnabled()) {
+            task.run();
+            return;
+        }
+        plugin.getServer().getGlobalRegionScheduler().execute(plugin, task);
+    }
+
+    /**
+     * Run a task on the global region thread (the main thread on Paper) repeatedly, starting on the next tick.
+     * @param plugin the plugin that owns the task
+     * @param task the task to run
+     * @param periodTicks the number of ticks between runs, at least 1
+     * @return the scheduled task, which can be cancelled to stop it
+     */
+    public static ScheduledTask runGlobalAtFixedRate(Plugin plugin, Runnable task, long periodTicks) {
+        return plugin.getServer().getGlobalRegionScheduler().runAtFixedRate(
+            plugin, scheduledTask -> task.run(), 1L, Math.max(1L, periodTicks)
+        );
+    }
+
+    /**
+     * Run a task on a background thread as soon as possible, for work that must not hold up a tick, such as reading
+     * files. The task must not touch worlds, entities or other server state.
+     * @param plugin the plugin that owns the task
+     * @param task the task to run
+     */
+    public static void runAsync(Plugin plugin, Runnable task) {
+        if (!plugin.isEnabled()) {
+            task.run();
+            return;
+        }
+        plugin.getServer().getAsyncScheduler().runNow(plugin, scheduledTask -> task.run());
+    }
+
+    /**
+     * Run a task on the thread that owns a player (the main thread on Paper) as soon as possible.
+     * The task is dropped if the player leaves before it runs.
+     * @param plugin the plugin that owns the task
+     * @param player the player the task acts on
+     * @param task the task to run
+     */
+    public static void runForPlayer(Plugin plugin, Player player, Runnable task) {
+        if (!plugin.isEnabled()) {
+            task.run();
+            return;
+        }
+        player.getScheduler().execute(plugin, task, null, 1L);
+    }
+
+    /**
+     * Run a task on the thread that owns a command sender: the player's thread for players,
+     * or the global region thread for the console and other senders.
+     * @param plugin the plugin that owns the task
+     * @param sender the command sender the task acts on
+     * @param task the task to run
+     */
+    public static void runForSender(Plugin plugin, CommandSender sender, Runnable task) {
+        if (sender instanceof Player player) {
+            runForPlayer(plugin, player, task);
+        } else {
+            runGlobal(plugin, task);
+        }
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,272 @@
+package me.nbernich.blockFinderPlugin.rarity;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Scans region files generated by the test, holding full and partial chunks in every compression type the server
+ * writes, and chunks that were cut short while they were being saved.
+ */
+class RegionScanTest {
+
+    private static final int SECTOR_BYTES = 4096;
+    private static final int GZIP = 1;
+    private static final int ZLIB = 2;
+    private static final int UNCOMPRESSED = 3;
+
+    private static final byte TAG_STRING = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_COMPOUND = 10;
+    private static final byte TAG_LONG_ARRAY = 12;
+
+    @TempDir
+    Path regionFolder;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void createPool() {
+        this.pool = new ForkJoinPool(2);
+    }
+
+    @AfterEach
+    void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void countsFullChunksInEveryCompressionType() throws IOException {
+        RegionFile region = new RegionFile();
+        region.add(0, GZIP, fullChunk(List.of("minecraft:stone", "minecraft:dirt"), List.of("minecraft:stone")));
+        region.add(1, ZLIB, fullChunk(List.of("minecraft:stone", "minecraft:diamond_ore")));
+        region.add(32, UNCOMPRESSED, fullChunk(List.of("minecraft:emerald_ore")));
+        region.write(regionFolder.resolve("r.0.0.mca"));
+
+        MaterialInventory inventory = scan();
+
+        assertEquals(3, inventory.getChunkCount());
+        assertEquals(0, inventory.getSkippedChunkCount());
+        assertEquals(3, inventory.getSectionCount(Material.STONE));
+        assertEquals(1, inventory.getSectionCount(Material.DIRT));
+        assertEquals(1, inventory.getSectionCount(Material.DIAMOND_ORE));
+        assertEquals(1, inventory.getSectionCount(Material.EMERALD_ORE));
+        assertFalse(inventory.contains(Material.GOLD_ORE));
+    }
+
+    @Test
+    void countsBlockStatesOfOneTypeOncePerSection() throws IOException {
+        RegionFile region = new RegionFile();
+        region.add(0, ZLIB, fullChunk(List.of("minecraft:oak_stairs", "minecraft:oak_stairs", "minecraft:air")));
+        region.write(regionFolder.resolve("r.0.0.mca"));
+
+        MaterialInventory inventory = scan();
+
+        assertEquals(1, inventory.getSectionCount(Material.OAK_STAIRS));
+        assertEquals(1, inventory.getSectionCount(Material.AIR));
+    }
+
+    @Test
+    void skipsPartialChunks() throws IOException {
+        RegionFile region = new RegionFile();
+        region.add(0, ZLIB, fullChunk(List.of("minecraft:stone")));
+        region.add(1, GZIP, chunk("minecraft:features", List.of("minecraft:stone", "minecraft:gold_ore")));
+        region.add(2, UNCOMPRESSED, chunk("minecraft:noise", List.of("minecraft:lapis_ore")));
+        region.write(regionFolder.resolve("r.0.0.mca"));
+
+        MaterialInventory inventory = scan();
+
+        assertEquals(1, inventory.getChunkCount());
+        assertEquals(2, inventory.getSkippedChunkCount());
+        assertEquals(1, inventory.getSectionCount(Material.STONE));
+        assertFalse(inventory.contains(Material.GOLD_ORE));
+        assertFalse(inventory.contains(Material.LAPIS_ORE));
+    }
+
+    @Test
+    void skipsTruncatedChunks() throws IOException {
+        byte[] cutShort = compress(ZLIB, fullChunk(List.of("minecraft:gold_ore")));
+        cutShort = Arrays.copyOf(cutShort, cutShort.length / 2);
+
+        RegionFile region = new RegionFile();
+        region.add(0, GZIP, fullChunk(List.of("minecraft:stone")));
+        region.addCompressed(1, ZLIB, cutShort); // half-written while the server saved it
+        region.addCompressed(2, UNCOMPRESSED, Arrays.copyOf(fullChunk(List.of("minecraft:lapis_ore")), 20));
+        region.write(regionFolder.resolve("r.0.0.mca"));
+
+        MaterialInventory inventory = scan();
+
+        assertEquals(1, inventory.getChunkCount());
+        assertEquals(2, inventory.getSkippedChunkCount());
+        assertTrue(inventory.contains(Material.STONE));
+        assertFalse(inventory.contains(Material.GOLD_ORE));
+        assertFalse(inventory.contains(Material.LAPIS_ORE));
+    }
+
+    @Test
+    void skipsChunksPastTheEndOfTheFile() throws IOException {
+        RegionFile region = new RegionFile();
+        region.add(0, ZLIB, fullChunk(List.of("minecraft:stone")));
+        region.add(1, ZLIB, fullChunk(List.of("minecraft:gold_ore")));
+        Path file = regionFolder.resolve("r.0.0.mca");
+        region.write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - SECTOR_BYTES + 16)); // the last chunk is cut off
+
+        MaterialInventory inventory = scan();
+
+        assertEquals(1, inventory.getChunkCount());
+        assertEquals(1, inventory.getSkippedChunkCount());
+        assertFalse(inventory.contains(Material.GOLD_ORE));
+    }
+
+    @Test
+    void readsEveryRegionFileInTheFolder() throws IOException {
+        RegionFile first = new RegionFile();
+        first.add(0, ZLIB, fullChunk(List.of("minecraft:stone")));
+        first.write(regionFolder.resolve("r.0.0.mca"));
+        RegionFile second = new RegionFile();
+        second.add(1023, GZIP, fullChunk(List.of("minecraft:stone", "minecraft:diamond_ore")));
+        second.write(regionFolder.resolve("r.-1.2.mca"));
+        Files.write(regionFolder.resolve("notes.txt"), new byte[SECTOR_BYTES * 3]); // not a region file
+
+        MaterialInventory inventory = scan();
+
+        assertEquals(2, inventory.getChunkCount());
+        assertEquals(2, inventory.getSectionCount(Material.STONE));
+        assertEquals(1, inventory.getSectionCount(Material.DIAMOND_ORE));
+    }
+
+    private MaterialInventory scan() {
+        return new RegionScan(regionFolder, pool).start().join();
+    }
+
+    /**
+     * Helper to write a fully generated chunk with one section per palette.
+     */
+    @SafeVarargs
+    private static byte[] fullChunk(List<String>... palettes) throws IOException {
+        return chunk("minecraft:full", List.of(palettes));
+    }
+
+    /**
+     * Helper to write the NBT of a chunk in the layout used since 1.18, with packed block data next to each palette
+     * and fields the scan has to skip before and after the sections.
+     * @param status the generation status of the chunk
+     * @param palettes the block names listed by each section, from the bottom up
+     * @return the uncompressed chunk data
+     */
+    private static byte[] chunk(String status, List<List<String>> palettes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TAG_COMPOUND);
+        out.writeUTF("");
+        out.writeByte(3);
+        out.writeUTF("DataVersion");
+        out.writeInt(4189);
+        out.writeByte(TAG_LIST);
+        out.writeUTF("sections");
+        out.writeByte(TAG_COMPOUND);
+        out.writeInt(palettes.size());
+        for (int y = 0; y < palettes.size(); y++) {
+            out.writeByte(1);
+            out.writeUTF("Y");
+            out.writeByte(y);
+            out.writeByte(TAG_COMPOUND);
+            out.writeUTF("block_states");
+            out.writeByte(TAG_LIST);
+            out.writeUTF("palette");
+            out.writeByte(TAG_COMPOUND);
+            out.writeInt(palettes.get(y).size());
+            for (String name : palettes.get(y)) {
+                out.writeByte(TAG_COMPOUND);
+                out.writeUTF("Properties");
+                out.writeByte(TAG_STRING);
+                out.writeUTF("facing");
+                out.writeUTF("north");
+                out.writeByte(0);
+                out.writeByte(TAG_STRING);
+                out.writeUTF("Name");
+                out.writeUTF(name);
+                out.writeByte(0);
+            }
+            out.writeByte(TAG_LONG_ARRAY);
+            out.writeUTF("data");
+            out.writeInt(256);
+            out.write(new byte[256 * 8]);
+            out.writeByte(0); // end of block_states
+            out.writeByte(0); // end of the section
+        }
+        out.writeByte(TAG_STRING);
+        out.writeUTF("Status");
+        out.writeUTF(status);
+        out.writeByte(0);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] compress(int compression, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        switch (compression) {
+            case GZIP -> {
+                try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                    out.write(data);
+                }
+            }
+            case ZLIB -> {
+                try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+                    out.write(data);
+                }
+            }
+            default -> bytes.write(data);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A region file built in memory, with each chunk starting on its own sector after the header.
+     */
+    private static final class RegionFile {
+
+        private final ByteBuffer header = ByteBuffer.allocate(2 * SECTOR_BYTES);
+        private final ByteArrayOutputStream sectors = new ByteArrayOutputStream();
+
+        private void add(int slot, int compression, byte[] chunk) throws IOException {
+            addCompressed(slot, compression, compress(compression, chunk));
+        }
+
+        private void addCompressed(int slot, int compression, byte[] data) {
+            int offset = 2 + sectors.size() / SECTOR_BYTES;
+            ByteBuffer entry = ByteBuffer.allocate(5 + data.length);
+            entry.putInt(data.length + 1).put((byte) compression).put(data);
+            int sectorCount = (entry.capacity() + SECTOR_BYTES - 1) / SECTOR_BYTES;
+            sectors.writeBytes(Arrays.copyOf(entry.array(), sectorCount * SECTOR_BYTES));
+            header.putInt(slot * 4, offset << 8 | sectorCount);
+            header.putInt(SECTOR_BYTES + slot * 4, 1);
+        }
+
+        private void write(Path file) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.writeBytes(header.array());
+            bytes.writeBytes(sectors.toByteArray());
+            Files.write(file, bytes.toByteArray());
+        }
+    }
+}